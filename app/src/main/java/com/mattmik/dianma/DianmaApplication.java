@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.app.Application;
+import android.support.annotation.NonNull;
+
+/**
+ * Holds state shared across every component of the app for the lifetime of its process.
+ */
+public class DianmaApplication extends Application {
+
+    private DictionaryHolder mDictionaryHolder;
+    private TranslationCache mTranslationCache;
+
+    @Override
+    public void onCreate() {
+
+        super.onCreate();
+        mDictionaryHolder = new DictionaryHolder(new ResourceDictionarySource(getResources()));
+        mTranslationCache = new TranslationCache(TranslationCache.DEFAULT_MAX_SIZE);
+
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+
+        super.onTrimMemory(level);
+        mDictionaryHolder.trimMemory();
+
+        // The UI is hidden every time the user leaves the app, which is no reason to lose the
+        // cache. Half is released while memory is tight, and all of it only as a last resort.
+        if(level >= TRIM_MEMORY_COMPLETE) {
+            mTranslationCache.evictAll();
+        } else if(level >= TRIM_MEMORY_BACKGROUND
+                || (level >= TRIM_MEMORY_RUNNING_LOW && level < TRIM_MEMORY_UI_HIDDEN)) {
+            mTranslationCache.trimToSize(mTranslationCache.size() / 2);
+        }
+
+    }
+
+    @Override
+    public void onLowMemory() {
+
+        super.onLowMemory();
+        mDictionaryHolder.trimMemory();
+        mTranslationCache.evictAll();
+
+    }
+
+    /**
+     * Returns the holder of the dictionary shared by every component of the app.
+     * @return the app's DictionaryHolder
+     */
+    @NonNull
+    public DictionaryHolder getDictionaryHolder() {
+        return mDictionaryHolder;
+    }
+
+    /**
+     * Returns the cache of translations shared by every component of the app.
+     * @return the app's TranslationCache
+     */
+    @NonNull
+    public TranslationCache getTranslationCache() {
+        return mTranslationCache;
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.content.res.Resources;
+import android.support.annotation.NonNull;
+
+import java.io.InputStream;
+
+/**
+ * Reads the app's code tables from its raw resources. These are compiled by the
+ * <code>compileDictionary</code> Gradle task into the format described by
+ * {@link DictionaryFormat}.
+ */
+public class ResourceDictionarySource implements DictionarySource {
+
+    private static final int DATA_SIMPLIFIED = R.raw.simplified_codes;
+    private static final int DATA_TRADITIONAL = R.raw.traditional_codes;
+
+    private final Resources mResources;
+
+    /**
+     * Constructs a ResourceDictionarySource.
+     * @param resources application's package Resources
+     */
+    public ResourceDictionarySource(@NonNull final Resources resources) {
+        mResources = resources;
+    }
+
+    @NonNull
+    @Override
+    public InputStream open(final boolean useTraditional) {
+        return mResources.openRawResource(useTraditional ? DATA_TRADITIONAL : DATA_SIMPLIFIED);
+    }
+
+}
@@ -56,12 +56,29 @@ public class TranslateActivity extends AppCompatActivity
 
     /**
      * Received by this activity's handler when a translated text is returned by
-     * {@link TranslateRunnable}.
+     * {@link TranslateRunnable}. The message's arg1 is the request's sequence number.
      */
     public static final int MSG_TRANSLATE_SUCCESS = 2;
 
+    /**
+     * Received by this activity's handler when {@link CodeDictionary} finishes loading a character
+     * set. The message's arg1 is 1 for the traditional character set, 0 for simplified.
+     */
+    public static final int MSG_DICTIONARY_LOADED = 3;
+
+    /**
+     * Received by this activity's handler when {@link TranslateRunnable} reports the output of a
+     * long translation in progress. The message's arg1 is the request's sequence number.
+     */
+    public static final int MSG_TRANSLATE_PARTIAL = 4;
+
     private static final int UPDATE_DELAY = 200;
 
+    // The first partial result is shown once about a screenful of output is ready, or a frame has
+    // passed. Later partial results follow at doubling sizes and intervals.
+    private static final int PARTIAL_RESULT_SIZE = 2048;
+    private static final long PARTIAL_RESULT_INTERVAL = 16;
+
     private static final String STATE_INPUT_TEXT = "inputText";
     private static final String KEY_TRANSLATE_MODE = "translateMode";
 
@@ -71,8 +88,20 @@ public class TranslateActivity extends AppCompatActivity
     private EditText mInputText;
     private TextView mOutputText;
     private Handler mHandler;
+    private DictionaryHolder mDictionaryHolder;
     private CodeDictionary mDictionary;
-    private ExecutorService mExecutor;
+    private TranslationCache mTranslationCache;
+    private TranslateScheduler mScheduler;
+    private ExecutorService mWorkerPool;
+
+    // Whether a translation is waiting for the needed character set to be loaded
+    private boolean mTranslationPending;
+
+    // The input text's version, which changes with every edit, and the edits made since the last
+    // translation was requested. The IncrementalTranslator is only used on the scheduler's thread.
+    private int mTextVersion;
+    private TextEdit mPendingEdit;
+    private IncrementalTranslator mIncrementalTranslator;
 
     private final TextWatcher mInputWatcher = new TextWatcher() {
 
@@ -84,6 +113,12 @@ public class TranslateActivity extends AppCompatActivity
         @Override
         public void onTextChanged(@NonNull CharSequence s, int start, int before, int count) {
 
+            // Record the edit, so that only the changed part of the text need be translated
+            TextEdit edit = new TextEdit(mTextVersion, mTextVersion + 1, start, before, count);
+            mTextVersion++;
+            mPendingEdit = (mPendingEdit == null) ? edit
+                    : TextEdit.merge(mPendingEdit, edit, s.length());
+
             // Remove any pending requests for translation, as they are now out of date
             mHandler.removeMessages(MSG_REQUEST_TRANSLATION);
 
@@ -100,6 +135,25 @@ public class TranslateActivity extends AppCompatActivity
 
     };
 
+    private final CodeDictionary.OnDataLoadedListener mLoadListener =
+            new CodeDictionary.OnDataLoadedListener() {
+
+        @Override
+        public void onDataLoaded(boolean useTraditional, boolean success) {
+
+            if(!success) {
+                Log.e(TAG, "Dictionary data could not be loaded.");
+                return;
+            }
+
+            // Called on a loader thread, so hand off to the main thread
+            int arg1 = useTraditional ? 1 : 0;
+            mHandler.sendMessage(mHandler.obtainMessage(MSG_DICTIONARY_LOADED, arg1, 0));
+
+        }
+
+    };
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
 
@@ -110,10 +164,6 @@ public class TranslateActivity extends AppCompatActivity
         Toolbar myToolbar = (Toolbar) findViewById(R.id.main_toolbar);
         setSupportActionBar(myToolbar);
 
-        // Set up dictionary used for translation
-        mDictionary = new CodeDictionary(getResources());
-        mDictionary.loadAllData();
-
         // Add a TextWatcher to this Activity's main EditText, allowing us to detect when the user
         // stops typing
         mInputText = (EditText) findViewById(R.id.txt_input);
@@ -134,12 +184,24 @@ public class TranslateActivity extends AppCompatActivity
                         break;
                     }
 
-                    case MSG_TRANSLATE_SUCCESS: {
+                    case MSG_TRANSLATE_SUCCESS:
+                    case MSG_TRANSLATE_PARTIAL: {
+
+                        // Drop results of requests which have since been superseded
+                        if(!mScheduler.isCurrent(msg.arg1))
+                            break;
+
                         String text = (String) msg.obj;
                         mOutputText.setText(text);
                         break;
                     }
 
+                    case MSG_DICTIONARY_LOADED: {
+                        if(mTranslationPending && mDictionary.isLoaded(mUseTraditional))
+                            requestTranslation(mInputText.getText().toString());
+                        break;
+                    }
+
                     default:
                         super.handleMessage(msg);
                         break;
@@ -150,6 +212,18 @@ public class TranslateActivity extends AppCompatActivity
 
         };
 
+        // Set up dictionary used for translation. The dictionary is shared across the app, so
+        // data loaded by a previous instance of this activity is reused. Only the character set
+        // selected by the user is loaded, on a background thread, once onResume has read the
+        // user's preference. Any translation requested before then is held until the needed
+        // character set is ready.
+        mDictionaryHolder = ((DianmaApplication) getApplication()).getDictionaryHolder();
+        mDictionary = mDictionaryHolder.acquire();
+
+        // Translations are cached across the app, so switching modes or character sets back and
+        // forth, or recreating this activity, does not translate the same text again
+        mTranslationCache = ((DianmaApplication) getApplication()).getTranslationCache();
+
         // Restore the last used translation mode, defaulting to HAN_TO_TELE
         SharedPreferences sharedPrefs = getPreferences(Context.MODE_PRIVATE);
         mTranslateMode = sharedPrefs.getInt(KEY_TRANSLATE_MODE, TranslateMode.HAN_TO_TELE);
@@ -157,7 +231,18 @@ public class TranslateActivity extends AppCompatActivity
         // Default to simplified characters. The user's preference will be checked in onResume.
         mUseTraditional = false;
 
-        mExecutor = Executors.newSingleThreadExecutor();
+        mScheduler = new TranslateScheduler();
+
+        // On multi-core devices, very long texts are divided between the scheduler's thread and a
+        // pool of workers
+        int processors = Runtime.getRuntime().availableProcessors();
+        ParallelTranslator parallelTranslator = null;
+        if(processors > 1) {
+            mWorkerPool = Executors.newFixedThreadPool(processors - 1);
+            parallelTranslator = new ParallelTranslator(mWorkerPool,
+                    ParallelTranslator.DEFAULT_THRESHOLD, processors);
+        }
+        mIncrementalTranslator = new IncrementalTranslator(parallelTranslator);
 
         SwitcherView modeSwitcher = (SwitcherView) findViewById(R.id.langset_toolbar);
         modeSwitcher.setOnModeChangeListener(this);
@@ -233,6 +318,11 @@ public class TranslateActivity extends AppCompatActivity
 
         }
 
+        // Start loading the selected character set, so it is likely ready by the time the user
+        // requests a translation
+        if(!mDictionary.isLoaded(mUseTraditional))
+            mDictionary.loadDataAsync(mUseTraditional, mLoadListener);
+
         if(needsRefresh) {
             Log.d(TAG, "Refreshing translation due to character set preference change.");
             requestTranslation(mInputText.getText().toString());
@@ -242,11 +332,34 @@ public class TranslateActivity extends AppCompatActivity
 
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+
+        // Release the character set the user has not selected. If the user's preference changes,
+        // it will be loaded again when the next translation is requested.
+        mDictionary.unloadData(!mUseTraditional);
+        super.onTrimMemory(level);
+
+    }
+
+    @Override
+    public void onLowMemory() {
+
+        mDictionary.unloadData(!mUseTraditional);
+        super.onLowMemory();
+
+    }
+
     @Override
     protected void onDestroy() {
 
         // This will interrupt any currently executing TranslateRunnables
-        mExecutor.shutdownNow();
+        mScheduler.shutdown();
+        if(mWorkerPool != null)
+            mWorkerPool.shutdownNow();
+        Log.d(TAG, mTranslationCache.toString());
+        mHandler.removeCallbacksAndMessages(null);
+        mDictionaryHolder.release();
         super.onDestroy();
 
     }
@@ -321,12 +434,37 @@ public class TranslateActivity extends AppCompatActivity
     private void requestTranslation(@NonNull final String inputText) {
 
         // Ignore translation requests if the app is shutting down
-        if(mExecutor.isShutdown())
+        if(mScheduler.isShutdown())
+            return;
+
+        // Whatever was requested before is now out of date, including any result on its way
+        final int sequence = mScheduler.supersede();
+
+        // Take a snapshot of the loaded data, so that unloading the other character set cannot
+        // affect the translation once it has started
+        final CodeTable table = mDictionary.getTable();
+
+        // Hold on to the latest request until the needed character set has been loaded
+        if(!table.hasCharacterSet(mUseTraditional)) {
+            Log.d(TAG, "Deferring translation until dictionary data is loaded.");
+            mTranslationPending = true;
+            mDictionary.loadDataAsync(mUseTraditional, mLoadListener);
             return;
+        }
+
+        mTranslationPending = false;
+
+        // The input text must be the latest version, which the pending edits lead to. Should this
+        // request be superseded before it runs, its edits are recovered by comparing texts.
+        TextEdit edit = mPendingEdit;
+        mPendingEdit = null;
 
-        Runnable runnable = new TranslateRunnable(mHandler, mDictionary, inputText, mTranslateMode,
-                mUseTraditional);
-        mExecutor.submit(runnable);
+        TranslateRunnable runnable = new TranslateRunnable(mHandler, table, inputText,
+                mTranslateMode, mUseTraditional, mIncrementalTranslator, mTextVersion, edit,
+                sequence);
+        runnable.setPartialResults(PARTIAL_RESULT_SIZE, PARTIAL_RESULT_INTERVAL);
+        runnable.setCache(mTranslationCache);
+        mScheduler.submit(runnable);
 
     }
 
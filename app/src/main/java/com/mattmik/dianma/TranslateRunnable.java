@@ -21,192 +21,125 @@ package com.mattmik.dianma;
 import android.os.Handler;
 import android.os.Message;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 
-import com.mattmik.dianma.tokenizer.CodepointTokenizer;
-import com.mattmik.dianma.tokenizer.NumberTokenizer;
-import com.mattmik.dianma.tokenizer.Tokenizer;
-
-import java.util.Locale;
-
 /**
  * Performs translation from Chinese characters to telephony codes, or vice-versa.
  *
  * Translated result text will be reported back to a given {@link Handler} inside a {@link Message}
- * with value {@link TranslateActivity#MSG_TRANSLATE_SUCCESS}.
+ * with value {@link TranslateActivity#MSG_TRANSLATE_SUCCESS}, whose arg1 is the request's sequence
+ * number. Nothing is reported if the thread is interrupted before translation completes.
+ *
+ * If enabled by {@link #setPartialResults(int, long)}, the output of a long translation is also
+ * reported while it is in progress, with value {@link TranslateActivity#MSG_TRANSLATE_PARTIAL}.
+ *
+ * The translation itself is performed by a {@link TranslateTask}; this class only delivers its
+ * results to the main thread.
  */
-public class TranslateRunnable implements Runnable {
+public class TranslateRunnable implements Runnable, TranslateTask.Callback {
 
     private static final String TAG = "TranslateRunnable";
 
     private final Handler mResponseHandler;
-    private final CodeDictionary mDictionary;
-    private final String mInputText;
-    private final int mTranslateMode;
-    private final boolean mUseTraditional;
+    private final int mSequence;
+    private final TranslateTask mTask;
 
     /**
      * Constructs a new TranslateRunnable.
      *
      * @param responseHandler the Handler that will receive the result
-     * @param dictionary      the CodeDictionary used for translation
+     * @param table           the CodeTable used for translation, which must hold the
+     *                        selected character set
      * @param inputText       the input string to be translated
      * @param translateMode   the translation mode. See {@link TranslateMode}.
      * @param useTraditional  true if translation should use traditional
      *                        characters, false if translation should use
      *                        simplified characters
      */
-    public TranslateRunnable(@NonNull Handler responseHandler, @NonNull CodeDictionary dictionary,
+    public TranslateRunnable(@NonNull Handler responseHandler, @NonNull CodeTable table,
                              @NonNull String inputText, int translateMode, boolean useTraditional) {
-        mResponseHandler = responseHandler;
-        mDictionary = dictionary;
-        mInputText = inputText;
-        mTranslateMode = translateMode;
-        mUseTraditional = useTraditional;
-    }
-
-    @Override
-    public void run() {
-
-        final Tokenizer tokenizer = makeTokenizer();
-        final StringBuilder resultBuilder = new StringBuilder();
-
-        while(tokenizer.hasMoreTokens() && !Thread.currentThread().isInterrupted())
-            stepTranslation(tokenizer, resultBuilder);
-
-        sendResult(resultBuilder);
-
+        this(responseHandler, table, inputText, translateMode, useTraditional, null, 0, null, 0);
     }
 
     /**
-     * Creates a tokenizer for the given input text and translation mode.
-     * @return a Tokenizer
+     * Constructs a new TranslateRunnable which brings the translation held by an
+     * {@link IncrementalTranslator} up to date, rather than translating the whole text.
+     *
+     * @param responseHandler      the Handler that will receive the result
+     * @param table                the CodeTable used for translation, which must hold the
+     *                             selected character set
+     * @param inputText            the input string to be translated
+     * @param translateMode        the translation mode. See {@link TranslateMode}.
+     * @param useTraditional       true if translation should use traditional
+     *                             characters, false if translation should use
+     *                             simplified characters
+     * @param incrementalTranslator the translator holding the previous translation, which must
+     *                             only be used by one thread at a time, or null to translate
+     *                             the whole text
+     * @param version              the version of the input string
+     * @param edit                 the change since the previous version, or null if it is unknown
+     * @param sequence             the sequence number reported with the result. See
+     *                             {@link TranslateScheduler}.
      */
-    @NonNull
-    private Tokenizer makeTokenizer() {
-
-        final Tokenizer tokenizer;
-
-        switch(mTranslateMode) {
-
-            case TranslateMode.HAN_TO_TELE:
-                tokenizer = new CodepointTokenizer(mInputText);
-                break;
-
-            case TranslateMode.TELE_TO_HAN:
-                tokenizer = new NumberTokenizer(mInputText);
-                break;
-
-            default:
-                throw new IllegalStateException("Translation mode is set to an invalid value.");
-
-        }
-
-        return tokenizer;
-
+    public TranslateRunnable(@NonNull Handler responseHandler, @NonNull CodeTable table,
+                             @NonNull String inputText, int translateMode, boolean useTraditional,
+                             @Nullable IncrementalTranslator incrementalTranslator, int version,
+                             @Nullable TextEdit edit, int sequence) {
+        mResponseHandler = responseHandler;
+        mSequence = sequence;
+        mTask = new TranslateTask(table, inputText, translateMode, useTraditional, this);
+        mTask.setIncrementalTranslator(incrementalTranslator, version, edit);
     }
 
     /**
-     * Performs a single unit of translation work. If translation has already finished, this is a
-     * no-op.
+     * Enables partial results. See {@link TranslateTask#setPartialResults(int, long)}.
+     *
+     * @param size           the length of the first partial result
+     * @param intervalMillis the longest time before the first partial result, in milliseconds
      */
-    private void stepTranslation(@NonNull final Tokenizer tokenizer,
-                                 @NonNull final StringBuilder resultBuilder) {
-
-        if(!tokenizer.hasMoreTokens())
-            return;
-
-        switch(mTranslateMode) {
-
-            case TranslateMode.HAN_TO_TELE:
-                stepHanToTele(tokenizer, resultBuilder);
-                break;
-
-            case TranslateMode.TELE_TO_HAN:
-                stepTeleToHan(tokenizer, resultBuilder);
-                break;
-
-            default:
-                throw new IllegalStateException("Translation mode is set to an invalid value.");
-
-        }
-
+    public void setPartialResults(int size, long intervalMillis) {
+        mTask.setPartialResults(size, intervalMillis);
     }
 
     /**
-     * Steps conversion of a string of Chinese characters into telegraph code.
+     * Sets the cache which is checked before translating, and which receives the result. See
+     * {@link TranslateTask#setCache(TranslationCache)}.
+     *
+     * @param cache the cache, or null to always translate
      */
-    private void stepHanToTele(@NonNull final Tokenizer tokenizer,
-                               @NonNull final StringBuilder resultBuilder) {
-
-        int codepoint = (Integer) tokenizer.nextToken();
-
-        Integer tele = (!mUseTraditional) ? mDictionary.simplifiedToTelegraph(codepoint) :
-                mDictionary.traditionalToTelegraph(codepoint);
-
-        if(tele == null) {
-
-            // If dictionary returned null, just append the original character code
-            resultBuilder.appendCodePoint(codepoint);
-
-        } else {
-
-            // Append telephony code as a four digit string of numbers
-            String formatted = String.format(Locale.US, "%04d", tele);
-            resultBuilder.append(formatted);
-            resultBuilder.append(' ');
-
-        }
+    public void setCache(@Nullable TranslationCache cache) {
+        mTask.setCache(cache);
+    }
 
+    @Override
+    public void run() {
+        mTask.run();
     }
 
     /**
-     * Steps conversion of a string of telegraph codes into Chinese characters.
+     * Sends the translated result text to the main thread using the response handler.
      */
-    private void stepTeleToHan(@NonNull final Tokenizer tokenizer,
-                               @NonNull final StringBuilder resultBuilder) {
-
-        String token = (String) tokenizer.nextToken();
-
-        try {
-
-            int value = Integer.parseInt(token);
-
-            Integer codepoint = (!mUseTraditional) ? mDictionary.telegraphToSimplified(value) :
-                    mDictionary.telegraphToTraditional(value);
-
-            if(codepoint == null) {
-
-                // This integer value does not correspond to a Chinese character, so just append the
-                // original token to the result string
-                resultBuilder.append(token);
-
-            } else {
-
-                // Append the corresponding Chinese character codepoint
-                resultBuilder.appendCodePoint(codepoint);
-
-            }
-
-        } catch(NumberFormatException e) {
+    @Override
+    public void onResult(@NonNull final String result) {
 
-            // Append this non-numeric token to the result string
-            resultBuilder.append(token);
+        Log.d(TAG, "Sending translated text to response handler.");
 
-        }
+        int what = TranslateActivity.MSG_TRANSLATE_SUCCESS;
+        Message msg = mResponseHandler.obtainMessage(what, mSequence, 0, result);
+        mResponseHandler.sendMessage(msg);
 
     }
 
     /**
-     * Sends the translated result text to the main thread using the response handler.
+     * Sends the output of a translation in progress to the main thread using the response
+     * handler.
      */
-    private void sendResult(@NonNull final StringBuilder resultBuilder) {
-
-        Log.d(TAG, "Sending translated text to response handler.");
+    @Override
+    public void onPartialResult(@NonNull final String partialResult) {
 
-        int what = TranslateActivity.MSG_TRANSLATE_SUCCESS;
-        String result = resultBuilder.toString();
-        Message msg = mResponseHandler.obtainMessage(what, result);
+        int what = TranslateActivity.MSG_TRANSLATE_PARTIAL;
+        Message msg = mResponseHandler.obtainMessage(what, mSequence, 0, partialResult);
         mResponseHandler.sendMessage(msg);
 
     }
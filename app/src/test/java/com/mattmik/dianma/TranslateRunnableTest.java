@@ -32,9 +32,12 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -43,143 +46,186 @@ import static org.mockito.Mockito.when;
 @Config(manifest = Config.NONE, sdk = 23)
 public class TranslateRunnableTest {
 
-    @Mock
-    private Handler mHandler;
+    private static final String LETTERS = "Helowrd";
+    private static final int[] SIMPLIFIED_CODES = { 3443, 2015, 6073, 826, 7001, 8638, 4407 };
+    private static final int[] TRADITIONAL_CODES = { 6600, 3567, 1154, 6480, 5671, 9346, 22 };
 
     @Mock
-    private CodeDictionary mDictionary;
+    private Handler mHandler;
 
     @Captor
     private ArgumentCaptor<String> mResultCaptor;
 
+    private CodeTable mTable;
+
     @Before
     public void setUp() {
+
         MockitoAnnotations.initMocks(this);
+
+        CodeTable.Builder builder = new CodeTable.Builder();
+        for(int i = 0; i < LETTERS.length(); i++) {
+            builder.put(false, LETTERS.charAt(i), SIMPLIFIED_CODES[i]);
+            builder.put(true, LETTERS.charAt(i), TRADITIONAL_CODES[i]);
+        }
+        mTable = builder.build();
+
     }
 
     @Test
     public void testSimplifiedToTelegraph() {
 
-        Message responseMessage = Message.obtain();
-        when(mHandler.obtainMessage(anyInt(), any())).thenReturn(responseMessage);
-
-        when(mDictionary.simplifiedToTelegraph(anyInt()))
-                .thenReturn(3443)
-                .thenReturn(2015)
-                .thenReturn(6073)
-                .thenReturn(3474)
-                .thenReturn(826)
-                .thenReturn(null)
-                .thenReturn(null)
-                .thenReturn(7001)
-                .thenReturn(2105)
-                .thenReturn(8638)
-                .thenReturn(1)
-                .thenReturn(4407)
-                .thenReturn(null);
-
-        new TranslateRunnable(mHandler, mDictionary, "Hello, world!",
-                TranslateMode.HAN_TO_TELE, false).run();
-
-        verify(mDictionary, times(13)).simplifiedToTelegraph(anyInt());
-        verify(mHandler).obtainMessage(eq(TranslateActivity.MSG_TRANSLATE_SUCCESS),
-                mResultCaptor.capture());
-        verify(mHandler).sendMessage(responseMessage);
-        assertEquals("3443 2015 6073 3474 0826 , 7001 2105 8638 0001 4407 !",
-                mResultCaptor.getValue());
+        String result = translate("Hello, world!", TranslateMode.HAN_TO_TELE, false);
+
+        assertEquals("3443 2015 6073 6073 0826 , 7001 0826 8638 6073 4407 !", result);
 
     }
 
     @Test
     public void testTraditionalToTelegraph() {
 
+        String result = translate("Hello, world!", TranslateMode.HAN_TO_TELE, true);
+
+        assertEquals("6600 3567 1154 1154 6480 , 5671 6480 9346 1154 0022 !", result);
+
+    }
+
+    @Test
+    public void testTelegraphToSimplified() {
+
+        String result = translate("3443 2015 6073 6073 0826, 7001 0826 8638 6073 4407!",
+                TranslateMode.TELE_TO_HAN, false);
+
+        assertEquals("Hello,world!", result);
+
+    }
+
+    @Test
+    public void testTelegraphToTraditional() {
+
+        String result = translate("6600 3567 1154 1154 6480, 5671 6480 9346 1154 0022!",
+                TranslateMode.TELE_TO_HAN, true);
+
+        assertEquals("Hello,world!", result);
+
+    }
+
+    @Test
+    public void testUnmappedTelegraph() {
+
+        String result = translate("3443 9999 12345", TranslateMode.TELE_TO_HAN, false);
+
+        assertEquals("H999912345", result);
+
+    }
+
+    @Test
+    public void testIncremental() {
+
+        IncrementalTranslator incrementalTranslator = new IncrementalTranslator();
         Message responseMessage = Message.obtain();
-        when(mHandler.obtainMessage(anyInt(), any())).thenReturn(responseMessage);
-
-        when(mDictionary.traditionalToTelegraph(anyInt()))
-                .thenReturn(6600)
-                .thenReturn(3567)
-                .thenReturn(1154)
-                .thenReturn(6349)
-                .thenReturn(6480)
-                .thenReturn(null)
-                .thenReturn(null)
-                .thenReturn(5671)
-                .thenReturn(3536)
-                .thenReturn(9346)
-                .thenReturn(3231)
-                .thenReturn(22)
-                .thenReturn(null);
-
-        new TranslateRunnable(mHandler, mDictionary, "Hello, world!",
-                TranslateMode.HAN_TO_TELE, true).run();
-
-        verify(mDictionary, times(13)).traditionalToTelegraph(anyInt());
-        verify(mHandler).obtainMessage(eq(TranslateActivity.MSG_TRANSLATE_SUCCESS),
-                mResultCaptor.capture());
-        verify(mHandler).sendMessage(responseMessage);
-        assertEquals("6600 3567 1154 6349 6480 , 5671 3536 9346 3231 0022 !",
+        when(mHandler.obtainMessage(anyInt(), anyInt(), anyInt(), any()))
+                .thenReturn(responseMessage);
+
+        new TranslateRunnable(mHandler, mTable, "Hello", TranslateMode.HAN_TO_TELE, false,
+                incrementalTranslator, 0, null, 1).run();
+        new TranslateRunnable(mHandler, mTable, "Hello, world", TranslateMode.HAN_TO_TELE, false,
+                incrementalTranslator, 1, new TextEdit(0, 1, 5, 0, 7), 2).run();
+
+        verify(mHandler).obtainMessage(eq(TranslateActivity.MSG_TRANSLATE_SUCCESS), eq(1),
+                anyInt(), any());
+        verify(mHandler).obtainMessage(eq(TranslateActivity.MSG_TRANSLATE_SUCCESS), eq(2),
+                anyInt(), mResultCaptor.capture());
+        assertEquals("3443 2015 6073 6073 0826 , 7001 0826 8638 6073 4407 ",
                 mResultCaptor.getValue());
+        assertEquals(8, incrementalTranslator.getLastTranslatedLength());
 
     }
 
     @Test
-    public void testTelegraphToSimplified() {
+    public void testPartialResults() {
+
+        StringBuilder input = new StringBuilder();
+        for(int i = 0; i < 1000; i++)
+            input.append("Hello");
 
         Message responseMessage = Message.obtain();
-        when(mHandler.obtainMessage(anyInt(), any())).thenReturn(responseMessage);
-
-        when(mDictionary.telegraphToSimplified(anyInt()))
-                .thenReturn(72)
-                .thenReturn(101)
-                .thenReturn(108)
-                .thenReturn(108)
-                .thenReturn(111)
-                .thenReturn(119)
-                .thenReturn(111)
-                .thenReturn(114)
-                .thenReturn(108)
-                .thenReturn(100);
-
-        new TranslateRunnable(mHandler, mDictionary,
-                "1109 3448 8419 6305 3414, 3447 0696 6153 7623 5822!",
-                TranslateMode.TELE_TO_HAN, false).run();
-
-        verify(mDictionary, times(10)).telegraphToSimplified(anyInt());
-        verify(mHandler).obtainMessage(eq(TranslateActivity.MSG_TRANSLATE_SUCCESS),
-                mResultCaptor.capture());
-        verify(mHandler).sendMessage(responseMessage);
-        assertEquals("Hello,world!", mResultCaptor.getValue());
+        when(mHandler.obtainMessage(anyInt(), anyInt(), anyInt(), any()))
+                .thenReturn(responseMessage);
+
+        TranslateRunnable runnable = new TranslateRunnable(mHandler, mTable, input.toString(),
+                TranslateMode.HAN_TO_TELE, false);
+        runnable.setPartialResults(1, Long.MAX_VALUE / 4000000);
+        runnable.run();
+
+        verify(mHandler, atLeastOnce()).obtainMessage(eq(TranslateActivity.MSG_TRANSLATE_PARTIAL),
+                eq(0), anyInt(), mResultCaptor.capture());
+        assertTrue(mResultCaptor.getValue().startsWith("3443 2015 6073 6073 0826 "));
+        verify(mHandler).obtainMessage(eq(TranslateActivity.MSG_TRANSLATE_SUCCESS), eq(0),
+                anyInt(), any());
 
     }
 
     @Test
-    public void testTelegraphToTraditional() {
+    public void testCache() {
+
+        TranslationCache cache = new TranslationCache(TranslationCache.DEFAULT_MAX_SIZE);
+        cache.put("Hello", TranslateMode.HAN_TO_TELE, false, "cached");
 
         Message responseMessage = Message.obtain();
-        when(mHandler.obtainMessage(anyInt(), any())).thenReturn(responseMessage);
-
-        when(mDictionary.telegraphToTraditional(anyInt()))
-                .thenReturn(72)
-                .thenReturn(101)
-                .thenReturn(108)
-                .thenReturn(108)
-                .thenReturn(111)
-                .thenReturn(119)
-                .thenReturn(111)
-                .thenReturn(114)
-                .thenReturn(108)
-                .thenReturn(100);
-
-        new TranslateRunnable(mHandler, mDictionary,
-                "2986 9255 6157 4187 0317, 5029 0001 8005 8766 3086!",
-                TranslateMode.TELE_TO_HAN, true).run();
-
-        verify(mDictionary, times(10)).telegraphToTraditional(anyInt());
-        verify(mHandler).obtainMessage(eq(TranslateActivity.MSG_TRANSLATE_SUCCESS),
-                mResultCaptor.capture());
+        when(mHandler.obtainMessage(anyInt(), anyInt(), anyInt(), any()))
+                .thenReturn(responseMessage);
+
+        TranslateRunnable runnable = new TranslateRunnable(mHandler, mTable, "Hello",
+                TranslateMode.HAN_TO_TELE, false);
+        runnable.setCache(cache);
+        runnable.run();
+
+        runnable = new TranslateRunnable(mHandler, mTable, "Hello", TranslateMode.HAN_TO_TELE,
+                true);
+        runnable.setCache(cache);
+        runnable.run();
+
+        verify(mHandler, times(2)).obtainMessage(eq(TranslateActivity.MSG_TRANSLATE_SUCCESS),
+                eq(0), anyInt(), mResultCaptor.capture());
+        assertEquals("cached", mResultCaptor.getAllValues().get(0));
+        assertEquals("6600 3567 1154 1154 6480 ", mResultCaptor.getAllValues().get(1));
+        assertEquals("6600 3567 1154 1154 6480 ", cache.get("Hello", TranslateMode.HAN_TO_TELE,
+                true));
+
+    }
+
+    @Test
+    public void testInterrupted() {
+
+        Thread.currentThread().interrupt();
+        try {
+            new TranslateRunnable(mHandler, mTable, "Hello", TranslateMode.HAN_TO_TELE, false)
+                    .run();
+        } finally {
+            Thread.interrupted();
+        }
+
+        verify(mHandler, never()).sendMessage(any(Message.class));
+
+    }
+
+    /**
+     * Runs a TranslateRunnable against the test table and returns the text it reports.
+     */
+    private String translate(String inputText, int translateMode, boolean useTraditional) {
+
+        Message responseMessage = Message.obtain();
+        when(mHandler.obtainMessage(anyInt(), anyInt(), anyInt(), any()))
+                .thenReturn(responseMessage);
+
+        new TranslateRunnable(mHandler, mTable, inputText, translateMode, useTraditional).run();
+
+        verify(mHandler).obtainMessage(eq(TranslateActivity.MSG_TRANSLATE_SUCCESS), eq(0),
+                anyInt(), mResultCaptor.capture());
         verify(mHandler).sendMessage(responseMessage);
-        assertEquals("Hello,world!", mResultCaptor.getValue());
+
+        return mResultCaptor.getValue();
 
     }
 
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.benchmark;
+
+import com.mattmik.dianma.BatchTranslator;
+import com.mattmik.dianma.CodeTable;
+import com.mattmik.dianma.TranslateMode;
+import com.mattmik.dianma.Translator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the translation of many short texts, such as names and addresses, one at a time and
+ * with a {@link BatchTranslator}. Results are reported per text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BatchTranslateBenchmark {
+
+    private static final int COUNT = 16384;
+
+    @Param({"1", "2", "4"})
+    public int parallelism;
+
+    @Param({"HAN", "MIXED"})
+    public InputMix mix;
+
+    private CodeTable mTable;
+    private List<String> mTexts;
+    private ExecutorService mExecutor;
+    private BatchTranslator mBatchTranslator;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        mTable = BenchmarkData.loadDictionary().getTable();
+
+        // Texts of 2 to 24 chars, cut from a longer generated text
+        String text = BenchmarkData.generate(mix, COUNT * 24, TranslateMode.HAN_TO_TELE, mTable);
+        Random random = new Random(COUNT);
+        mTexts = new ArrayList<>(COUNT);
+        for(int i = 0; i < COUNT; i++) {
+            int start = random.nextInt(text.length() - 24);
+            mTexts.add(text.substring(start, start + 2 + random.nextInt(23)));
+        }
+
+        mExecutor = Executors.newFixedThreadPool(parallelism);
+        mBatchTranslator = new BatchTranslator(mExecutor, parallelism);
+
+    }
+
+    @TearDown
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void singleTranslations(Blackhole blackhole) {
+
+        for(String text : mTexts)
+            blackhole.consume(new Translator(mTable, TranslateMode.HAN_TO_TELE, false)
+                    .translate(text));
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public List<String> batchTranslation() throws InterruptedException {
+        return mBatchTranslator.translate(mTable, TranslateMode.HAN_TO_TELE, false, mTexts);
+    }
+
+}
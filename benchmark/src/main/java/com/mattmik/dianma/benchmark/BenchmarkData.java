@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.benchmark;
+
+import com.mattmik.dianma.CodeDictionary;
+import com.mattmik.dianma.CodeTable;
+import com.mattmik.dianma.DictionarySource;
+import com.mattmik.dianma.TranslateMode;
+import com.mattmik.dianma.Translator;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Loads the code tables and generates the input text used by every benchmark.
+ * <p>
+ * The <code>jmh</code> Gradle task points the system properties {@link #PROPERTY_SOURCE_DIR} and
+ * {@link #PROPERTY_COMPILED_DIR} at the app's plain text code tables and at the binary tables
+ * compiled from them.
+ */
+final class BenchmarkData {
+
+    /** The system property naming the directory of plain text code tables. */
+    static final String PROPERTY_SOURCE_DIR = "dictionary.sourceDir";
+
+    /** The system property naming the directory of compiled code tables. */
+    static final String PROPERTY_COMPILED_DIR = "dictionary.compiledDir";
+
+    // Generated input is the same from run to run, so that results can be compared
+    private static final long SEED = 0x5EED;
+
+    // The ASCII words making up the Latin part of mixed input
+    private static final String[] WORDS = {
+            "the", "telegraph", "code", "of", "is", "a", "and", "Beijing", "to", "station",
+            "message", "in", "received", "for", "on", "reply"
+    };
+
+    // Private constructor to prevent instantiation
+    private BenchmarkData() {
+        // Empty!
+    }
+
+    /**
+     * Reads a code table from the app's dictionary directories.
+     * @param compiled true to read the compiled code table, false to read the plain text one
+     * @param useTraditional true to read the traditional character set, false to read the
+     *                       simplified character set
+     * @return the contents of the code table
+     * @throws IOException if the code table could not be read
+     */
+    static byte[] readCodeTable(final boolean compiled, final boolean useTraditional)
+            throws IOException {
+
+        String property = compiled ? PROPERTY_COMPILED_DIR : PROPERTY_SOURCE_DIR;
+        String dir = System.getProperty(property);
+        if(dir == null)
+            throw new IllegalStateException("System property " + property + " is not set.");
+
+        File file = new File(dir, useTraditional ? "traditional_codes" : "simplified_codes");
+        byte[] data = new byte[(int) file.length()];
+
+        InputStream stream = new FileInputStream(file);
+        try {
+
+            int length = 0;
+            while(length < data.length) {
+                int read = stream.read(data, length, data.length - length);
+                if(read < 0)
+                    throw new IOException("Unexpected end of " + file);
+                length += read;
+            }
+
+        } finally {
+            stream.close();
+        }
+
+        return data;
+
+    }
+
+    /**
+     * Returns a DictionarySource which reads code tables held in memory, so that loading them
+     * does not include any file I/O.
+     * @param simplified the simplified code table
+     * @param traditional the traditional code table
+     * @return the DictionarySource
+     */
+    static DictionarySource createSource(final byte[] simplified, final byte[] traditional) {
+
+        return new DictionarySource() {
+
+            @Override
+            public InputStream open(boolean useTraditional) {
+                return new ByteArrayInputStream(useTraditional ? traditional : simplified);
+            }
+
+        };
+
+    }
+
+    /**
+     * Loads both character sets from the compiled code tables.
+     * @return a CodeDictionary holding both character sets
+     * @throws IOException if a code table could not be read
+     */
+    static CodeDictionary loadDictionary() throws IOException {
+
+        CodeDictionary dictionary = new CodeDictionary(
+                createSource(readCodeTable(true, false), readCodeTable(true, true)));
+        if(!dictionary.loadAllData())
+            throw new IOException("Failed to load dictionary data.");
+
+        return dictionary;
+
+    }
+
+    /**
+     * Returns every codepoint which has a telegraph code in a single character set.
+     * @param table the table holding the character set
+     * @param useTraditional true for the traditional character set, false for simplified
+     * @return the mapped codepoints, in ascending order
+     */
+    static int[] getMappedCodepoints(final CodeTable table, final boolean useTraditional) {
+
+        int[] codepoints = new int[Character.MAX_VALUE + 1];
+        int count = 0;
+
+        for(int c = 0; c <= Character.MAX_VALUE; c++) {
+            if(table.hanToTelegraph(c, useTraditional) != CodeTable.NOT_FOUND)
+                codepoints[count++] = c;
+        }
+
+        return Arrays.copyOf(codepoints, count);
+
+    }
+
+    /**
+     * Generates input text for translation from Chinese characters to telegraph code.
+     * @param mix the kind of text to generate
+     * @param length the length of the text, in chars
+     * @param table the table holding the simplified character set
+     * @return the generated text
+     */
+    static String generateHan(final InputMix mix, final int length, final CodeTable table) {
+
+        int[] han = getMappedCodepoints(table, false);
+        Random random = new Random(SEED);
+        StringBuilder builder = new StringBuilder(length + 16);
+
+        while(builder.length() < length) {
+
+            switch(mix) {
+
+                case HAN:
+                    builder.appendCodePoint(han[random.nextInt(han.length)]);
+                    if(random.nextInt(20) == 0)
+                        builder.append('。');
+                    break;
+
+                case MIXED:
+                    if(random.nextInt(8) == 0) {
+                        builder.appendCodePoint(han[random.nextInt(han.length)]);
+                        builder.appendCodePoint(han[random.nextInt(han.length)]);
+                    } else {
+                        builder.append(WORDS[random.nextInt(WORDS.length)]);
+                    }
+                    builder.append(random.nextInt(10) == 0 ? ". " : " ");
+                    break;
+
+                case DIGITS:
+                    builder.append(random.nextInt(100000));
+                    builder.appendCodePoint(han[random.nextInt(han.length)]);
+                    break;
+
+            }
+
+        }
+
+        builder.setLength(length);
+        return builder.toString();
+
+    }
+
+    /**
+     * Generates input text for translation in the given mode. Input for translation from
+     * telegraph code to Chinese characters is the translation of generated Chinese text, so that
+     * it holds the same mix of text.
+     * @param mix the kind of text to generate
+     * @param length the length of the text, in chars
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param table the table holding the simplified character set
+     * @return the generated text
+     */
+    static String generate(final InputMix mix, final int length, final int translateMode,
+                           final CodeTable table) {
+
+        if(translateMode == TranslateMode.HAN_TO_TELE)
+            return generateHan(mix, length, table);
+
+        String tele = new Translator(table, TranslateMode.HAN_TO_TELE, false)
+                .translate(generateHan(mix, length, table));
+        return tele.substring(0, length);
+
+    }
+
+}
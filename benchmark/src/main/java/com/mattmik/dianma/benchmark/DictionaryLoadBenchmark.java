@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.benchmark;
+
+import com.mattmik.dianma.CodeDictionary;
+import com.mattmik.dianma.CodeTable;
+import com.mattmik.dianma.DictionarySource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time taken to load the dictionary, from both the plain text and the compiled code
+ * tables. The code tables are held in memory, so that no file I/O is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DictionaryLoadBenchmark {
+
+    @Param({"true", "false"})
+    public boolean compiled;
+
+    private DictionarySource mSource;
+
+    @Setup
+    public void setUp() throws IOException {
+        mSource = BenchmarkData.createSource(BenchmarkData.readCodeTable(compiled, false),
+                BenchmarkData.readCodeTable(compiled, true));
+    }
+
+    @Benchmark
+    public CodeTable loadData() {
+
+        CodeDictionary dictionary = new CodeDictionary(mSource);
+        dictionary.loadData(false);
+        return dictionary.getTable();
+
+    }
+
+    @Benchmark
+    public CodeTable loadAllData() {
+
+        CodeDictionary dictionary = new CodeDictionary(mSource);
+        dictionary.loadAllData();
+        return dictionary.getTable();
+
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.benchmark;
+
+/**
+ * The kinds of input text which translation is measured with. See
+ * {@link BenchmarkData#generateHan(InputMix, int, com.mattmik.dianma.CodeTable)}.
+ */
+public enum InputMix {
+
+    /** Chinese characters only, such as the body of a Chinese document. */
+    HAN,
+
+    /** Mostly English words and punctuation, with a few Chinese characters. */
+    MIXED,
+
+    /** Chinese characters between runs of digits, such as dates, prices and addresses. */
+    DIGITS
+
+}
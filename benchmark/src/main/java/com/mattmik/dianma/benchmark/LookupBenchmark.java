@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.benchmark;
+
+import com.mattmik.dianma.CodeDictionary;
+import com.mattmik.dianma.CodeTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures single and bulk lookups between codepoints and telegraph codes. Each invocation looks
+ * up {@link #COUNT} random entries, of which roughly one in ten has no mapping, and results are
+ * reported per lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LookupBenchmark {
+
+    private static final int COUNT = 1024;
+
+    private CodeDictionary mDictionary;
+    private CodeTable mTable;
+
+    private final int[] mCodepoints = new int[COUNT];
+    private final int[] mTelegraphs = new int[COUNT];
+    private final int[] mOut = new int[COUNT];
+
+    @Setup
+    public void setUp() throws IOException {
+
+        mDictionary = BenchmarkData.loadDictionary();
+        mTable = mDictionary.getTable();
+
+        int[] han = BenchmarkData.getMappedCodepoints(mTable, false);
+        Random random = new Random(COUNT);
+
+        for(int i = 0; i < COUNT; i++) {
+
+            if(random.nextInt(10) == 0) {
+                mCodepoints[i] = 'A' + random.nextInt(26);
+                mTelegraphs[i] = random.nextInt(10000);
+            } else {
+                mCodepoints[i] = han[random.nextInt(han.length)];
+                mTelegraphs[i] = mTable.hanToTelegraph(mCodepoints[i], false);
+            }
+
+        }
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public int hanToTelegraph() {
+
+        int sum = 0;
+        for(int i = 0; i < COUNT; i++)
+            sum += mTable.hanToTelegraph(mCodepoints[i], false);
+
+        return sum;
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public int telegraphToHan() {
+
+        int sum = 0;
+        for(int i = 0; i < COUNT; i++)
+            sum += mTable.telegraphToHan(mTelegraphs[i], false);
+
+        return sum;
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public int dictionaryHanToTelegraph() {
+
+        int sum = 0;
+        for(int i = 0; i < COUNT; i++)
+            sum += mDictionary.hanToTelegraph(mCodepoints[i], false);
+
+        return sum;
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public int boxedHanToTelegraph() {
+
+        int found = 0;
+        for(int i = 0; i < COUNT; i++) {
+            if(mDictionary.simplifiedToTelegraph(mCodepoints[i]) != null)
+                found++;
+        }
+
+        return found;
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public int bulkHanToTelegraph() {
+        return mTable.hanToTelegraph(mCodepoints, 0, COUNT, mOut, false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public int bulkTelegraphToHan() {
+        return mTable.telegraphToHan(mTelegraphs, 0, COUNT, mOut, false);
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.benchmark;
+
+import com.mattmik.dianma.CodeTable;
+import com.mattmik.dianma.ParallelTranslator;
+import com.mattmik.dianma.TranslateMode;
+import com.mattmik.dianma.Translator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the length of text at which dividing it into chunks, as {@link ParallelTranslator}
+ * does, becomes faster than translating it on one thread. This is the measurement behind
+ * {@link ParallelTranslator#DEFAULT_THRESHOLD}, and it is only meaningful on a machine with at
+ * least as many cores as the parallelism being measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParallelTranslateBenchmark {
+
+    @Param({"1024", "4096", "16384", "32768", "65536", "262144"})
+    public int length;
+
+    @Param({"2", "4"})
+    public int parallelism;
+
+    @Param({"HAN", "MIXED"})
+    public InputMix mix;
+
+    private CodeTable mTable;
+    private String mText;
+    private ExecutorService mExecutor;
+    private ParallelTranslator mParallelTranslator;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        mTable = BenchmarkData.loadDictionary().getTable();
+        mText = BenchmarkData.generate(mix, length, TranslateMode.HAN_TO_TELE, mTable);
+
+        // A threshold of one divides every text, so both paths are measured at every length
+        mExecutor = Executors.newFixedThreadPool(parallelism - 1);
+        mParallelTranslator = new ParallelTranslator(mExecutor, 1, parallelism);
+
+    }
+
+    @TearDown
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public String serial() {
+        return new Translator(mTable, TranslateMode.HAN_TO_TELE, false).translate(mText);
+    }
+
+    @Benchmark
+    public String parallel() throws InterruptedException {
+        return mParallelTranslator.translate(mTable, TranslateMode.HAN_TO_TELE, false, mText);
+    }
+
+}
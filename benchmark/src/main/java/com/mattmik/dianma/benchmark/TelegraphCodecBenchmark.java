@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.benchmark;
+
+import com.mattmik.dianma.CodeTable;
+import com.mattmik.dianma.TranslateMode;
+import com.mattmik.dianma.Translator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-char cost of converting Chinese characters to telegraph codes and back over
+ * long texts. Run with {@code -prof gc} to see allocation per char. Telegraph code input is
+ * about 1 MB of ASCII: four-digit codes separated by spaces and commas.
+ * <p>
+ * The {@code Into} benchmarks translate into a reused builder, which measures the conversion
+ * itself: once the builder has grown, formatting codes allocates nothing. The other benchmarks
+ * use {@link Translator#translate(CharSequence)}, which also allocates the result String, and
+ * its pooled builder on first use.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TelegraphCodecBenchmark {
+
+    // The length of each input text, in chars
+    private static final int LENGTH = 1000 * 1000;
+
+    private Translator mHanToTele;
+    private String mHanInput;
+
+    private Translator mTeleToHan;
+    private String mTeleInput;
+    private StringBuilder mOutput;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        CodeTable table = BenchmarkData.loadDictionary().getTable();
+
+        mHanToTele = new Translator(table, TranslateMode.HAN_TO_TELE, false);
+        mHanInput = BenchmarkData.generateHan(InputMix.HAN, LENGTH, table);
+
+        mTeleToHan = new Translator(table, TranslateMode.TELE_TO_HAN, false);
+        mTeleInput = generateCodes(table);
+
+        mOutput = new StringBuilder();
+
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LENGTH)
+    public StringBuilder hanToTelegraphInto() {
+        return translateInto(mHanToTele, mHanInput);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LENGTH)
+    public String hanToTelegraph() {
+        return mHanToTele.translate(mHanInput);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LENGTH)
+    public StringBuilder telegraphToHanInto() {
+        return translateInto(mTeleToHan, mTeleInput);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LENGTH)
+    public String telegraphToHan() {
+        return mTeleToHan.translate(mTeleInput);
+    }
+
+    /**
+     * Generates text of mapped telegraph codes, each followed by a space or a comma.
+     */
+    private static String generateCodes(CodeTable table) {
+
+        int[] han = BenchmarkData.getMappedCodepoints(table, false);
+        Random random = new Random(LENGTH);
+        StringBuilder builder = new StringBuilder(LENGTH + 8);
+
+        while(builder.length() < LENGTH) {
+            int code = table.hanToTelegraph(han[random.nextInt(han.length)], false);
+            builder.append(String.format(Locale.US, "%04d", code));
+            builder.append(random.nextInt(4) == 0 ? ", " : " ");
+        }
+
+        builder.setLength(LENGTH);
+        return builder.toString();
+
+    }
+
+    /**
+     * Translates the given text into the reused builder.
+     */
+    private StringBuilder translateInto(Translator translator, String input) {
+
+        mOutput.setLength(0);
+        translator.translate(input, 0, input.length(), mOutput);
+        translator.finish(mOutput);
+        return mOutput;
+
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.benchmark;
+
+import com.mattmik.dianma.CodeTable;
+import com.mattmik.dianma.TranslateMode;
+import com.mattmik.dianma.tokenizer.CodepointSpanTokenizer;
+import com.mattmik.dianma.tokenizer.CodepointTokenizer;
+import com.mattmik.dianma.tokenizer.NumberSpanTokenizer;
+import com.mattmik.dianma.tokenizer.NumberTokenizer;
+import com.mattmik.dianma.tokenizer.SpanTokenizer;
+import com.mattmik.dianma.tokenizer.Tokenizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the tokenizers over a whole input text. The codepoint tokenizers are
+ * given text for translation to telegraph code, and the number tokenizers text for translation to
+ * Chinese characters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenizerBenchmark {
+
+    @Param({"64", "4096", "262144"})
+    public int size;
+
+    @Param({"HAN", "MIXED", "DIGITS"})
+    public InputMix mix;
+
+    private String mHanInput;
+    private String mTeleInput;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        CodeTable table = BenchmarkData.loadDictionary().getTable();
+
+        mHanInput = BenchmarkData.generate(mix, size, TranslateMode.HAN_TO_TELE, table);
+        mTeleInput = BenchmarkData.generate(mix, size, TranslateMode.TELE_TO_HAN, table);
+
+    }
+
+    @Benchmark
+    public void codepointTokenizer(Blackhole blackhole) {
+        consume(new CodepointTokenizer(mHanInput), blackhole);
+    }
+
+    @Benchmark
+    public void numberTokenizer(Blackhole blackhole) {
+        consume(new NumberTokenizer(mTeleInput), blackhole);
+    }
+
+    @Benchmark
+    public void codepointSpanTokenizer(Blackhole blackhole) {
+        consume(new CodepointSpanTokenizer(mHanInput), blackhole);
+    }
+
+    @Benchmark
+    public void numberSpanTokenizer(Blackhole blackhole) {
+        consume(new NumberSpanTokenizer(mTeleInput), blackhole);
+    }
+
+    /**
+     * Reads every token from the given tokenizer.
+     */
+    private static void consume(final Tokenizer tokenizer, final Blackhole blackhole) {
+        while(tokenizer.hasMoreTokens())
+            blackhole.consume(tokenizer.nextToken());
+    }
+
+    /**
+     * Reads every token from the given tokenizer.
+     */
+    private static void consume(final SpanTokenizer tokenizer, final Blackhole blackhole) {
+
+        while(tokenizer.hasMoreTokens()) {
+            blackhole.consume(tokenizer.next());
+            blackhole.consume(tokenizer.getCodepoint());
+            blackhole.consume(tokenizer.getEnd());
+        }
+
+    }
+
+}
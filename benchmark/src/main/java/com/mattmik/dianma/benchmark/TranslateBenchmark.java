@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.benchmark;
+
+import com.mattmik.dianma.CodeTable;
+import com.mattmik.dianma.TranslateMode;
+import com.mattmik.dianma.Translator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures full translation of a whole input text in both directions, using the simplified
+ * character set.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TranslateBenchmark {
+
+    @Param({"64", "4096", "262144"})
+    public int size;
+
+    @Param({"HAN", "MIXED", "DIGITS"})
+    public InputMix mix;
+
+    private Translator mHanToTele;
+    private Translator mTeleToHan;
+
+    private String mHanInput;
+    private String mTeleInput;
+
+    private StringBuilder mOutput;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        CodeTable table = BenchmarkData.loadDictionary().getTable();
+
+        mHanToTele = new Translator(table, TranslateMode.HAN_TO_TELE, false);
+        mTeleToHan = new Translator(table, TranslateMode.TELE_TO_HAN, false);
+
+        mHanInput = BenchmarkData.generate(mix, size, TranslateMode.HAN_TO_TELE, table);
+        mTeleInput = BenchmarkData.generate(mix, size, TranslateMode.TELE_TO_HAN, table);
+
+        mOutput = new StringBuilder(
+                Translator.estimateOutputLength(TranslateMode.HAN_TO_TELE, size));
+
+    }
+
+    @Benchmark
+    public String hanToTelegraph() {
+        return mHanToTele.translate(mHanInput);
+    }
+
+    @Benchmark
+    public String telegraphToHan() {
+        return mTeleToHan.translate(mTeleInput);
+    }
+
+    @Benchmark
+    public StringBuilder hanToTelegraphReader() throws IOException {
+
+        mOutput.setLength(0);
+        mHanToTele.translate(new StringReader(mHanInput), mOutput);
+        return mOutput;
+
+    }
+
+    @Benchmark
+    public StringBuilder telegraphToHanReader() throws IOException {
+
+        mOutput.setLength(0);
+        mTeleToHan.translate(new StringReader(mTeleInput), mOutput);
+        return mOutput;
+
+    }
+
+}
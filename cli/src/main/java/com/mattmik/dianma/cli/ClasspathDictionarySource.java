@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.cli;
+
+import android.support.annotation.NonNull;
+
+import com.mattmik.dianma.DictionarySource;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+
+/**
+ * Reads the plain text code tables packaged with the command-line translator.
+ */
+class ClasspathDictionarySource implements DictionarySource {
+
+    @NonNull
+    @Override
+    public InputStream open(final boolean useTraditional) throws FileNotFoundException {
+
+        String name = useTraditional ? "/traditional_codes" : "/simplified_codes";
+
+        InputStream stream = ClasspathDictionarySource.class.getResourceAsStream(name);
+        if(stream == null)
+            throw new FileNotFoundException("Code table " + name + " is missing.");
+
+        return stream;
+
+    }
+
+}
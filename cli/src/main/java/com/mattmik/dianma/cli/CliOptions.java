@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.cli;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mattmik.dianma.TranslateMode;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The options given to the command-line translator.
+ */
+final class CliOptions {
+
+    static final String USAGE =
+            "Usage: pocket-ctc [options] <file or directory>...\n" +
+            "Translates UTF-8 text files between Chinese characters and telegraph code.\n" +
+            "\n" +
+            "  -t, --to-telegraph   translate Chinese characters to telegraph code (default)\n" +
+            "  -c, --to-chinese     translate telegraph code to Chinese characters\n" +
+            "      --traditional    use the traditional character set\n" +
+            "  -o, --output <dir>   write translated files under the given directory, keeping\n" +
+            "                       the layout of any directories given\n" +
+            "  -j, --threads <n>    translate up to n files in parallel (default: one per core)\n" +
+            "  -h, --help           show this message\n" +
+            "\n" +
+            "Without --output, a single file is translated to standard output.\n";
+
+    private final int mTranslateMode;
+    private final boolean mUseTraditional;
+    private final Path mOutputDir;
+    private final int mThreads;
+    private final List<Path> mInputs;
+    private final boolean mHelp;
+
+    private CliOptions(int translateMode, boolean useTraditional, @Nullable Path outputDir,
+                       int threads, @NonNull List<Path> inputs, boolean help) {
+        mTranslateMode = translateMode;
+        mUseTraditional = useTraditional;
+        mOutputDir = outputDir;
+        mThreads = threads;
+        mInputs = Collections.unmodifiableList(inputs);
+        mHelp = help;
+    }
+
+    /**
+     * Parses the given command-line arguments.
+     * @param args the command-line arguments
+     * @return the parsed options
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    @NonNull
+    static CliOptions parse(@NonNull final String[] args) {
+
+        int translateMode = TranslateMode.HAN_TO_TELE;
+        boolean useTraditional = false;
+        Path outputDir = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> inputs = new ArrayList<>();
+        boolean optionsEnded = false;
+
+        for(int i = 0; i < args.length; i++) {
+
+            String arg = args[i];
+
+            if(optionsEnded || !arg.startsWith("-") || arg.equals("-")) {
+                inputs.add(Paths.get(arg));
+                continue;
+            }
+
+            switch(arg) {
+
+                case "--":
+                    optionsEnded = true;
+                    break;
+
+                case "-t":
+                case "--to-telegraph":
+                    translateMode = TranslateMode.HAN_TO_TELE;
+                    break;
+
+                case "-c":
+                case "--to-chinese":
+                    translateMode = TranslateMode.TELE_TO_HAN;
+                    break;
+
+                case "--traditional":
+                    useTraditional = true;
+                    break;
+
+                case "-o":
+                case "--output":
+                    outputDir = Paths.get(requireValue(args, ++i, arg));
+                    break;
+
+                case "-j":
+                case "--threads":
+                    threads = parseThreads(requireValue(args, ++i, arg));
+                    break;
+
+                case "-h":
+                case "--help":
+                    return new CliOptions(translateMode, useTraditional, outputDir, threads,
+                            inputs, true);
+
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg + ".");
+
+            }
+
+        }
+
+        if(inputs.isEmpty())
+            throw new IllegalArgumentException("No input files given.");
+
+        return new CliOptions(translateMode, useTraditional, outputDir, threads, inputs, false);
+
+    }
+
+    /**
+     * Returns the translation mode.
+     * @return the translation mode. See {@link TranslateMode}.
+     */
+    int getTranslateMode() {
+        return mTranslateMode;
+    }
+
+    /**
+     * Returns whether or not to use the traditional character set.
+     * @return true to use the traditional character set, false to use the simplified one
+     */
+    boolean useTraditional() {
+        return mUseTraditional;
+    }
+
+    /**
+     * Returns the directory which receives the translated files.
+     * @return the output directory, or null to translate to standard output
+     */
+    @Nullable
+    Path getOutputDir() {
+        return mOutputDir;
+    }
+
+    /**
+     * Returns the largest number of files to translate in parallel.
+     * @return the number of threads
+     */
+    int getThreads() {
+        return mThreads;
+    }
+
+    /**
+     * Returns the files and directories to translate, in the order given.
+     * @return the input paths
+     */
+    @NonNull
+    List<Path> getInputs() {
+        return mInputs;
+    }
+
+    /**
+     * Returns whether or not help was requested, in which case nothing else need be valid.
+     * @return true if help was requested
+     */
+    boolean isHelp() {
+        return mHelp;
+    }
+
+    /**
+     * Returns the value following an option.
+     * @throws IllegalArgumentException if the option has no value
+     */
+    @NonNull
+    private static String requireValue(@NonNull final String[] args, final int index,
+                                       @NonNull final String option) {
+
+        if(index >= args.length)
+            throw new IllegalArgumentException("Option " + option + " requires a value.");
+
+        return args[index];
+
+    }
+
+    /**
+     * Parses the value of the threads option.
+     * @throws IllegalArgumentException if the value is not a positive integer
+     */
+    private static int parseThreads(@NonNull final String value) {
+
+        int threads;
+        try {
+            threads = Integer.parseInt(value);
+        } catch(NumberFormatException e) {
+            threads = 0;
+        }
+
+        if(threads < 1)
+            throw new IllegalArgumentException("Invalid number of threads " + value + ".");
+
+        return threads;
+
+    }
+
+}
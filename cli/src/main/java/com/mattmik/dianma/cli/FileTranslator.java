@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.cli;
+
+import android.support.annotation.NonNull;
+
+import com.mattmik.dianma.CodeTable;
+import com.mattmik.dianma.Translator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Translates UTF-8 encoded files without reading them into memory as a whole.
+ * <p>
+ * Input is memory-mapped a window at a time, and decoded incrementally into a fixed-size char
+ * buffer, each buffer's worth being translated as soon as it is decoded. The translated text is
+ * encoded into a byte buffer which is written to the output channel whenever it fills, so the
+ * memory used is the same however large the file.
+ * <p>
+ * Malformed UTF-8 input causes translation to fail with a
+ * {@link java.nio.charset.CharacterCodingException}.
+ * <p>
+ * This class is not thread-safe. Each thread translating files should use its own instance.
+ */
+public class FileTranslator {
+
+    /** The default number of bytes of input mapped at a time. */
+    public static final int DEFAULT_MAP_SIZE = 64 * 1024 * 1024;
+
+    /** The default size of the buffers between decoding, translation and encoding. */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Every UTF-8 sequence is at most this long, so any window or buffer this long holds a whole
+    // char, or a whole surrogate pair
+    private static final int MIN_SIZE = 4;
+
+    private final Translator mTranslator;
+    private final int mMapSize;
+
+    private final CharsetDecoder mDecoder;
+    private final CharsetEncoder mEncoder;
+
+    private final CharBuffer mChars;
+    private final StringBuilder mOutput;
+    private final ByteBuffer mBytes;
+
+    private long mBytesWritten;
+
+    /**
+     * Constructs a FileTranslator with the default map and buffer sizes.
+     * @param table the CodeTable used for translation, which must hold the selected character set
+     * @param translateMode the translation mode. See {@link com.mattmik.dianma.TranslateMode}.
+     * @param useTraditional true to use the traditional character set, false to use the
+     *                       simplified character set
+     */
+    public FileTranslator(@NonNull CodeTable table, int translateMode, boolean useTraditional) {
+        this(table, translateMode, useTraditional, DEFAULT_MAP_SIZE, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a FileTranslator.
+     * @param table the CodeTable used for translation, which must hold the selected character set
+     * @param translateMode the translation mode. See {@link com.mattmik.dianma.TranslateMode}.
+     * @param useTraditional true to use the traditional character set, false to use the
+     *                       simplified character set
+     * @param mapSize the number of bytes of input mapped at a time
+     * @param bufferSize the number of chars decoded, and the number of bytes written, at a time
+     * @throws IllegalArgumentException if mapSize or bufferSize is less than 4
+     */
+    FileTranslator(@NonNull CodeTable table, int translateMode, boolean useTraditional,
+                   int mapSize, int bufferSize) {
+
+        if(mapSize < MIN_SIZE)
+            throw new IllegalArgumentException("Map size must be at least " + MIN_SIZE + ".");
+
+        if(bufferSize < MIN_SIZE)
+            throw new IllegalArgumentException("Buffer size must be at least " + MIN_SIZE + ".");
+
+        mTranslator = new Translator(table, translateMode, useTraditional);
+        mMapSize = mapSize;
+
+        mDecoder = UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        mEncoder = UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+        mChars = CharBuffer.allocate(bufferSize);
+        mOutput = new StringBuilder(Translator.estimateOutputLength(translateMode, bufferSize));
+        mBytes = ByteBuffer.allocate(bufferSize);
+
+    }
+
+    /**
+     * Translates the whole of the given file, writing the result to the given channel. Neither
+     * channel is closed.
+     * @param input the file to be translated
+     * @param output the channel receiving the translated text, encoded as UTF-8
+     * @return the number of bytes written to the output channel
+     * @throws IOException if reading, decoding or writing fails
+     */
+    public long translate(@NonNull final FileChannel input,
+                          @NonNull final WritableByteChannel output) throws IOException {
+
+        // A previous file may have failed partway, leaving state behind
+        mTranslator.reset();
+        mDecoder.reset();
+        mEncoder.reset();
+        mChars.clear();
+        mOutput.setLength(0);
+        mBytes.clear();
+        mBytesWritten = 0;
+
+        final long size = input.size();
+        long position = 0;
+
+        while(position < size) {
+
+            long windowSize = Math.min(mMapSize, size - position);
+            boolean lastWindow = (position + windowSize == size);
+            MappedByteBuffer window = input.map(FileChannel.MapMode.READ_ONLY, position,
+                    windowSize);
+
+            // Any incomplete sequence at the end of the window is left for the next window
+            decode(window, lastWindow, output);
+            position += window.position();
+
+        }
+
+        if(size == 0)
+            decode(ByteBuffer.allocate(0), true, output);
+
+        checkResult(mDecoder.flush(mChars));
+        translateChars(output);
+
+        mTranslator.finish(mOutput);
+        encodeOutput(true, output);
+        while(checkResult(mEncoder.flush(mBytes)).isOverflow())
+            writeBytes(output);
+        writeBytes(output);
+
+        return mBytesWritten;
+
+    }
+
+    /**
+     * Decodes and translates as much of the given bytes as possible.
+     */
+    private void decode(@NonNull final ByteBuffer bytes, final boolean endOfInput,
+                        @NonNull final WritableByteChannel output) throws IOException {
+
+        while(true) {
+
+            CoderResult result = checkResult(mDecoder.decode(bytes, mChars, endOfInput));
+            translateChars(output);
+
+            if(result.isUnderflow())
+                break;
+
+        }
+
+    }
+
+    /**
+     * Translates the decoded chars, and encodes the result as far as it is known.
+     */
+    private void translateChars(@NonNull final WritableByteChannel output) throws IOException {
+
+        mChars.flip();
+        mTranslator.translate(mChars, 0, mChars.length(), mOutput);
+        mChars.clear();
+
+        encodeOutput(false, output);
+
+    }
+
+    /**
+     * Encodes the translated text, writing the encoded bytes whenever the byte buffer fills. Any
+     * char which can not yet be encoded, such as the first half of a surrogate pair, is kept until
+     * the next call.
+     */
+    private void encodeOutput(final boolean endOfInput, @NonNull final WritableByteChannel output)
+            throws IOException {
+
+        CharBuffer chars = CharBuffer.wrap(mOutput);
+
+        while(checkResult(mEncoder.encode(chars, mBytes, endOfInput)).isOverflow())
+            writeBytes(output);
+
+        mOutput.delete(0, chars.position());
+
+    }
+
+    /**
+     * Writes the whole contents of the byte buffer to the given channel, and clears it.
+     */
+    private void writeBytes(@NonNull final WritableByteChannel output) throws IOException {
+
+        mBytes.flip();
+        while(mBytes.hasRemaining())
+            mBytesWritten += output.write(mBytes);
+        mBytes.clear();
+
+    }
+
+    /**
+     * Throws an exception if the given result of decoding or encoding is an error.
+     * @return the given result
+     */
+    @NonNull
+    private static CoderResult checkResult(@NonNull final CoderResult result) throws IOException {
+
+        if(result.isError())
+            result.throwException();
+
+        return result;
+
+    }
+
+}
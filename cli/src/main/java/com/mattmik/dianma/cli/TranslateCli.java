@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.cli;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mattmik.dianma.CodeDictionary;
+import com.mattmik.dianma.CodeTable;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Command-line entry point, which translates files or whole directories of UTF-8 text. Files are
+ * translated in parallel, and the time taken by each file and the overall throughput are reported
+ * to standard error once every file is done. See {@link CliOptions#USAGE}.
+ */
+public final class TranslateCli {
+
+    private static final int EXIT_SUCCESS = 0;
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    // Private constructor to prevent instantiation
+    private TranslateCli() {
+        // Empty!
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.err));
+    }
+
+    /**
+     * Runs the command-line translator.
+     * @param args the command-line arguments
+     * @param report the stream receiving errors and the timing report
+     * @return the exit status
+     */
+    static int run(@NonNull final String[] args, @NonNull final PrintStream report) {
+
+        CliOptions options;
+        List<Job> jobs;
+
+        try {
+
+            options = CliOptions.parse(args);
+            if(options.isHelp()) {
+                report.print(CliOptions.USAGE);
+                return EXIT_SUCCESS;
+            }
+
+            jobs = collectJobs(options);
+
+        } catch(IllegalArgumentException e) {
+            report.println(e.getMessage());
+            report.print(CliOptions.USAGE);
+            return EXIT_USAGE;
+        } catch(IOException e) {
+            report.println("Error listing input files: " + e);
+            return EXIT_FAILURE;
+        }
+
+        CodeDictionary dictionary = new CodeDictionary(new ClasspathDictionarySource());
+        if(!dictionary.loadData(options.useTraditional())) {
+            report.println("Error loading dictionary data.");
+            return EXIT_FAILURE;
+        }
+
+        long start = System.nanoTime();
+        List<Result> results = translate(dictionary.getTable(), options, jobs);
+        long wallNanos = System.nanoTime() - start;
+
+        return report(results, wallNanos, report) ? EXIT_SUCCESS : EXIT_FAILURE;
+
+    }
+
+    /**
+     * Lists every file to be translated, and where its translation is written. Directories are
+     * searched recursively, and their files are listed in order of path.
+     * @throws IllegalArgumentException if the inputs can not be translated with the given options
+     * @throws IOException if a directory could not be listed
+     */
+    @NonNull
+    static List<Job> collectJobs(@NonNull final CliOptions options) throws IOException {
+
+        final Path outputDir = options.getOutputDir();
+        final List<Job> jobs = new ArrayList<>();
+
+        for(final Path input : options.getInputs()) {
+
+            if(!Files.isDirectory(input)) {
+                Path output = (outputDir == null) ? null : outputDir.resolve(input.getFileName());
+                jobs.add(new Job(input, output));
+                continue;
+            }
+
+            if(outputDir == null)
+                throw new IllegalArgumentException("Translating a directory requires --output.");
+
+            final List<Path> files = new ArrayList<>();
+            Files.walkFileTree(input, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if(attributes.isRegularFile())
+                        files.add(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+            });
+
+            Collections.sort(files);
+            for(Path file : files)
+                jobs.add(new Job(file, outputDir.resolve(input.relativize(file).toString())));
+
+        }
+
+        if(outputDir == null && jobs.size() > 1)
+            throw new IllegalArgumentException("Translating more than one file requires --output.");
+
+        // Two inputs must never be written to the same output, nor an input overwritten
+        Set<Path> paths = new HashSet<>();
+        for(Job job : jobs)
+            paths.add(job.mInput.toAbsolutePath().normalize());
+
+        for(Job job : jobs) {
+
+            if(job.mOutput != null && !paths.add(job.mOutput.toAbsolutePath().normalize())) {
+                throw new IllegalArgumentException("Output " + job.mOutput +
+                        " would overwrite an input or another output.");
+            }
+
+        }
+
+        return jobs;
+
+    }
+
+    /**
+     * Translates every job, using up to the number of threads given by the options.
+     * @return the result of each job, in the same order
+     */
+    @NonNull
+    private static List<Result> translate(@NonNull final CodeTable table,
+                                          @NonNull final CliOptions options,
+                                          @NonNull final List<Job> jobs) {
+
+        // Each thread reuses its own FileTranslator, and so its buffers, for every file
+        final ThreadLocal<FileTranslator> translators = new ThreadLocal<FileTranslator>() {
+
+            @Override
+            protected FileTranslator initialValue() {
+                return new FileTranslator(table, options.getTranslateMode(),
+                        options.useTraditional());
+            }
+
+        };
+
+        int threads = Math.max(1, Math.min(options.getThreads(), jobs.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+
+            List<Future<Result>> futures = new ArrayList<>(jobs.size());
+            for(final Job job : jobs) {
+                futures.add(executor.submit(new Callable<Result>() {
+
+                    @Override
+                    public Result call() {
+                        return job.run(translators.get());
+                    }
+
+                }));
+            }
+
+            List<Result> results = new ArrayList<>(jobs.size());
+            for(Future<Result> future : futures)
+                results.add(getUninterruptibly(future));
+
+            return results;
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+    }
+
+    /**
+     * Reports the time taken by each job, and the overall throughput.
+     * @return true if every job succeeded, false otherwise
+     */
+    private static boolean report(@NonNull final List<Result> results, final long wallNanos,
+                                  @NonNull final PrintStream report) {
+
+        long totalIn = 0;
+        long totalOut = 0;
+        int failures = 0;
+
+        for(Result result : results) {
+
+            if(result.mError != null) {
+                failures++;
+                report.println("FAILED " + result.mJob.mInput + ": " + result.mError);
+                continue;
+            }
+
+            totalIn += result.mBytesIn;
+            totalOut += result.mBytesOut;
+
+            report.println(String.format(Locale.ROOT, "%10.1f ms %12d B %10.1f MB/s  %s",
+                    result.mNanos / NANOS_PER_MILLI, result.mBytesIn,
+                    megabytesPerSecond(result.mBytesIn, result.mNanos), result.mJob.mInput));
+
+        }
+
+        report.println(String.format(Locale.ROOT,
+                "%d files, %d failed: %.1f MB in, %.1f MB out in %.3f s (%.1f MB/s)",
+                results.size(), failures, totalIn / BYTES_PER_MEGABYTE,
+                totalOut / BYTES_PER_MEGABYTE, wallNanos / NANOS_PER_SECOND,
+                megabytesPerSecond(totalIn, wallNanos)));
+
+        return (failures == 0);
+
+    }
+
+    /**
+     * Returns the throughput of processing the given number of bytes in the given time.
+     */
+    private static double megabytesPerSecond(final long bytes, final long nanos) {
+        return (nanos == 0) ? 0 : (bytes / BYTES_PER_MEGABYTE) / (nanos / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Waits for the given future, which never throws, to complete.
+     */
+    @NonNull
+    private static Result getUninterruptibly(@NonNull final Future<Result> future) {
+
+        boolean interrupted = false;
+
+        try {
+
+            while(true) {
+                try {
+                    return future.get();
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                } catch(ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+
+        } finally {
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+    }
+
+    /**
+     * A single file to be translated.
+     */
+    static final class Job {
+
+        final Path mInput;
+        final Path mOutput;
+
+        /**
+         * Constructs a Job.
+         * @param input the file to be translated
+         * @param output the file receiving the translation, or null for standard output
+         */
+        Job(@NonNull Path input, @Nullable Path output) {
+            mInput = input;
+            mOutput = output;
+        }
+
+        /**
+         * Translates the file, recording how long it took.
+         * @param translator the FileTranslator owned by the current thread
+         * @return the result of translation
+         */
+        @NonNull
+        Result run(@NonNull final FileTranslator translator) {
+
+            long start = System.nanoTime();
+
+            try {
+
+                FileChannel input = FileChannel.open(mInput, StandardOpenOption.READ);
+
+                try {
+
+                    long bytesIn = input.size();
+                    long bytesOut;
+
+                    if(mOutput == null) {
+                        // Standard output is written directly, bypassing System.out's buffer
+                        FileChannel output = new FileOutputStream(FileDescriptor.out).getChannel();
+                        bytesOut = translator.translate(input, output);
+                    } else {
+                        bytesOut = translateToFile(translator, input);
+                    }
+
+                    return new Result(this, bytesIn, bytesOut, System.nanoTime() - start, null);
+
+                } finally {
+                    input.close();
+                }
+
+            } catch(IOException | RuntimeException e) {
+                return new Result(this, 0, 0, System.nanoTime() - start, e);
+            }
+
+        }
+
+        /**
+         * Translates the input into the output file, creating any missing directories.
+         * @return the number of bytes written
+         */
+        private long translateToFile(@NonNull final FileTranslator translator,
+                                     @NonNull final FileChannel input) throws IOException {
+
+            Path parent = mOutput.toAbsolutePath().getParent();
+            if(parent != null)
+                Files.createDirectories(parent);
+
+            FileChannel output = FileChannel.open(mOutput, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+            try {
+                return translator.translate(input, output);
+            } finally {
+                output.close();
+            }
+
+        }
+
+    }
+
+    /**
+     * The outcome of a single {@link Job}.
+     */
+    static final class Result {
+
+        final Job mJob;
+        final long mBytesIn;
+        final long mBytesOut;
+        final long mNanos;
+        final Exception mError;
+
+        Result(@NonNull Job job, long bytesIn, long bytesOut, long nanos,
+               @Nullable Exception error) {
+            mJob = job;
+            mBytesIn = bytesIn;
+            mBytesOut = bytesOut;
+            mNanos = nanos;
+            mError = error;
+        }
+
+    }
+
+}
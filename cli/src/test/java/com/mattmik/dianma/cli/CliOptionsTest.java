@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.cli;
+
+import com.mattmik.dianma.TranslateMode;
+
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CliOptionsTest {
+
+    @Test
+    public void defaultsTest() {
+
+        CliOptions options = CliOptions.parse(new String[] { "a.txt" });
+
+        assertEquals(TranslateMode.HAN_TO_TELE, options.getTranslateMode());
+        assertFalse(options.useTraditional());
+        assertNull(options.getOutputDir());
+        assertEquals(Runtime.getRuntime().availableProcessors(), options.getThreads());
+        assertEquals(Arrays.asList(Paths.get("a.txt")), options.getInputs());
+        assertFalse(options.isHelp());
+
+    }
+
+    @Test
+    public void optionsTest() {
+
+        CliOptions options = CliOptions.parse(new String[] {
+                "-c", "--traditional", "a.txt", "-o", "out", "--threads", "3", "--", "-b.txt"
+        });
+
+        assertEquals(TranslateMode.TELE_TO_HAN, options.getTranslateMode());
+        assertTrue(options.useTraditional());
+        assertEquals(Paths.get("out"), options.getOutputDir());
+        assertEquals(3, options.getThreads());
+        assertEquals(Arrays.asList(Paths.get("a.txt"), Paths.get("-b.txt")), options.getInputs());
+
+        options = CliOptions.parse(new String[] { "--to-chinese", "-t", "a.txt" });
+        assertEquals(TranslateMode.HAN_TO_TELE, options.getTranslateMode());
+
+    }
+
+    @Test
+    public void helpTest() {
+        assertTrue(CliOptions.parse(new String[] { "-h" }).isHelp());
+        assertTrue(CliOptions.parse(new String[] { "a.txt", "--help", "-j", "0" }).isHelp());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noInputsTest() {
+        CliOptions.parse(new String[] { "-o", "out" });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingValueTest() {
+        CliOptions.parse(new String[] { "a.txt", "-o" });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidThreadsTest() {
+        CliOptions.parse(new String[] { "-j", "0", "a.txt" });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownOptionTest() {
+        CliOptions.parse(new String[] { "--fast", "a.txt" });
+    }
+
+}
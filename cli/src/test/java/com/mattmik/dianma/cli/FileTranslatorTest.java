@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.cli;
+
+import com.mattmik.dianma.CodeTable;
+import com.mattmik.dianma.TranslateMode;
+import com.mattmik.dianma.Translator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class FileTranslatorTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private CodeTable mTable;
+    private Path mFile;
+
+    @Before
+    public void setUp() throws IOException {
+
+        mTable = new CodeTable.Builder()
+                .put(false, 0x4F60, 2978)
+                .put(false, 0x597D, 6350)
+                .put(false, 0x00E9, 1)
+                .put(true, 0x4F60, 2643)
+                .build();
+
+        mFile = Files.createTempFile("FileTranslatorTest", ".txt");
+
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.delete(mFile);
+    }
+
+    @Test
+    public void translateTest() throws IOException {
+
+        assertEquals("2978 6350 , world!", translate("你好, world!", TranslateMode.HAN_TO_TELE,
+                false));
+        assertEquals("2643 好", translate("你好", TranslateMode.HAN_TO_TELE, true));
+        assertEquals("你好é", translate("2978 6350 0001", TranslateMode.TELE_TO_HAN, false));
+        assertEquals("", translate("", TranslateMode.HAN_TO_TELE, false));
+
+    }
+
+    @Test
+    public void boundaryTest() throws IOException {
+
+        // Multi-byte chars, surrogate pairs and digit runs all straddle windows and buffers
+        String[] pieces = { "你", "好", "😀", "é", "a", " ", "2978", "63", "\n" };
+        Random random = new Random(23);
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < 2000; i++)
+            builder.append(pieces[random.nextInt(pieces.length)]);
+        String text = builder.toString();
+
+        for(int mode = TranslateMode.HAN_TO_TELE; mode <= TranslateMode.TELE_TO_HAN; mode++) {
+
+            String expected = new Translator(mTable, mode, false).translate(text);
+
+            for(int mapSize : new int[] { 4, 5, 7, 4096, FileTranslator.DEFAULT_MAP_SIZE }) {
+                for(int bufferSize : new int[] { 4, 5, 17, FileTranslator.DEFAULT_BUFFER_SIZE }) {
+                    FileTranslator translator = new FileTranslator(mTable, mode, false, mapSize,
+                            bufferSize);
+                    assertEquals(expected, translate(translator, text));
+                }
+            }
+
+        }
+
+    }
+
+    @Test
+    public void reuseTest() throws IOException {
+
+        FileTranslator translator = new FileTranslator(mTable, TranslateMode.TELE_TO_HAN, false,
+                5, 4);
+
+        // Nothing is carried over from the previous file
+        assertEquals("你29", translate(translator, "2978 29"));
+        assertEquals("78好", translate(translator, "78 6350"));
+
+    }
+
+    @Test
+    public void reuseAfterFailureTest() throws IOException {
+
+        FileTranslator translator = new FileTranslator(mTable, TranslateMode.TELE_TO_HAN, false,
+                4, 4);
+
+        // The digits decoded before the malformed byte must not join the next file's digits
+        Files.write(mFile, new byte[] { 'x', '2', '9', '7', (byte) 0xFF });
+        try {
+            translate(translator, null);
+            fail("Malformed input was translated.");
+        } catch(CharacterCodingException e) {
+            // Empty!
+        }
+
+        assertEquals("8", translate(translator, "8"));
+        assertEquals("你", translate(translator, "2978"));
+
+    }
+
+    @Test(expected = CharacterCodingException.class)
+    public void malformedInputTest() throws IOException {
+
+        Files.write(mFile, new byte[] { 'a', (byte) 0xE4, (byte) 0xBD, 'b' });
+        translate(new FileTranslator(mTable, TranslateMode.HAN_TO_TELE, false), null);
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mapSizeTest() {
+        new FileTranslator(mTable, TranslateMode.HAN_TO_TELE, false, 3, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bufferSizeTest() {
+        new FileTranslator(mTable, TranslateMode.HAN_TO_TELE, false, 4, 3);
+    }
+
+    /**
+     * Translates the given text through a file using a FileTranslator with the default sizes.
+     */
+    private String translate(String text, int translateMode, boolean useTraditional)
+            throws IOException {
+        return translate(new FileTranslator(mTable, translateMode, useTraditional), text);
+    }
+
+    /**
+     * Translates the given text through a file, or the file as it is if text is null.
+     */
+    private String translate(FileTranslator translator, String text) throws IOException {
+
+        if(text != null)
+            Files.write(mFile, text.getBytes(UTF_8));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FileChannel input = FileChannel.open(mFile, StandardOpenOption.READ);
+
+        try {
+            long written = translator.translate(input, Channels.newChannel(output));
+            assertEquals(output.size(), written);
+        } finally {
+            input.close();
+        }
+
+        return new String(output.toByteArray(), UTF_8);
+
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.cli;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TranslateCliTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private Path mDir;
+    private ByteArrayOutputStream mReport;
+
+    @Before
+    public void setUp() throws IOException {
+
+        mDir = Files.createTempDirectory("TranslateCliTest");
+        mReport = new ByteArrayOutputStream();
+
+        Files.createDirectories(mDir.resolve("in/sub"));
+        write("in/a.txt", "你好");
+        write("in/sub/b.txt", "中国");
+        write("c.txt", "我");
+
+    }
+
+    @After
+    public void tearDown() throws IOException {
+
+        Files.walkFileTree(mDir, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+                    throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e)
+                    throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+
+    }
+
+    @Test
+    public void collectJobsTest() throws IOException {
+
+        List<TranslateCli.Job> jobs = TranslateCli.collectJobs(CliOptions.parse(new String[] {
+                "-o", path("out").toString(), path("in").toString(), path("c.txt").toString()
+        }));
+
+        assertEquals(3, jobs.size());
+        assertEquals(path("in/a.txt"), jobs.get(0).mInput);
+        assertEquals(path("out/a.txt"), jobs.get(0).mOutput);
+        assertEquals(path("in/sub/b.txt"), jobs.get(1).mInput);
+        assertEquals(path("out/sub/b.txt"), jobs.get(1).mOutput);
+        assertEquals(path("c.txt"), jobs.get(2).mInput);
+        assertEquals(path("out/c.txt"), jobs.get(2).mOutput);
+
+        jobs = TranslateCli.collectJobs(CliOptions.parse(new String[] {
+                path("c.txt").toString()
+        }));
+        assertEquals(1, jobs.size());
+        assertNull(jobs.get(0).mOutput);
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void collectDirectoryWithoutOutputTest() throws IOException {
+        TranslateCli.collectJobs(CliOptions.parse(new String[] { path("in").toString() }));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void collectOverwriteInputTest() throws IOException {
+        TranslateCli.collectJobs(CliOptions.parse(new String[] {
+                "-o", path("in/sub").toString(), path("in/sub/b.txt").toString()
+        }));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void collectDuplicateOutputTest() throws IOException {
+        write("in/c.txt", "");
+        TranslateCli.collectJobs(CliOptions.parse(new String[] {
+                "-o", path("out").toString(), path("c.txt").toString(), path("in").toString()
+        }));
+    }
+
+    @Test
+    public void runTest() throws IOException {
+
+        int status = TranslateCli.run(new String[] {
+                "-j", "2", "-o", path("out").toString(), path("in").toString()
+        }, new PrintStream(mReport, true, "UTF-8"));
+
+        assertEquals(0, status);
+        assertEquals("0132 1170 ", read("out/a.txt"));
+        assertEquals("0022 0948 ", read("out/sub/b.txt"));
+        assertTrue(mReport.toString("UTF-8").contains("2 files, 0 failed"));
+
+        status = TranslateCli.run(new String[] {
+                "--to-chinese", "--traditional", "-o", path("back").toString(),
+                path("out").toString()
+        }, new PrintStream(mReport, true, "UTF-8"));
+
+        assertEquals(0, status);
+        assertEquals("中國", read("back/sub/b.txt"));
+
+    }
+
+    @Test
+    public void runFailureTest() throws IOException {
+
+        Files.write(path("in/a.txt"), new byte[] { (byte) 0xFF });
+
+        int status = TranslateCli.run(new String[] {
+                "-o", path("out").toString(), path("in").toString()
+        }, new PrintStream(mReport, true, "UTF-8"));
+
+        assertEquals(1, status);
+        assertTrue(mReport.toString("UTF-8").contains("FAILED " + path("in/a.txt")));
+        assertEquals("0022 0948 ", read("out/sub/b.txt"));
+
+    }
+
+    @Test
+    public void runUsageTest() throws IOException {
+
+        PrintStream report = new PrintStream(mReport, true, "UTF-8");
+
+        assertEquals(2, TranslateCli.run(new String[0], report));
+        assertEquals(0, TranslateCli.run(new String[] { "--help" }, report));
+        assertTrue(mReport.toString("UTF-8").contains(CliOptions.USAGE));
+
+    }
+
+    private Path path(String name) {
+        return mDir.resolve(name);
+    }
+
+    private void write(String name, String text) throws IOException {
+        Files.write(path(name), text.getBytes(UTF_8));
+    }
+
+    private String read(String name) throws IOException {
+        return new String(Files.readAllBytes(path(name)), UTF_8);
+    }
+
+}
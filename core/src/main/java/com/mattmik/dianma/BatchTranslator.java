@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BatchTranslator translates large numbers of short texts, such as names and addresses, on a
+ * shared pool of worker threads.
+ * <p>
+ * Workers claim the texts in batches of {@link #BATCH_SIZE} from a shared counter, so that a
+ * worker which is given short texts goes on to claim more, and the calling thread works alongside
+ * them. Each worker sets up a single {@link Translator} and output buffer, which it reuses for
+ * every text it translates, so nothing is set up per text. Each text is translated on its own,
+ * and its result is the same as that of {@link Translator#translate(CharSequence)}.
+ * <p>
+ * Instances of this class are thread-safe, provided that the translated texts are not modified.
+ */
+public final class BatchTranslator {
+
+    /** The number of texts claimed by a worker at a time. */
+    public static final int BATCH_SIZE = 256;
+
+    // The length of text for which each worker's output buffer is first sized; it grows as needed
+    private static final int INITIAL_INPUT_LENGTH = 256;
+
+    private final ExecutorService mExecutor;
+    private final int mParallelism;
+
+    /**
+     * Constructs a new BatchTranslator.
+     * @param executor the pool which translates texts
+     * @param parallelism the largest number of threads translating a list at once, including the
+     *                    calling thread, which is typically the number of threads in the pool
+     *                    plus one
+     * @throws IllegalArgumentException if the parallelism is less than one
+     */
+    public BatchTranslator(@NonNull ExecutorService executor, int parallelism) {
+
+        if(parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive.");
+
+        mExecutor = executor;
+        mParallelism = parallelism;
+
+    }
+
+    /**
+     * Returns the largest number of threads translating a list at once.
+     * @return the parallelism
+     */
+    public int getParallelism() {
+        return mParallelism;
+    }
+
+    /**
+     * Translates every text in the given list.
+     * @param table the CodeTable used for translation, which must hold the selected character set
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param useTraditional true if translation should use traditional characters, false if
+     *                       translation should use simplified characters
+     * @param inputs the texts to be translated
+     * @return an unmodifiable list holding the translation of each text, in the same order
+     * @throws InterruptedException if the calling thread is interrupted while translating
+     * @throws IllegalArgumentException if the translation mode is invalid
+     * @throws NullPointerException if any of the texts is null
+     */
+    @NonNull
+    public List<String> translate(@NonNull final CodeTable table, final int translateMode,
+                                  final boolean useTraditional,
+                                  @NonNull final List<? extends CharSequence> inputs)
+            throws InterruptedException {
+
+        // Fails fast on an invalid mode, before any work is handed out
+        final Translator translator = new Translator(table, translateMode, useTraditional);
+
+        // Copied, so that any kind of list is read in constant time from every thread
+        final CharSequence[] texts = inputs.toArray(new CharSequence[inputs.size()]);
+
+        // Checked here, as a worker's failure would otherwise reach the caller wrapped
+        for(int i = 0; i < texts.length; i++) {
+            if(texts[i] == null)
+                throw new NullPointerException("Text " + i + " is null.");
+        }
+        final String[] results = new String[texts.length];
+        final AtomicInteger next = new AtomicInteger();
+
+        int batches = (texts.length + BATCH_SIZE - 1) / BATCH_SIZE;
+        int workers = Math.min(mParallelism, batches);
+
+        // Hand out every worker but one, as this thread is also a worker
+        final List<Future<?>> futures = new ArrayList<>(Math.max(0, workers - 1));
+        for(int i = 1; i < workers; i++) {
+
+            futures.add(mExecutor.submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    translateBatches(new Translator(table, translateMode, useTraditional), texts,
+                            results, next);
+                }
+
+            }));
+
+        }
+
+        try {
+
+            translateBatches(translator, texts, results, next);
+
+            if(Thread.interrupted())
+                throw new InterruptedException();
+
+            for(Future<?> future : futures)
+                future.get();
+
+        } catch(ExecutionException e) {
+
+            // Unchecked exceptions reach the caller as they would from this thread
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if(cause instanceof Error)
+                throw (Error) cause;
+
+            throw new RuntimeException("Translation of a batch failed.", cause);
+
+        } finally {
+
+            // Does nothing if every worker has completed
+            for(Future<?> future : futures)
+                future.cancel(true);
+
+        }
+
+        return Collections.unmodifiableList(Arrays.asList(results));
+
+    }
+
+    /**
+     * Translates batches of texts until none are left to claim, or the current thread is
+     * interrupted.
+     * @param translator the Translator owned by the current thread
+     * @param texts the texts to be translated
+     * @param results the array receiving the translation of each text
+     * @param next the index of the first text which has not been claimed
+     */
+    private static void translateBatches(@NonNull final Translator translator,
+                                         @NonNull final CharSequence[] texts,
+                                         @NonNull final String[] results,
+                                         @NonNull final AtomicInteger next) {
+
+        final OutputBufferPool pool = OutputBufferPool.getDefault();
+        final StringBuilder output = pool.acquire(Translator.estimateOutputLength(
+                translator.getTranslateMode(), INITIAL_INPUT_LENGTH));
+
+        try {
+
+            int start;
+            while(!Thread.currentThread().isInterrupted()
+                    && (start = next.getAndAdd(BATCH_SIZE)) < texts.length) {
+
+                int end = Math.min(start + BATCH_SIZE, texts.length);
+                for(int i = start; i < end; i++) {
+
+                    CharSequence text = texts[i];
+                    translator.translate(text, 0, text.length(), output);
+                    translator.finish(output);
+
+                    results[i] = output.toString();
+                    output.setLength(0);
+
+                }
+
+            }
+
+        } finally {
+            pool.release(output);
+        }
+
+    }
+
+}
@@ -0,0 +1,495 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * CodeDictionary is used to convert from Chinese characters to Chinese telegraph code, and
+ * vice-versa.
+ * <p>
+ * Before any conversion can be performed, the dictionary data must be loaded using the
+ * {@link #loadAllData()} method. Data may also be loaded on background threads using
+ * {@link #loadAllDataAsync(OnDataLoadedListener)} or
+ * {@link #loadDataAsync(boolean, OnDataLoadedListener)}. Each character set is loaded
+ * independently, so callers only pay for the character set they use, and a character set which is
+ * no longer needed may be released using {@link #unloadData(boolean)}.
+ * <p>
+ * The loaded data is published as an immutable {@link CodeTable}. Code which performs many
+ * conversions should obtain the current table from {@link #getTable()} once and use it directly,
+ * rather than calling the conversion methods of this class.
+ * <p>
+ * This class is thread-safe.
+ */
+public class CodeDictionary {
+
+    /**
+     * Returned by lookups when no corresponding codepoint or telegraph code is found.
+     */
+    public static final int NOT_FOUND = CodeTable.NOT_FOUND;
+
+    private static final Logger LOG = Logger.getLogger(CodeDictionary.class.getName());
+
+    // Each character set is loaded by its own worker, which exits once it has been idle this long
+    private static final int LOADER_KEEP_ALIVE_SECONDS = 5;
+
+    private final DictionarySource mSource;
+    private final ExecutorService mLoadExecutor;
+
+    private final Object mSimplifiedLock = new Object();
+    private final Object mTraditionalLock = new Object();
+
+    // Replaced, never modified, whenever a character set is loaded or unloaded
+    private volatile CodeTable mTable;
+
+    /**
+     * Constructs a CodeDictionary. Before any conversion can be performed, the returned instance
+     * must be loaded using the {@link #loadAllData()} method.
+     * @param source the source from which code tables are read
+     */
+    public CodeDictionary(@NonNull final DictionarySource source) {
+
+        mSource = source;
+
+        ThreadPoolExecutor loadExecutor = new ThreadPoolExecutor(2, 2, LOADER_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        loadExecutor.allowCoreThreadTimeOut(true);
+        mLoadExecutor = loadExecutor;
+
+        mTable = CodeTable.EMPTY;
+
+    }
+
+    /**
+     * Loads all data needed to perform conversions between Chinese characters and telegraph code.
+     * @return true if data is loaded successfully, false otherwise
+     */
+    public boolean loadAllData() {
+
+        boolean simplifiedLoaded = loadData(false);
+        boolean traditionalLoaded = loadData(true);
+
+        return (simplifiedLoaded && traditionalLoaded);
+
+    }
+
+    /**
+     * Loads the data needed to perform conversions using a single character set. If the data has
+     * already been loaded, this method returns immediately.
+     * @param useTraditional true to load the traditional character set, false to load the
+     *                       simplified character set
+     * @return true if data is loaded successfully, false otherwise
+     */
+    public boolean loadData(final boolean useTraditional) {
+
+        synchronized(useTraditional ? mTraditionalLock : mSimplifiedLock) {
+
+            if(mTable.hasCharacterSet(useTraditional))
+                return true;
+
+            CodeMap map = useTraditional ? loadTraditionalData() : loadSimplifiedData();
+            if(map == null)
+                return false;
+
+            publish(useTraditional, map);
+            return true;
+
+        }
+
+    }
+
+    /**
+     * Releases the data for a single character set, for example when the system is low on memory.
+     * The character set may be loaded again later using any of the loading methods. Conversions
+     * using an unloaded character set throw an {@link IllegalStateException}. Tables previously
+     * returned by {@link #getTable()} are unaffected.
+     * @param useTraditional true to unload the traditional character set, false to unload the
+     *                       simplified character set
+     */
+    public void unloadData(final boolean useTraditional) {
+
+        synchronized(useTraditional ? mTraditionalLock : mSimplifiedLock) {
+
+            if(!mTable.hasCharacterSet(useTraditional))
+                return;
+
+            LOG.fine("Unloading " + (useTraditional ? "traditional" : "simplified") + " data.");
+            publish(useTraditional, null);
+
+        }
+
+    }
+
+    /**
+     * Loads all data needed to perform conversions on background threads. The simplified and
+     * traditional character sets are loaded in parallel, and the given listener is notified as
+     * each one finishes.
+     * @param listener the listener to notify, or null
+     */
+    public void loadAllDataAsync(@Nullable final OnDataLoadedListener listener) {
+        loadDataAsync(false, listener);
+        loadDataAsync(true, listener);
+    }
+
+    /**
+     * Loads the data needed to perform conversions using a single character set on a background
+     * thread. The given listener is notified once loading finishes, even if the data had already
+     * been loaded.
+     * @param useTraditional true to load the traditional character set, false to load the
+     *                       simplified character set
+     * @param listener the listener to notify, or null
+     * @return a Future whose value is true if data is loaded successfully, false otherwise
+     */
+    @NonNull
+    public Future<Boolean> loadDataAsync(final boolean useTraditional,
+                                         @Nullable final OnDataLoadedListener listener) {
+
+        return mLoadExecutor.submit(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+
+                boolean success = loadData(useTraditional);
+
+                if(listener != null)
+                    listener.onDataLoaded(useTraditional, success);
+
+                return success;
+
+            }
+
+        });
+
+    }
+
+    /**
+     * Returns whether or not all data needed to perform conversions has been loaded.
+     * @return true if all needed data has been loaded, false otherwise
+     */
+    public boolean isLoaded() {
+        CodeTable table = mTable;
+        return (table.hasCharacterSet(false) && table.hasCharacterSet(true));
+    }
+
+    /**
+     * Returns whether or not the data needed to perform conversions using a single character set
+     * has been loaded.
+     * @param useTraditional true to check the traditional character set, false to check the
+     *                       simplified character set
+     * @return true if the character set has been loaded, false otherwise
+     */
+    public boolean isLoaded(final boolean useTraditional) {
+        return mTable.hasCharacterSet(useTraditional);
+    }
+
+    /**
+     * Returns an immutable snapshot of the data loaded so far. The returned table is not affected
+     * by any later loading or unloading.
+     * @return the current CodeTable
+     */
+    @NonNull
+    public CodeTable getTable() {
+        return mTable;
+    }
+
+    /**
+     * Converts the given Chinese character codepoint into the corresponding telegraph code. For
+     * example, an input of 0x56FD will yield 948 with the simplified character set. Unlike
+     * {@link #simplifiedToTelegraph(int)}, this method does not allocate.
+     * @param code a valid Chinese character codepoint
+     * @param useTraditional true to use the traditional character set, false to use the
+     *                       simplified character set
+     * @return the corresponding telegraph code, or {@link #NOT_FOUND} if no corresponding
+     *         telegraph code is found
+     */
+    public int hanToTelegraph(final int code, final boolean useTraditional) {
+        return requireTable(useTraditional).hanToTelegraph(code, useTraditional);
+    }
+
+    /**
+     * Converts the given telegraph code into the corresponding Chinese character codepoint. For
+     * example, an input of 948 will yield 0x56FD with the simplified character set. Unlike
+     * {@link #telegraphToSimplified(int)}, this method does not allocate.
+     * @param code a valid Chinese telegraph code
+     * @param useTraditional true to use the traditional character set, false to use the
+     *                       simplified character set
+     * @return the corresponding Chinese character codepoint, or {@link #NOT_FOUND} if no
+     *         corresponding codepoint is found
+     */
+    public int telegraphToHan(final int code, final boolean useTraditional) {
+        return requireTable(useTraditional).telegraphToHan(code, useTraditional);
+    }
+
+    /**
+     * Converts the given simplified Chinese character codepoint into the corresponding telegraph
+     * code. For example, an input of 0x56FD will yield 948.
+     * @param code a valid simplified Chinese character codepoint
+     * @return the corresponding telegraph code, or null if no corresponding telegraph code is found
+     */
+    @Nullable
+    public Integer simplifiedToTelegraph(final int code) {
+        return box(hanToTelegraph(code, false));
+    }
+
+    /**
+     * Converts the given traditional Chinese character codepoint into the corresponding telegraph
+     * code. For example, an input of 0x56FD will yield 948.
+     * @param code a valid traditional Chinese character codepoint
+     * @return the corresponding telegraph code, or null if no corresponding telegraph code is found
+     */
+    @Nullable
+    public Integer traditionalToTelegraph(final int code) {
+        return box(hanToTelegraph(code, true));
+    }
+
+    /**
+     * Converts the given telegraph code into the corresponding simplified Chinese character
+     * codepoint. For example, an input of 948 will yield 0x56FD.
+     * @param code a valid Chinese telegraph code
+     * @return the corresponding simplified Chinese character codepoint, or null if no
+     *         corresponding codepoint is found
+     */
+    @Nullable
+    public Integer telegraphToSimplified(final int code) {
+        return box(telegraphToHan(code, false));
+    }
+
+    /**
+     * Converts the given telegraph code into the corresponding traditional Chinese character
+     * codepoint. For example, an input of 948 will yield 0x570B.
+     * @param code a valid Chinese telegraph code
+     * @return the corresponding traditional Chinese character codepoint, or null if no
+     *         corresponding codepoint is found
+     */
+    @Nullable
+    public Integer telegraphToTraditional(final int code) {
+        return box(telegraphToHan(code, true));
+    }
+
+    /**
+     * Converts simplified Chinese character codepoints into telegraph codes in bulk. Each element
+     * of in[off] through in[off + len - 1] is converted, and the result is stored in the element
+     * of out[0] through out[len - 1] at the same position.
+     * @param in simplified Chinese character codepoints
+     * @param off the index of the first codepoint to convert
+     * @param len the number of codepoints to convert
+     * @param out the array receiving the telegraph codes, or {@link #NOT_FOUND} for each
+     *            codepoint with no corresponding telegraph code
+     * @return the number of codepoints for which a telegraph code was found
+     * @throws IndexOutOfBoundsException if the given range lies outside either array
+     */
+    public int simplifiedToTelegraph(@NonNull final int[] in, final int off, final int len,
+                                     @NonNull final int[] out) {
+        return requireTable(false).hanToTelegraph(in, off, len, out, false);
+    }
+
+    /**
+     * Converts traditional Chinese character codepoints into telegraph codes in bulk. Each element
+     * of in[off] through in[off + len - 1] is converted, and the result is stored in the element
+     * of out[0] through out[len - 1] at the same position.
+     * @param in traditional Chinese character codepoints
+     * @param off the index of the first codepoint to convert
+     * @param len the number of codepoints to convert
+     * @param out the array receiving the telegraph codes, or {@link #NOT_FOUND} for each
+     *            codepoint with no corresponding telegraph code
+     * @return the number of codepoints for which a telegraph code was found
+     * @throws IndexOutOfBoundsException if the given range lies outside either array
+     */
+    public int traditionalToTelegraph(@NonNull final int[] in, final int off, final int len,
+                                      @NonNull final int[] out) {
+        return requireTable(true).hanToTelegraph(in, off, len, out, true);
+    }
+
+    /**
+     * Converts telegraph codes into simplified Chinese character codepoints in bulk. Each element
+     * of in[off] through in[off + len - 1] is converted, and the result is stored in the element
+     * of out[0] through out[len - 1] at the same position.
+     * @param in Chinese telegraph codes
+     * @param off the index of the first telegraph code to convert
+     * @param len the number of telegraph codes to convert
+     * @param out the array receiving the codepoints, or {@link #NOT_FOUND} for each telegraph code
+     *            with no corresponding codepoint
+     * @return the number of telegraph codes for which a codepoint was found
+     * @throws IndexOutOfBoundsException if the given range lies outside either array
+     */
+    public int telegraphToSimplified(@NonNull final int[] in, final int off, final int len,
+                                     @NonNull final int[] out) {
+        return requireTable(false).telegraphToHan(in, off, len, out, false);
+    }
+
+    /**
+     * Converts telegraph codes into traditional Chinese character codepoints in bulk. Each element
+     * of in[off] through in[off + len - 1] is converted, and the result is stored in the element
+     * of out[0] through out[len - 1] at the same position.
+     * @param in Chinese telegraph codes
+     * @param off the index of the first telegraph code to convert
+     * @param len the number of telegraph codes to convert
+     * @param out the array receiving the codepoints, or {@link #NOT_FOUND} for each telegraph code
+     *            with no corresponding codepoint
+     * @return the number of telegraph codes for which a codepoint was found
+     * @throws IndexOutOfBoundsException if the given range lies outside either array
+     */
+    public int telegraphToTraditional(@NonNull final int[] in, final int off, final int len,
+                                      @NonNull final int[] out) {
+        return requireTable(true).telegraphToHan(in, off, len, out, true);
+    }
+
+    /**
+     * Returns the current table, checking that it holds the given character set.
+     * @param useTraditional true for the traditional character set, false for simplified
+     * @return the current CodeTable
+     * @throws IllegalStateException if the character set has not been loaded
+     */
+    @NonNull
+    private CodeTable requireTable(final boolean useTraditional) {
+
+        CodeTable table = mTable;
+
+        if(!table.hasCharacterSet(useTraditional)) {
+            throw new IllegalStateException((useTraditional ? "Traditional" : "Simplified") +
+                    " dictionary has not been loaded.");
+        }
+
+        return table;
+
+    }
+
+    /**
+     * Replaces the current table with one in which the given character set holds the given map.
+     * Since each character set is loaded independently, updates are serialized here so that
+     * neither can overwrite the other.
+     * @param map the character set's entries, or null to remove the character set
+     */
+    private synchronized void publish(final boolean useTraditional, @Nullable final CodeMap map) {
+        mTable = new CodeTable.Builder(mTable).setCharacterSet(useTraditional, map).build();
+    }
+
+    /**
+     * Loads data for simplified character codes into a new map.
+     * @return the loaded map, or null if data could not be loaded
+     */
+    @Nullable
+    private CodeMap loadSimplifiedData() {
+        CodeMap.Builder builder = new CodeMap.Builder();
+        return readData(false, builder, "simplified") ? builder.build() : null;
+    }
+
+    /**
+     * Loads data for traditional character codes into a new map.
+     * @return the loaded map, or null if data could not be loaded
+     */
+    @Nullable
+    private CodeMap loadTraditionalData() {
+        CodeMap.Builder builder = new CodeMap.Builder();
+        return readData(true, builder, "traditional") ? builder.build() : null;
+    }
+
+    /**
+     * Loads a character set's code table from the source into the given builder. Code tables
+     * produced by the <code>compileDictionary</code> Gradle task are read in the binary format
+     * described by {@link DictionaryFormat}; any other code table is parsed as plain text by
+     * {@link CodeTableParser}.
+     * @param useTraditional true for the traditional character set, false for simplified
+     * @param builder the builder which will receive the code table's entries
+     * @param name the name of the character set, used for logging
+     * @return true if data is loaded successfully, false otherwise
+     */
+    private boolean readData(final boolean useTraditional, @NonNull final CodeMap.Builder builder,
+                             @NonNull final String name) {
+
+        InputStream stream = null;
+
+        try {
+
+            LOG.fine("Loading " + name + " data.");
+
+            stream = new BufferedInputStream(mSource.open(useTraditional));
+
+            byte[] magic = new byte[4];
+            stream.mark(magic.length);
+            int magicLength = stream.read(magic);
+            stream.reset();
+
+            if(magicLength == magic.length && DictionaryFormat.isCompiled(magic))
+                DictionaryFormat.read(stream, builder);
+            else
+                CodeTableParser.parse(stream, builder);
+
+            LOG.fine("Finished loading " + name + " data.");
+
+        } catch (IOException e) {
+
+            LOG.log(Level.SEVERE, "Error occurred while attempting to read " + name + " data.", e);
+            return false;
+
+        } finally {
+
+            try {
+                if(stream != null)
+                    stream.close();
+            } catch (IOException e) {
+                LOG.log(Level.SEVERE, "Error occurred while attempting to close " + name +
+                        " data!", e);
+            }
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Boxes the result of a lookup, mapping {@link #NOT_FOUND} to null.
+     * @param value a codepoint or telegraph code, or {@link #NOT_FOUND}
+     * @return the boxed value, or null if value is {@link #NOT_FOUND}
+     */
+    @Nullable
+    private static Integer box(final int value) {
+        return (value == NOT_FOUND) ? null : value;
+    }
+
+    /**
+     * Interface used to notify implementing classes when dictionary data finishes loading.
+     */
+    public interface OnDataLoadedListener {
+
+        /**
+         * Invoked on a background thread when a character set finishes loading.
+         * @param useTraditional true if the traditional character set was loaded, false if the
+         *                       simplified character set was loaded
+         * @param success true if data is loaded successfully, false otherwise
+         */
+        void onDataLoaded(boolean useTraditional, boolean success);
+
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * The CodeMap class abstracts a bidirectional map to convert Unicode codepoints to telegraph
+ * codes, and vice-versa, for a single character set.
+ * <p>
+ * Both directions are backed by primitive arrays. Telegraph codes are four decimal digits, so
+ * every possible code has a slot in a dense table. Codepoints are grouped into pages of 256,
+ * and only pages which contain at least one mapped codepoint are allocated.
+ * <p>
+ * CodeMaps are immutable, and are created using a {@link Builder}. Since every field is final,
+ * a CodeMap may be shared between threads without synchronization.
+ * <p>
+ * A CodeMap holds a character set while it is being loaded. Once loaded, the character sets are
+ * combined into a single {@link MergedCodeMap}, which is what lookups are performed against.
+ */
+final class CodeMap {
+
+    /** A map containing no entries. */
+    static final CodeMap EMPTY = new CodeMap(new short[0], new int[0], new short[0]);
+
+    static final int TELEGRAPH_CODE_COUNT = 10000;
+
+    static final int PAGE_SHIFT = 8;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+    static final int PAGE_COUNT = (Character.MAX_VALUE + 1) >> PAGE_SHIFT;
+
+    // Unused telegraph codes map to codepoint zero
+    private static final short NO_CODEPOINT = 0;
+
+    // Unused codepoint slots map to telegraph code NOT_FOUND
+    private static final short NO_TELEGRAPH = (short) CodeTable.NOT_FOUND;
+
+    // CTC code is index, Unicode codepoint (stored as an unsigned 16-bit value) is element
+    private final short[] mTelegraphToHan;
+
+    // High byte of a Unicode codepoint is index, offset into mHanToTelegraph is element. Pages
+    // containing no codepoints have a negative offset.
+    private final int[] mPageOffsets;
+
+    // Pages of CTC codes, indexed by the low byte of a Unicode codepoint
+    private final short[] mHanToTelegraph;
+
+    /**
+     * Constructs a CodeMap which takes ownership of the given arrays.
+     */
+    private CodeMap(@NonNull short[] telegraphToHan, @NonNull int[] pageOffsets,
+                    @NonNull short[] hanToTelegraph) {
+        mTelegraphToHan = telegraphToHan;
+        mPageOffsets = pageOffsets;
+        mHanToTelegraph = hanToTelegraph;
+    }
+
+    /**
+     * Returns the telegraph code to which the specified Chinese character codepoint is mapped,
+     * or {@link CodeTable#NOT_FOUND} if this map contains no mapping for the codepoint.
+     * @param han a Chinese character Unicode codepoint
+     * @return the corresponding Chinese telegraph code, or {@link CodeTable#NOT_FOUND}
+     */
+    int hanToTelegraph(int han) {
+
+        int page = han >> PAGE_SHIFT;
+        if(han < 0 || page >= mPageOffsets.length)
+            return CodeTable.NOT_FOUND;
+
+        int offset = mPageOffsets[page];
+        if(offset < 0)
+            return CodeTable.NOT_FOUND;
+
+        return mHanToTelegraph[offset + (han & PAGE_MASK)];
+
+    }
+
+    /**
+     * Returns the Chinese character codepoint to which the specified telegraph code is mapped,
+     * or {@link CodeTable#NOT_FOUND} if this map contains no mapping for the telegraph code.
+     * @param telegraph a Chinese telegraph code
+     * @return the corresponding Chinese character Unicode codepoint, or
+     *         {@link CodeTable#NOT_FOUND}
+     */
+    int telegraphToHan(int telegraph) {
+
+        if(telegraph < 0 || telegraph >= mTelegraphToHan.length)
+            return CodeTable.NOT_FOUND;
+
+        int han = mTelegraphToHan[telegraph] & 0xFFFF;
+        return (han == NO_CODEPOINT) ? CodeTable.NOT_FOUND : han;
+
+    }
+
+    /**
+     * Builder is used to construct immutable {@link CodeMap} instances.
+     */
+    static final class Builder {
+
+        private final short[] mTelegraphToHan;
+        private final int[] mPageOffsets;
+        private short[] mHanToTelegraph;
+        private int mPageCount;
+
+        /**
+         * Constructs a Builder containing no entries.
+         */
+        Builder() {
+            this(null);
+        }
+
+        /**
+         * Constructs a Builder containing the entries of the given map.
+         * @param source the map whose entries are copied, or null
+         */
+        Builder(@Nullable CodeMap source) {
+
+            mTelegraphToHan = new short[TELEGRAPH_CODE_COUNT];
+            mPageOffsets = new int[PAGE_COUNT];
+            Arrays.fill(mPageOffsets, -1);
+            mHanToTelegraph = new short[0];
+            mPageCount = 0;
+
+            if(source != null) {
+                System.arraycopy(source.mTelegraphToHan, 0, mTelegraphToHan, 0,
+                        source.mTelegraphToHan.length);
+                System.arraycopy(source.mPageOffsets, 0, mPageOffsets, 0,
+                        source.mPageOffsets.length);
+                mHanToTelegraph = source.mHanToTelegraph.clone();
+                mPageCount = mHanToTelegraph.length / PAGE_SIZE;
+            }
+
+        }
+
+        /**
+         * Associates the specified Chinese character codepoint with the specified telegraph code.
+         * If the builder previously contained a mapping for this codepoint or telegraph code, the
+         * old value is replaced.
+         * @param han a Chinese character Unicode codepoint in the Basic Multilingual Plane
+         * @param telegraph a Chinese telegraph code
+         * @return this Builder
+         * @throws IllegalArgumentException if either value lies outside the supported range
+         */
+        @NonNull
+        Builder put(int han, int telegraph) {
+
+            putHanToTelegraph(han, telegraph);
+            putTelegraphToHan(telegraph, han);
+
+            return this;
+
+        }
+
+        /**
+         * Maps the specified Chinese character codepoint to the specified telegraph code, without
+         * changing the codepoint to which the telegraph code maps. This allows a map to be copied
+         * exactly when some telegraph codes are shared by several codepoints.
+         * @param han a Chinese character Unicode codepoint in the Basic Multilingual Plane
+         * @param telegraph a Chinese telegraph code
+         * @return this Builder
+         * @throws IllegalArgumentException if either value lies outside the supported range
+         */
+        @NonNull
+        Builder putHanToTelegraph(int han, int telegraph) {
+
+            checkRange(han, telegraph);
+
+            int page = han >> PAGE_SHIFT;
+            if(mPageOffsets[page] < 0)
+                mPageOffsets[page] = allocatePage();
+
+            mHanToTelegraph[mPageOffsets[page] + (han & PAGE_MASK)] = (short) telegraph;
+
+            return this;
+
+        }
+
+        /**
+         * Maps the specified telegraph code to the specified Chinese character codepoint, without
+         * changing the telegraph code to which the codepoint maps.
+         * @param telegraph a Chinese telegraph code
+         * @param han a Chinese character Unicode codepoint in the Basic Multilingual Plane
+         * @return this Builder
+         * @throws IllegalArgumentException if either value lies outside the supported range
+         */
+        @NonNull
+        Builder putTelegraphToHan(int telegraph, int han) {
+
+            checkRange(han, telegraph);
+            mTelegraphToHan[telegraph] = (short) han;
+
+            return this;
+
+        }
+
+        /**
+         * Associates each codepoint in the given array with the telegraph code at the same index.
+         * Entries are added in array order, so later entries replace earlier ones exactly as if
+         * {@link #put(int, int)} had been called for each.
+         * @param hans Chinese character Unicode codepoints
+         * @param telegraphs Chinese telegraph codes, parallel to hans
+         * @return this Builder
+         * @throws IllegalArgumentException if any value lies outside the supported range
+         */
+        @NonNull
+        Builder putAll(@NonNull int[] hans, @NonNull int[] telegraphs) {
+
+            if(hans.length != telegraphs.length)
+                throw new IllegalArgumentException("Array lengths differ.");
+
+            for(int i = 0; i < hans.length; i++)
+                put(hans[i], telegraphs[i]);
+
+            return this;
+
+        }
+
+        /**
+         * Creates a CodeMap containing the entries added to this builder. The builder may continue
+         * to be used afterwards without affecting the returned map.
+         * @return a new CodeMap
+         */
+        @NonNull
+        CodeMap build() {
+
+            // Trailing pages with no codepoints need no offsets
+            int pageLimit = mPageOffsets.length;
+            while(pageLimit > 0 && mPageOffsets[pageLimit - 1] < 0)
+                pageLimit--;
+
+            return new CodeMap(mTelegraphToHan.clone(), Arrays.copyOf(mPageOffsets, pageLimit),
+                    mHanToTelegraph.clone());
+
+        }
+
+        /**
+         * Checks that the given codepoint and telegraph code can be stored in a map.
+         * @throws IllegalArgumentException if either value lies outside the supported range
+         */
+        private static void checkRange(int han, int telegraph) {
+
+            if(han <= 0 || han > Character.MAX_VALUE)
+                throw new IllegalArgumentException("Codepoint out of range: " + han);
+
+            if(telegraph < 0 || telegraph >= TELEGRAPH_CODE_COUNT)
+                throw new IllegalArgumentException("Telegraph code out of range: " + telegraph);
+
+        }
+
+        /**
+         * Appends an empty page to the codepoint table.
+         * @return the offset of the new page
+         */
+        private int allocatePage() {
+
+            int offset = mPageCount * PAGE_SIZE;
+
+            mHanToTelegraph = Arrays.copyOf(mHanToTelegraph, offset + PAGE_SIZE);
+            Arrays.fill(mHanToTelegraph, offset, offset + PAGE_SIZE, NO_TELEGRAPH);
+            mPageCount++;
+
+            return offset;
+
+        }
+
+    }
+
+}
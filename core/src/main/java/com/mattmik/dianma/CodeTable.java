@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * CodeTable is an immutable snapshot of the data used to convert from Chinese characters to Chinese
+ * telegraph code, and vice-versa, in the simplified and traditional character sets. A table may
+ * hold either character set, both, or neither.
+ * <p>
+ * Both character sets are stored together in a single {@link MergedCodeMap}, so characters which
+ * they have in common take no extra space. Lookups are plain array reads. Since a CodeTable never
+ * changes once built, it may be shared
+ * between any number of threads without synchronization. Tables are created using a
+ * {@link Builder}, or obtained from {@link CodeDictionary#getTable()}.
+ */
+public final class CodeTable {
+
+    /**
+     * Returned by lookups when no corresponding codepoint or telegraph code is found.
+     */
+    public static final int NOT_FOUND = -1;
+
+    /** A table holding neither character set. */
+    public static final CodeTable EMPTY = new Builder().build();
+
+    private final MergedCodeMap mMap;
+    private final boolean mHasSimplified;
+    private final boolean mHasTraditional;
+
+    /**
+     * Constructs a CodeTable. Absent character sets are merged as empty maps, so that lookups
+     * never need to check for them.
+     */
+    private CodeTable(@Nullable CodeMap simplified, @Nullable CodeMap traditional) {
+        mHasSimplified = (simplified != null);
+        mHasTraditional = (traditional != null);
+        mMap = MergedCodeMap.merge(mHasSimplified ? simplified : CodeMap.EMPTY,
+                mHasTraditional ? traditional : CodeMap.EMPTY);
+    }
+
+    /**
+     * Returns whether or not this table holds the given character set.
+     * @param useTraditional true to check the traditional character set, false to check the
+     *                       simplified character set
+     * @return true if the character set is present, false otherwise
+     */
+    public boolean hasCharacterSet(final boolean useTraditional) {
+        return useTraditional ? mHasTraditional : mHasSimplified;
+    }
+
+    /**
+     * Returns the lowest codepoint which may have a telegraph code in either character set. If
+     * any surrogate may have a telegraph code, every surrogate lies within the range.
+     * @return the start of the range of codepoints with telegraph codes
+     */
+    int getHanRangeStart() {
+        return mMap.getHanRangeStart();
+    }
+
+    /**
+     * Returns the codepoint after the highest codepoint which may have a telegraph code in either
+     * character set. Codepoints outside the range never need to be looked up.
+     * @return the end of the range of codepoints with telegraph codes, or zero if there are none
+     */
+    int getHanRangeEnd() {
+        return mMap.getHanRangeEnd();
+    }
+
+    /**
+     * Converts the given Chinese character codepoint into the corresponding telegraph code. For
+     * example, an input of 0x56FD will yield 948 with the simplified character set.
+     * @param code a Chinese character codepoint
+     * @param useTraditional true to use the traditional character set, false to use the
+     *                       simplified character set
+     * @return the corresponding telegraph code, or {@link #NOT_FOUND} if no corresponding
+     *         telegraph code is found or the character set is not present
+     */
+    public int hanToTelegraph(final int code, final boolean useTraditional) {
+        return mMap.hanToTelegraph(code, useTraditional);
+    }
+
+    /**
+     * Converts the given telegraph code into the corresponding Chinese character codepoint. For
+     * example, an input of 948 will yield 0x56FD with the simplified character set.
+     * @param code a Chinese telegraph code
+     * @param useTraditional true to use the traditional character set, false to use the
+     *                       simplified character set
+     * @return the corresponding Chinese character codepoint, or {@link #NOT_FOUND} if no
+     *         corresponding codepoint is found or the character set is not present
+     */
+    public int telegraphToHan(final int code, final boolean useTraditional) {
+        return mMap.telegraphToHan(code, useTraditional);
+    }
+
+    /**
+     * Converts Chinese character codepoints into telegraph codes in bulk. Each element of in[off]
+     * through in[off + len - 1] is converted as if by {@link #hanToTelegraph(int, boolean)}, and
+     * the result is stored in the element of out[0] through out[len - 1] at the same position.
+     * @param in the Chinese character codepoints to convert
+     * @param off the index of the first codepoint to convert
+     * @param len the number of codepoints to convert
+     * @param out the array receiving the telegraph codes, or {@link #NOT_FOUND} for each
+     *            codepoint with no corresponding telegraph code
+     * @param useTraditional true to use the traditional character set, false to use the
+     *                       simplified character set
+     * @return the number of codepoints for which a telegraph code was found
+     * @throws IndexOutOfBoundsException if the given range lies outside either array
+     */
+    public int hanToTelegraph(@NonNull final int[] in, final int off, final int len,
+                              @NonNull final int[] out, final boolean useTraditional) {
+        checkBounds(in, off, len, out);
+        return mMap.hanToTelegraph(in, off, len, out, useTraditional);
+    }
+
+    /**
+     * Converts telegraph codes into Chinese character codepoints in bulk. Each element of in[off]
+     * through in[off + len - 1] is converted as if by {@link #telegraphToHan(int, boolean)}, and
+     * the result is stored in the element of out[0] through out[len - 1] at the same position.
+     * @param in the Chinese telegraph codes to convert
+     * @param off the index of the first telegraph code to convert
+     * @param len the number of telegraph codes to convert
+     * @param out the array receiving the codepoints, or {@link #NOT_FOUND} for each telegraph code
+     *            with no corresponding codepoint
+     * @param useTraditional true to use the traditional character set, false to use the
+     *                       simplified character set
+     * @return the number of telegraph codes for which a codepoint was found
+     * @throws IndexOutOfBoundsException if the given range lies outside either array
+     */
+    public int telegraphToHan(@NonNull final int[] in, final int off, final int len,
+                              @NonNull final int[] out, final boolean useTraditional) {
+        checkBounds(in, off, len, out);
+        return mMap.telegraphToHan(in, off, len, out, useTraditional);
+    }
+
+    /**
+     * Checks the arguments of a bulk conversion.
+     * @throws IndexOutOfBoundsException if the given range lies outside either array
+     */
+    private static void checkBounds(@NonNull final int[] in, final int off, final int len,
+                                    @NonNull final int[] out) {
+
+        if(off < 0 || len < 0 || off > in.length - len || len > out.length) {
+            throw new IndexOutOfBoundsException("Range [" + off + ", " + off + " + " + len +
+                    ") out of bounds for input length " + in.length + " and output length " +
+                    out.length);
+        }
+
+    }
+
+    /**
+     * Builder is used to construct immutable {@link CodeTable} instances, either from scratch or
+     * by adding or removing character sets from an existing table.
+     * <p>
+     * This class is not thread-safe.
+     */
+    public static final class Builder {
+
+        // For each character set, either a map copied from an existing table, or a builder which
+        // has received new entries, or neither if the character set is absent
+        private CodeMap mSimplified;
+        private CodeMap mTraditional;
+        private CodeMap.Builder mSimplifiedBuilder;
+        private CodeMap.Builder mTraditionalBuilder;
+
+        /**
+         * Constructs a Builder holding neither character set.
+         */
+        public Builder() {
+            // Empty!
+        }
+
+        /**
+         * Constructs a Builder holding the same character sets as the given table.
+         * @param table an existing CodeTable
+         */
+        public Builder(@NonNull CodeTable table) {
+            mSimplified = table.mHasSimplified ? table.mMap.extract(false) : null;
+            mTraditional = table.mHasTraditional ? table.mMap.extract(true) : null;
+        }
+
+        /**
+         * Associates the specified Chinese character codepoint with the specified telegraph code
+         * in the given character set, adding the character set if it is not yet present. If the
+         * character set previously contained a mapping for this codepoint or telegraph code, the
+         * old value is replaced.
+         * @param useTraditional true to use the traditional character set, false to use the
+         *                       simplified character set
+         * @param codepoint a Chinese character Unicode codepoint in the Basic Multilingual Plane
+         * @param telegraph a Chinese telegraph code
+         * @return this Builder
+         * @throws IllegalArgumentException if either value lies outside the supported range
+         */
+        @NonNull
+        public Builder put(final boolean useTraditional, final int codepoint,
+                           final int telegraph) {
+            mapBuilder(useTraditional).put(codepoint, telegraph);
+            return this;
+        }
+
+        /**
+         * Removes the given character set and all of its entries.
+         * @param useTraditional true to remove the traditional character set, false to remove the
+         *                       simplified character set
+         * @return this Builder
+         */
+        @NonNull
+        public Builder remove(final boolean useTraditional) {
+            return setCharacterSet(useTraditional, null);
+        }
+
+        /**
+         * Replaces the given character set with the entries of the given map.
+         * @param map the character set's entries, or null to remove the character set
+         * @return this Builder
+         */
+        @NonNull
+        Builder setCharacterSet(final boolean useTraditional, @Nullable final CodeMap map) {
+
+            if(useTraditional) {
+                mTraditional = map;
+                mTraditionalBuilder = null;
+            } else {
+                mSimplified = map;
+                mSimplifiedBuilder = null;
+            }
+
+            return this;
+
+        }
+
+        /**
+         * Creates a CodeTable holding the character sets added to this builder. The builder may
+         * continue to be used afterwards without affecting the returned table.
+         * @return a new CodeTable
+         */
+        @NonNull
+        public CodeTable build() {
+
+            CodeMap simplified = (mSimplifiedBuilder != null) ? mSimplifiedBuilder.build() :
+                    mSimplified;
+            CodeMap traditional = (mTraditionalBuilder != null) ? mTraditionalBuilder.build() :
+                    mTraditional;
+
+            return new CodeTable(simplified, traditional);
+
+        }
+
+        /**
+         * Returns a builder for the entries of the given character set, copying any existing
+         * entries into it.
+         */
+        @NonNull
+        private CodeMap.Builder mapBuilder(final boolean useTraditional) {
+
+            if(useTraditional) {
+                if(mTraditionalBuilder == null)
+                    mTraditionalBuilder = new CodeMap.Builder(mTraditional);
+                return mTraditionalBuilder;
+            }
+
+            if(mSimplifiedBuilder == null)
+                mSimplifiedBuilder = new CodeMap.Builder(mSimplified);
+            return mSimplifiedBuilder;
+
+        }
+
+    }
+
+}
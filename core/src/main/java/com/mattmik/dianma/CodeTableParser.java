@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * CodeTableParser reads code tables stored as plain text, one entry per line. Each line is of the
+ * form "U+XXXX YYYY", where XXXX is a hexadecimal Unicode codepoint and YYYY is a telegraph code of
+ * at most four digits. Blank lines are ignored, and lines may end with either LF or CRLF.
+ * <p>
+ * Since the format is pure ASCII, the parser scans raw bytes rather than decoding characters, and
+ * does not allocate for each line it reads.
+ */
+final class CodeTableParser {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    // Longest hexadecimal codepoint and decimal telegraph code accepted, in digits
+    private static final int MAX_CODEPOINT_DIGITS = 6;
+    private static final int MAX_TELEGRAPH_DIGITS = 4;
+
+    // Parser states, one for each part of a line
+    private static final int STATE_LINE_START = 0;
+    private static final int STATE_PREFIX = 1;
+    private static final int STATE_CODEPOINT = 2;
+    private static final int STATE_SEPARATOR = 3;
+    private static final int STATE_TELEGRAPH = 4;
+    private static final int STATE_LINE_END = 5;
+
+    // Private constructor to prevent instantiation
+    private CodeTableParser() {
+        // Empty!
+    }
+
+    /**
+     * Parses a plain text code table from the given stream into the given builder. Entries are
+     * added in the order in which they appear.
+     * @param stream a stream positioned at the start of a plain text code table
+     * @param builder the builder which will receive the table's entries
+     * @throws MalformedCodeTableException if a line of the table is malformed
+     * @throws IOException if the stream cannot be read
+     */
+    static void parse(@NonNull InputStream stream, @NonNull CodeMap.Builder builder)
+            throws IOException {
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        int state = STATE_LINE_START;
+        int lineNumber = 1;
+        int codepoint = 0;
+        int telegraph = 0;
+        int digits = 0;
+
+        int length;
+        while((length = stream.read(buffer)) != -1) {
+
+            for(int i = 0; i < length; i++) {
+
+                int b = buffer[i];
+
+                switch(state) {
+
+                    case STATE_LINE_START:
+                        if(b == '\n') {
+                            lineNumber++;
+                        } else if(b == 'U') {
+                            state = STATE_PREFIX;
+                        } else if(!isSpace(b)) {
+                            throw new MalformedCodeTableException(lineNumber,
+                                    "expected \"U+\" at start of entry");
+                        }
+                        break;
+
+                    case STATE_PREFIX:
+                        if(b != '+') {
+                            throw new MalformedCodeTableException(lineNumber,
+                                    "expected \"U+\" at start of entry");
+                        }
+                        state = STATE_CODEPOINT;
+                        codepoint = 0;
+                        digits = 0;
+                        break;
+
+                    case STATE_CODEPOINT: {
+                        int value = hexValue(b);
+                        if(value >= 0 && digits < MAX_CODEPOINT_DIGITS) {
+                            codepoint = (codepoint << 4) | value;
+                            digits++;
+                        } else if(digits > 0 && (b == ' ' || b == '\t')) {
+                            state = STATE_SEPARATOR;
+                        } else {
+                            throw new MalformedCodeTableException(lineNumber,
+                                    "invalid codepoint");
+                        }
+                        break;
+                    }
+
+                    case STATE_SEPARATOR:
+                        if(b >= '0' && b <= '9') {
+                            state = STATE_TELEGRAPH;
+                            telegraph = b - '0';
+                            digits = 1;
+                        } else if(b != ' ' && b != '\t') {
+                            throw new MalformedCodeTableException(lineNumber,
+                                    "expected telegraph code");
+                        }
+                        break;
+
+                    case STATE_TELEGRAPH:
+                        if(b >= '0' && b <= '9' && digits < MAX_TELEGRAPH_DIGITS) {
+                            telegraph = telegraph * 10 + (b - '0');
+                            digits++;
+                        } else if(b == '\n') {
+                            put(builder, codepoint, telegraph, lineNumber);
+                            state = STATE_LINE_START;
+                            lineNumber++;
+                        } else if(isSpace(b)) {
+                            state = STATE_LINE_END;
+                        } else {
+                            throw new MalformedCodeTableException(lineNumber,
+                                    "invalid telegraph code");
+                        }
+                        break;
+
+                    case STATE_LINE_END:
+                        if(b == '\n') {
+                            put(builder, codepoint, telegraph, lineNumber);
+                            state = STATE_LINE_START;
+                            lineNumber++;
+                        } else if(!isSpace(b)) {
+                            throw new MalformedCodeTableException(lineNumber,
+                                    "unexpected text after telegraph code");
+                        }
+                        break;
+
+                }
+
+            }
+
+        }
+
+        // The last line need not end with a line break
+        if(state == STATE_TELEGRAPH || state == STATE_LINE_END)
+            put(builder, codepoint, telegraph, lineNumber);
+        else if(state != STATE_LINE_START)
+            throw new MalformedCodeTableException(lineNumber, "unexpected end of entry");
+
+    }
+
+    /**
+     * Adds a parsed entry to the given builder.
+     * @throws MalformedCodeTableException if the builder cannot hold the entry
+     */
+    private static void put(@NonNull CodeMap.Builder builder, int codepoint, int telegraph,
+                            int lineNumber) throws MalformedCodeTableException {
+
+        try {
+            builder.put(codepoint, telegraph);
+        } catch(IllegalArgumentException e) {
+            throw new MalformedCodeTableException(lineNumber, e.getMessage());
+        }
+
+    }
+
+    /**
+     * Returns whether or not the given byte is whitespace which may appear within a line.
+     */
+    private static boolean isSpace(int b) {
+        return (b == ' ' || b == '\t' || b == '\r');
+    }
+
+    /**
+     * Returns the value of the given hexadecimal digit, or -1 if the byte is not a hexadecimal
+     * digit.
+     */
+    private static int hexValue(int b) {
+
+        if(b >= '0' && b <= '9')
+            return b - '0';
+
+        if(b >= 'A' && b <= 'F')
+            return b - 'A' + 10;
+
+        if(b >= 'a' && b <= 'f')
+            return b - 'a' + 10;
+
+        return -1;
+
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * DictionaryFormat reads code tables stored in the compiled binary format produced by the
+ * <code>compileDictionary</code> Gradle task. All values are big-endian 32-bit integers:
+ * <pre>
+ * magic      'C' 'T' 'C' 'D'
+ * version    {@link #VERSION}
+ * count      number of entries
+ * checksum   CRC-32 of the two arrays below
+ * codepoints count Unicode codepoints, in ascending order
+ * telegraphs count telegraph codes, parallel to codepoints
+ * </pre>
+ * Because entries are sorted by codepoint, loading them in order reproduces the mappings of the
+ * plain text tables they were compiled from.
+ */
+final class DictionaryFormat {
+
+    /** The first four bytes of every compiled code table. */
+    static final int MAGIC = 0x43544344;
+
+    /** The only version of the format understood by this class. */
+    static final int VERSION = 1;
+
+    // No code table can hold more entries than there are codepoints in the BMP
+    private static final int MAX_ENTRIES = Character.MAX_VALUE + 1;
+
+    // Private constructor to prevent instantiation
+    private DictionaryFormat() {
+        // Empty!
+    }
+
+    /**
+     * Returns whether or not the given bytes begin with the compiled code table magic number.
+     * @param magic the first four bytes of a code table resource
+     * @return true if the bytes start a compiled code table, false otherwise
+     */
+    static boolean isCompiled(@NonNull byte[] magic) {
+        return magic.length >= 4 && ByteBuffer.wrap(magic).getInt(0) == MAGIC;
+    }
+
+    /**
+     * Reads a compiled code table from the given stream into the given builder. The entry
+     * arrays are read in a single bulk read and decoded through an {@link IntBuffer} view.
+     * @param stream a stream positioned at the start of a compiled code table
+     * @param builder the builder which will receive the table's entries
+     * @throws IOException if the stream cannot be read, or does not hold a valid code table
+     */
+    static void read(@NonNull InputStream stream, @NonNull CodeMap.Builder builder)
+            throws IOException {
+
+        DataInputStream input = new DataInputStream(stream);
+
+        if(input.readInt() != MAGIC)
+            throw new IOException("Resource is not a compiled code table.");
+
+        int version = input.readInt();
+        if(version != VERSION)
+            throw new IOException("Unsupported code table version " + version + ".");
+
+        int count = input.readInt();
+        if(count < 0 || count > MAX_ENTRIES)
+            throw new IOException("Invalid code table entry count " + count + ".");
+
+        int checksum = input.readInt();
+
+        byte[] payload = new byte[count * 8];
+        input.readFully(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        if((int) crc.getValue() != checksum)
+            throw new IOException("Code table checksum mismatch.");
+
+        int[] codepoints = new int[count];
+        int[] telegraphs = new int[count];
+
+        IntBuffer entries = ByteBuffer.wrap(payload).asIntBuffer();
+        entries.get(codepoints);
+        entries.get(telegraphs);
+
+        try {
+            builder.putAll(codepoints, telegraphs);
+        } catch(IllegalArgumentException e) {
+            throw new IOException("Code table contains an invalid entry.", e);
+        }
+
+    }
+
+}
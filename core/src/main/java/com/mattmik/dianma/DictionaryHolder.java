@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+
+import java.util.logging.Logger;
+
+/**
+ * DictionaryHolder shares a single {@link CodeDictionary} among every component of the app, so
+ * that dictionary data survives Activity recreation and is loaded at most once per process.
+ * <p>
+ * Components obtain the dictionary with {@link #acquire()} and must call {@link #release()} once
+ * they no longer need it. A dictionary which is no longer referenced is kept, so that a recreated
+ * Activity can reuse it, until the system asks the app to trim its memory.
+ * <p>
+ * This class is thread-safe.
+ */
+public class DictionaryHolder {
+
+    private static final Logger LOG = Logger.getLogger(DictionaryHolder.class.getName());
+
+    private final DictionarySource mSource;
+
+    private CodeDictionary mDictionary;
+    private int mReferenceCount;
+
+    /**
+     * Constructs a DictionaryHolder. No dictionary is created until {@link #acquire()} is called.
+     * @param source the source from which the dictionary reads its code tables
+     */
+    public DictionaryHolder(@NonNull final DictionarySource source) {
+        mSource = source;
+        mDictionary = null;
+        mReferenceCount = 0;
+    }
+
+    /**
+     * Returns the shared dictionary, creating it if needed, and adds a reference to it. Every call
+     * must be balanced by a call to {@link #release()}.
+     * @return the shared CodeDictionary
+     */
+    @NonNull
+    public synchronized CodeDictionary acquire() {
+
+        if(mDictionary == null) {
+            LOG.fine("Creating shared dictionary.");
+            mDictionary = new CodeDictionary(mSource);
+        }
+
+        mReferenceCount++;
+        return mDictionary;
+
+    }
+
+    /**
+     * Removes a reference previously added by {@link #acquire()}.
+     */
+    public synchronized void release() {
+
+        if(mReferenceCount == 0)
+            throw new IllegalStateException("Dictionary released more times than acquired.");
+
+        mReferenceCount--;
+
+    }
+
+    /**
+     * Returns the number of components currently holding the shared dictionary.
+     * @return the reference count
+     */
+    public synchronized int getReferenceCount() {
+        return mReferenceCount;
+    }
+
+    /**
+     * Releases the shared dictionary if no component currently holds it. Components which still
+     * hold the dictionary are responsible for unloading any character set they do not use.
+     */
+    public synchronized void trimMemory() {
+
+        if(mReferenceCount == 0 && mDictionary != null) {
+            LOG.fine("Releasing unreferenced shared dictionary.");
+            mDictionary = null;
+        }
+
+    }
+
+}
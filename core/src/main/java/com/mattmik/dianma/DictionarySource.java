@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Provides the code table data read by a {@link CodeDictionary}. Each character set is opened
+ * separately, so that it can be loaded independently of the other.
+ * <p>
+ * The Android app reads its code tables from raw resources, while other programs may read them
+ * from files or the classpath. A stream may hold a code table either in the binary format
+ * described by {@link DictionaryFormat} or in the plain text format read by
+ * {@link CodeTableParser}.
+ */
+public interface DictionarySource {
+
+    /**
+     * Opens the code table for a single character set. The stream is closed by the caller.
+     * @param useTraditional true to open the traditional character set, false to open the
+     *                       simplified character set
+     * @return a stream holding the code table
+     * @throws IOException if the code table could not be opened
+     */
+    @NonNull
+    InputStream open(boolean useTraditional) throws IOException;
+
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mattmik.dianma.tokenizer.SpanTokenizer;
+
+/**
+ * IncrementalTranslator keeps the translation of a text which is being edited, and brings it up
+ * to date by translating only the tokens touched by each {@link TextEdit}.
+ * <p>
+ * The text is divided into the same tokens the {@link Translator} uses: a codepoint when
+ * converting Chinese characters to telegraph codes, and a run of digits, whitespace or other
+ * codepoint in the other direction. The number of input and output chars of every token is held
+ * in a gap buffer whose gap follows the most recent edit, so the cost of an edit depends on its
+ * size and its distance from the previous edit rather than on the length of the text.
+ * <p>
+ * An edit is applied when it starts from the version of the text which was last translated.
+ * Otherwise, as when a request carrying an edit was never run, the changed region is found by
+ * comparing the two texts, which costs far less than translating them. The whole text is only
+ * translated again when the translation settings change. Long texts may be translated by a
+ * {@link ParallelTranslator}.
+ * <p>
+ * Instances of this class are not thread-safe.
+ */
+public final class IncrementalTranslator {
+
+    /**
+     * Receives the output of a long translation while it is in progress.
+     */
+    public interface OnPartialResultListener {
+
+        /**
+         * Called from time to time while the text is translated from some point to its end.
+         * @param partialResult the translation of the start of the text, which is only valid
+         *                      for the duration of the call
+         */
+        void onPartialResult(@NonNull CharSequence partialResult);
+
+    }
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // How many tokens are translated between checks for interruption and partial results
+    private static final int PROGRESS_CHECK_MASK = 0x3FF;
+
+    @Nullable
+    private final ParallelTranslator mParallelTranslator;
+
+    private CodeTable mTable;
+    private int mTranslateMode;
+    private boolean mUseTraditional;
+    private Translator mTranslator;
+
+    // The text which was last translated and its version, or null if there is none
+    @Nullable
+    private String mInput;
+    private int mVersion;
+
+    private final StringBuilder mOutput = new StringBuilder();
+    private final StringBuilder mRegionOutput = new StringBuilder();
+
+    // The lengths of the tokens before the gap are held in [0, mGapStart), and the lengths of the
+    // tokens after it in [mGapEnd, capacity). The offsets give the position of the gap.
+    private int[] mInputLengths = new int[INITIAL_CAPACITY];
+    private int[] mOutputLengths = new int[INITIAL_CAPACITY];
+    private int mGapStart;
+    private int mGapEnd = INITIAL_CAPACITY;
+    private int mGapInputOffset;
+    private int mGapOutputOffset;
+
+    private int mLastTranslatedLength;
+
+    @Nullable
+    private OnPartialResultListener mPartialResultListener;
+
+    /**
+     * Constructs a new IncrementalTranslator which translates on the calling thread.
+     */
+    public IncrementalTranslator() {
+        this(null);
+    }
+
+    /**
+     * Constructs a new IncrementalTranslator.
+     * @param parallelTranslator the translator for regions longer than its threshold, or null to
+     *                           translate every region on the calling thread
+     */
+    public IncrementalTranslator(@Nullable ParallelTranslator parallelTranslator) {
+        mParallelTranslator = parallelTranslator;
+    }
+
+    /**
+     * Translates the given version of the text.
+     * @param table the CodeTable used for translation, which must hold the selected character set
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param useTraditional true if translation should use traditional characters, false if
+     *                       translation should use simplified characters
+     * @param text the text to be translated
+     * @param version the version of the text
+     * @param edit the change from an earlier version of the text, or null if it is unknown
+     * @return the translated text, or null if the current thread was interrupted
+     * @throws IllegalArgumentException if the translation mode is invalid
+     */
+    @Nullable
+    public String translate(@NonNull CodeTable table, int translateMode, boolean useTraditional,
+                            @NonNull String text, int version, @Nullable TextEdit edit) {
+
+        boolean translated;
+
+        if(requiresFullTranslation(table, translateMode, useTraditional)) {
+
+            mTranslator = new Translator(table, translateMode, useTraditional);
+            mTable = table;
+            mTranslateMode = translateMode;
+            mUseTraditional = useTraditional;
+            translated = translateAll(text);
+
+        } else if(edit != null && canApply(edit, text, version)) {
+            translated = applyEdit(edit, text);
+        } else if(version == mVersion && text.equals(mInput)) {
+            translated = skip();
+        } else {
+            translated = applyEdit(diff(mInput, text), text);
+        }
+
+        if(!translated) {
+            mInput = null;
+            return null;
+        }
+
+        mInput = text;
+        mVersion = version;
+
+        return mOutput.toString();
+
+    }
+
+    /**
+     * Returns whether the next call to {@link #translate(CodeTable, int, boolean, String, int,
+     * TextEdit)} with the given settings will translate the whole text, as it does when there is
+     * no previous translation or the settings have changed.
+     * @param table the CodeTable used for translation
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param useTraditional true if translation should use traditional characters, false if
+     *                       translation should use simplified characters
+     * @return true if the whole text will be translated
+     */
+    public boolean requiresFullTranslation(@NonNull CodeTable table, int translateMode,
+                                           boolean useTraditional) {
+        return mInput == null || table != mTable || translateMode != mTranslateMode
+                || useTraditional != mUseTraditional;
+    }
+
+    /**
+     * Sets the listener which receives partial results. These are only reported while the
+     * translated region extends to the end of the text, so that the output is built in order.
+     * @param listener the listener, or null to report no partial results
+     */
+    public void setOnPartialResultListener(@Nullable OnPartialResultListener listener) {
+        mPartialResultListener = listener;
+    }
+
+    /**
+     * Returns the number of input chars translated by the last call to {@link
+     * #translate(CodeTable, int, boolean, String, int, TextEdit)}.
+     * @return the length of the text which was translated
+     */
+    public int getLastTranslatedLength() {
+        return mLastTranslatedLength;
+    }
+
+    /**
+     * Returns whether the given edit leads from the cached text to the given text.
+     */
+    private boolean canApply(@NonNull TextEdit edit, @NonNull String text, int version) {
+
+        int length = mInput.length();
+
+        return edit.getBaseVersion() == mVersion && edit.getVersion() == version
+                && edit.getStart() + edit.getBefore() <= length
+                && text.length() == length - edit.getBefore() + edit.getCount();
+
+    }
+
+    /**
+     * Returns an edit covering every char which differs between the two texts.
+     */
+    @NonNull
+    private static TextEdit diff(@NonNull String oldText, @NonNull String newText) {
+
+        final int oldLength = oldText.length();
+        final int newLength = newText.length();
+        final int length = Math.min(oldLength, newLength);
+
+        int prefix = 0;
+        while(prefix < length && oldText.charAt(prefix) == newText.charAt(prefix))
+            prefix++;
+
+        int suffix = 0;
+        while(suffix < length - prefix
+                && oldText.charAt(oldLength - 1 - suffix) == newText.charAt(newLength - 1 - suffix))
+            suffix++;
+
+        return new TextEdit(0, 0, prefix, oldLength - prefix - suffix,
+                newLength - prefix - suffix);
+
+    }
+
+    /**
+     * Leaves the cached translation as it is.
+     */
+    private boolean skip() {
+
+        mLastTranslatedLength = 0;
+        return true;
+
+    }
+
+    /**
+     * Discards the cached translation and translates the given text in its entirety.
+     */
+    private boolean translateAll(@NonNull String text) {
+
+        mGapStart = 0;
+        mGapEnd = mInputLengths.length;
+        mGapInputOffset = 0;
+        mGapOutputOffset = 0;
+        mOutput.setLength(0);
+        mOutput.ensureCapacity(
+                Translator.estimateOutputLength(mTranslateMode, text, 0, text.length()));
+        mLastTranslatedLength = text.length();
+
+        return translateRegion(text, 0, text.length(), mOutput);
+
+    }
+
+    /**
+     * Replaces the tokens touched by the given edit with the translation of their new text.
+     */
+    private boolean applyEdit(@NonNull TextEdit edit, @NonNull String text) {
+
+        final int start = edit.getStart();
+        final int oldEnd = start + edit.getBefore();
+
+        // The token before the edit is included, since the edit may join onto it
+        moveGapTo(start > 0 ? start - 1 : 0);
+
+        int regionStart = mGapInputOffset;
+        int removedInput = 0;
+        int removedOutput = 0;
+
+        // Remove every token overlapping the edit, and the token which follows it
+        while(mGapEnd < mInputLengths.length && regionStart + removedInput <= oldEnd) {
+            removedInput += mInputLengths[mGapEnd];
+            removedOutput += mOutputLengths[mGapEnd];
+            mGapEnd++;
+        }
+
+        int regionEnd = regionStart + removedInput + edit.getCount() - edit.getBefore();
+
+        // Widen the region until it begins and ends on token boundaries of the new text
+        while(regionStart > 0 && Translator.isJoined(mTranslateMode, text, regionStart)) {
+            mGapStart--;
+            regionStart -= mInputLengths[mGapStart];
+            removedOutput += mOutputLengths[mGapStart];
+            mGapInputOffset -= mInputLengths[mGapStart];
+            mGapOutputOffset -= mOutputLengths[mGapStart];
+        }
+
+        while(regionEnd < text.length() && Translator.isJoined(mTranslateMode, text, regionEnd)) {
+            regionEnd += mInputLengths[mGapEnd];
+            removedOutput += mOutputLengths[mGapEnd];
+            mGapEnd++;
+        }
+
+        final int outputStart = mGapOutputOffset;
+
+        mLastTranslatedLength = regionEnd - regionStart;
+
+        // A region at the end of the text, as when text is pasted into an empty field, is
+        // translated in place, which allows its progress to be reported
+        if(regionEnd == text.length()) {
+            mOutput.setLength(outputStart);
+            mOutput.ensureCapacity(outputStart + Translator.estimateOutputLength(mTranslateMode,
+                    text, regionStart, regionEnd));
+            return translateRegion(text, regionStart, regionEnd, mOutput);
+        }
+
+        mRegionOutput.setLength(0);
+        mRegionOutput.ensureCapacity(
+                Translator.estimateOutputLength(mTranslateMode, text, regionStart, regionEnd));
+
+        if(!translateRegion(text, regionStart, regionEnd, mRegionOutput))
+            return false;
+
+        mOutput.replace(outputStart, outputStart + removedOutput, mRegionOutput.toString());
+
+        return true;
+
+    }
+
+    /**
+     * Translates the given range of the text, which must begin and end on token boundaries,
+     * inserting its tokens before the gap.
+     */
+    private boolean translateRegion(@NonNull String text, int start, int end,
+                                    @NonNull StringBuilder output) {
+
+        if(mParallelTranslator != null && end - start >= mParallelTranslator.getThreshold())
+            return translateRegionInParallel(text, start, end, output);
+
+        final SpanTokenizer tokenizer = mTranslator.createTokenizer(text, start, end);
+
+        int count = 0;
+
+        while(tokenizer.hasMoreTokens()) {
+
+            if((++count & PROGRESS_CHECK_MASK) == 0) {
+
+                if(Thread.currentThread().isInterrupted())
+                    return false;
+
+                reportPartialResult(output);
+
+            }
+
+            int kind = tokenizer.next();
+            int outputLength = output.length();
+
+            mTranslator.translateToken(kind, tokenizer, output);
+            insertToken(tokenizer.getEnd() - tokenizer.getStart(),
+                    output.length() - outputLength);
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Translates the given range of the text using the ParallelTranslator.
+     */
+    private boolean translateRegionInParallel(@NonNull String text, int start, int end,
+                                              @NonNull StringBuilder output) {
+
+        final ParallelTranslator.Chunk[] chunks;
+
+        try {
+            chunks = mParallelTranslator.translateChunks(mTable, mTranslateMode,
+                    mUseTraditional, text, start, end, true);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        for(ParallelTranslator.Chunk chunk : chunks) {
+
+            output.append(chunk.mOutput);
+            for(int i = 0; i < chunk.mTokenCount; i++)
+                insertToken(chunk.mInputLengths[i], chunk.mOutputLengths[i]);
+
+            reportPartialResult(output);
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Passes the output so far to the listener, if it is being built in place.
+     */
+    private void reportPartialResult(@NonNull StringBuilder output) {
+
+        if(mPartialResultListener != null && output == mOutput)
+            mPartialResultListener.onPartialResult(mOutput);
+
+    }
+
+    /**
+     * Adds a token before the gap.
+     */
+    private void insertToken(int inputLength, int outputLength) {
+
+        if(mGapStart == mGapEnd)
+            growGap();
+
+        mInputLengths[mGapStart] = inputLength;
+        mOutputLengths[mGapStart] = outputLength;
+        mGapStart++;
+        mGapInputOffset += inputLength;
+        mGapOutputOffset += outputLength;
+
+    }
+
+    /**
+     * Moves the gap so that the token after it contains the given input offset, or to the end if
+     * no token does.
+     */
+    private void moveGapTo(int offset) {
+
+        while(mGapStart > 0 && mGapInputOffset > offset) {
+            mGapStart--;
+            mGapEnd--;
+            mInputLengths[mGapEnd] = mInputLengths[mGapStart];
+            mOutputLengths[mGapEnd] = mOutputLengths[mGapStart];
+            mGapInputOffset -= mInputLengths[mGapEnd];
+            mGapOutputOffset -= mOutputLengths[mGapEnd];
+        }
+
+        while(mGapEnd < mInputLengths.length
+                && mGapInputOffset + mInputLengths[mGapEnd] <= offset) {
+            mInputLengths[mGapStart] = mInputLengths[mGapEnd];
+            mOutputLengths[mGapStart] = mOutputLengths[mGapEnd];
+            mGapInputOffset += mInputLengths[mGapStart];
+            mGapOutputOffset += mOutputLengths[mGapStart];
+            mGapStart++;
+            mGapEnd++;
+        }
+
+    }
+
+    /**
+     * Doubles the capacity of the gap buffer.
+     */
+    private void growGap() {
+
+        int capacity = mInputLengths.length;
+        int tail = capacity - mGapEnd;
+        int[] inputLengths = new int[capacity * 2];
+        int[] outputLengths = new int[capacity * 2];
+
+        System.arraycopy(mInputLengths, 0, inputLengths, 0, mGapStart);
+        System.arraycopy(mOutputLengths, 0, outputLengths, 0, mGapStart);
+        System.arraycopy(mInputLengths, mGapEnd, inputLengths, capacity * 2 - tail, tail);
+        System.arraycopy(mOutputLengths, mGapEnd, outputLengths, capacity * 2 - tail, tail);
+
+        mInputLengths = inputLengths;
+        mOutputLengths = outputLengths;
+        mGapEnd = capacity * 2 - tail;
+
+    }
+
+}
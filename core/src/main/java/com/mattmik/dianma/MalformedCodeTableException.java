@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link CodeTableParser} when a line of a plain text code table cannot be parsed.
+ */
+public class MalformedCodeTableException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int mLineNumber;
+
+    /**
+     * Constructs a new MalformedCodeTableException.
+     * @param lineNumber the one-based number of the malformed line
+     * @param reason a description of the problem
+     */
+    public MalformedCodeTableException(int lineNumber, String reason) {
+        super("Line " + lineNumber + ": " + reason);
+        mLineNumber = lineNumber;
+    }
+
+    /**
+     * Returns the number of the malformed line.
+     * @return the one-based line number
+     */
+    public int getLineNumber() {
+        return mLineNumber;
+    }
+
+}
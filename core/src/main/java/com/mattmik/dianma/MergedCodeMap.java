@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+import static com.mattmik.dianma.CodeMap.PAGE_COUNT;
+import static com.mattmik.dianma.CodeMap.PAGE_MASK;
+import static com.mattmik.dianma.CodeMap.PAGE_SHIFT;
+import static com.mattmik.dianma.CodeMap.PAGE_SIZE;
+import static com.mattmik.dianma.CodeMap.TELEGRAPH_CODE_COUNT;
+
+/**
+ * The MergedCodeMap class is a bidirectional map between Unicode codepoints and telegraph codes
+ * which serves the simplified and traditional character sets at once.
+ * <p>
+ * Most characters are either shared by both character sets with the same code, or belong to
+ * only one of them, so each codepoint and each telegraph code is stored once along with flags
+ * recording which character sets it belongs to. The comparatively few entries for which the
+ * traditional character set differs from the simplified one are kept in small sorted variant
+ * tables. A lookup is a single array read, followed by a binary search of a variant table only
+ * when the traditional character set differs.
+ * <p>
+ * MergedCodeMaps are immutable, and may be shared between threads without synchronization.
+ */
+final class MergedCodeMap {
+
+    // Telegraph code flags, packed two bits per code
+    private static final int FLAG_SIMPLIFIED = 1;
+    private static final int FLAG_TRADITIONAL = 2;
+    private static final int FLAG_MASK = 3;
+    private static final int FLAGS_PER_INT_SHIFT = 4;
+
+    // A codepoint slot holds a telegraph code in its low bits and character set flags above it.
+    // An empty slot is zero.
+    private static final int SLOT_CODE_MASK = 0x3FFF;
+    private static final int SLOT_SIMPLIFIED = 0x4000;
+    private static final int SLOT_TRADITIONAL = 0x8000;
+
+    // CTC code is index, codepoint is element. The codepoint belongs to the simplified character
+    // set if it has one, and to the traditional character set otherwise.
+    private final char[] mTelegraphToHan;
+
+    // CTC code is index, FLAG_SIMPLIFIED and FLAG_TRADITIONAL mark which character sets share
+    // the codepoint in mTelegraphToHan
+    private final int[] mTelegraphFlags;
+
+    // Sorted CTC codes whose traditional codepoint differs from their simplified one, and the
+    // traditional codepoints themselves
+    private final short[] mVariantTelegraphs;
+    private final char[] mVariantTelegraphHans;
+
+    // High byte of a Unicode codepoint is index, offset into mHanToTelegraph is element. Pages
+    // containing no codepoints have a negative offset.
+    private final int[] mPageOffsets;
+
+    // Pages of codepoint slots, indexed by the low byte of a Unicode codepoint
+    private final short[] mHanToTelegraph;
+
+    // Sorted codepoints whose traditional CTC code differs from their simplified one, and the
+    // traditional CTC codes themselves
+    private final char[] mVariantHans;
+    private final short[] mVariantHanTelegraphs;
+
+    // Every codepoint with a slot lies in [mHanRangeStart, mHanRangeEnd). If any surrogate has a
+    // slot, the range covers every surrogate.
+    private final int mHanRangeStart;
+    private final int mHanRangeEnd;
+
+    /**
+     * Constructs a MergedCodeMap which takes ownership of the given arrays.
+     */
+    private MergedCodeMap(@NonNull char[] telegraphToHan, @NonNull int[] telegraphFlags,
+                          @NonNull short[] variantTelegraphs, @NonNull char[] variantTelegraphHans,
+                          @NonNull int[] pageOffsets, @NonNull short[] hanToTelegraph,
+                          @NonNull char[] variantHans, @NonNull short[] variantHanTelegraphs,
+                          int hanRangeStart, int hanRangeEnd) {
+        mTelegraphToHan = telegraphToHan;
+        mTelegraphFlags = telegraphFlags;
+        mVariantTelegraphs = variantTelegraphs;
+        mVariantTelegraphHans = variantTelegraphHans;
+        mPageOffsets = pageOffsets;
+        mHanToTelegraph = hanToTelegraph;
+        mVariantHans = variantHans;
+        mVariantHanTelegraphs = variantHanTelegraphs;
+        mHanRangeStart = hanRangeStart;
+        mHanRangeEnd = hanRangeEnd;
+    }
+
+    /**
+     * Combines the given character sets into a single MergedCodeMap. Lookups against the result
+     * return exactly what the same lookups against the given maps would.
+     * @param simplified the simplified character set, or {@link CodeMap#EMPTY} if absent
+     * @param traditional the traditional character set, or {@link CodeMap#EMPTY} if absent
+     * @return a new MergedCodeMap
+     */
+    @NonNull
+    static MergedCodeMap merge(@NonNull CodeMap simplified, @NonNull CodeMap traditional) {
+
+        // Telegraph codes beyond the last one in use need no storage
+        int telegraphLimit = TELEGRAPH_CODE_COUNT;
+        while(telegraphLimit > 0
+                && simplified.telegraphToHan(telegraphLimit - 1) == CodeTable.NOT_FOUND
+                && traditional.telegraphToHan(telegraphLimit - 1) == CodeTable.NOT_FOUND)
+            telegraphLimit--;
+
+        char[] telegraphToHan = new char[telegraphLimit];
+        int[] telegraphFlags = new int[(telegraphLimit + (1 << FLAGS_PER_INT_SHIFT) - 1)
+                >> FLAGS_PER_INT_SHIFT];
+        short[] variantTelegraphs = new short[telegraphLimit];
+        char[] variantTelegraphHans = new char[telegraphLimit];
+        int variantTelegraphCount = 0;
+
+        for(int telegraph = 0; telegraph < telegraphLimit; telegraph++) {
+
+            int simplifiedHan = simplified.telegraphToHan(telegraph);
+            int traditionalHan = traditional.telegraphToHan(telegraph);
+            int flags = 0;
+
+            if(simplifiedHan != CodeTable.NOT_FOUND) {
+
+                telegraphToHan[telegraph] = (char) simplifiedHan;
+                flags = FLAG_SIMPLIFIED;
+
+                if(traditionalHan == simplifiedHan) {
+                    flags |= FLAG_TRADITIONAL;
+                } else if(traditionalHan != CodeTable.NOT_FOUND) {
+                    variantTelegraphs[variantTelegraphCount] = (short) telegraph;
+                    variantTelegraphHans[variantTelegraphCount] = (char) traditionalHan;
+                    variantTelegraphCount++;
+                }
+
+            } else if(traditionalHan != CodeTable.NOT_FOUND) {
+
+                telegraphToHan[telegraph] = (char) traditionalHan;
+                flags = FLAG_TRADITIONAL;
+
+            }
+
+            telegraphFlags[telegraph >> FLAGS_PER_INT_SHIFT] |= flags << flagShift(telegraph);
+
+        }
+
+        int[] pageOffsets = new int[PAGE_COUNT];
+        short[] hanToTelegraph = new short[PAGE_COUNT * PAGE_SIZE];
+        char[] variantHans = new char[PAGE_COUNT * PAGE_SIZE];
+        short[] variantHanTelegraphs = new short[PAGE_COUNT * PAGE_SIZE];
+        int pageLimit = 0;
+        int slotCount = 0;
+        int variantHanCount = 0;
+        int hanRangeStart = 0;
+        int hanRangeEnd = 0;
+        boolean surrogateUsed = false;
+
+        for(int page = 0; page < PAGE_COUNT; page++) {
+
+            boolean pageUsed = false;
+
+            for(int han = page << PAGE_SHIFT; han < (page + 1) << PAGE_SHIFT; han++) {
+
+                int simplifiedCode = simplified.hanToTelegraph(han);
+                int traditionalCode = traditional.hanToTelegraph(han);
+                int slot = 0;
+
+                if(simplifiedCode != CodeTable.NOT_FOUND) {
+
+                    slot = simplifiedCode | SLOT_SIMPLIFIED;
+
+                    if(traditionalCode == simplifiedCode) {
+                        slot |= SLOT_TRADITIONAL;
+                    } else if(traditionalCode != CodeTable.NOT_FOUND) {
+                        variantHans[variantHanCount] = (char) han;
+                        variantHanTelegraphs[variantHanCount] = (short) traditionalCode;
+                        variantHanCount++;
+                    }
+
+                } else if(traditionalCode != CodeTable.NOT_FOUND) {
+
+                    slot = traditionalCode | SLOT_TRADITIONAL;
+
+                }
+
+                hanToTelegraph[slotCount + (han & PAGE_MASK)] = (short) slot;
+
+                if(slot != 0) {
+
+                    if(hanRangeEnd == 0)
+                        hanRangeStart = han;
+
+                    hanRangeEnd = han + 1;
+                    pageUsed = true;
+                    surrogateUsed |= (han >= Character.MIN_SURROGATE
+                            && han <= Character.MAX_SURROGATE);
+
+                }
+
+            }
+
+            if(pageUsed) {
+                pageOffsets[page] = slotCount;
+                slotCount += PAGE_SIZE;
+                pageLimit = page + 1;
+            } else {
+                pageOffsets[page] = -1;
+            }
+
+        }
+
+        if(surrogateUsed) {
+            hanRangeStart = Math.min(hanRangeStart, Character.MIN_SURROGATE);
+            hanRangeEnd = Math.max(hanRangeEnd, Character.MAX_SURROGATE + 1);
+        }
+
+        return new MergedCodeMap(telegraphToHan, telegraphFlags,
+                Arrays.copyOf(variantTelegraphs, variantTelegraphCount),
+                Arrays.copyOf(variantTelegraphHans, variantTelegraphCount),
+                Arrays.copyOf(pageOffsets, pageLimit), Arrays.copyOf(hanToTelegraph, slotCount),
+                Arrays.copyOf(variantHans, variantHanCount),
+                Arrays.copyOf(variantHanTelegraphs, variantHanCount), hanRangeStart, hanRangeEnd);
+
+    }
+
+    /**
+     * Returns the lowest codepoint which may have a telegraph code. If any surrogate may have a
+     * telegraph code, every surrogate lies within the range.
+     * @return the start of the range of codepoints with telegraph codes
+     */
+    int getHanRangeStart() {
+        return mHanRangeStart;
+    }
+
+    /**
+     * Returns the codepoint after the highest codepoint which may have a telegraph code.
+     * @return the end of the range of codepoints with telegraph codes, or zero if there are none
+     */
+    int getHanRangeEnd() {
+        return mHanRangeEnd;
+    }
+
+    /**
+     * Returns the telegraph code to which the specified Chinese character codepoint is mapped in
+     * the given character set, or {@link CodeTable#NOT_FOUND} if there is no such mapping.
+     * @param han a Chinese character Unicode codepoint
+     * @param useTraditional true to use the traditional character set, false to use the
+     *                       simplified character set
+     * @return the corresponding Chinese telegraph code, or {@link CodeTable#NOT_FOUND}
+     */
+    int hanToTelegraph(int han, boolean useTraditional) {
+
+        int page = han >> PAGE_SHIFT;
+        if(han < 0 || page >= mPageOffsets.length)
+            return CodeTable.NOT_FOUND;
+
+        int offset = mPageOffsets[page];
+        if(offset < 0)
+            return CodeTable.NOT_FOUND;
+
+        int slot = mHanToTelegraph[offset + (han & PAGE_MASK)] & 0xFFFF;
+
+        if((slot & (useTraditional ? SLOT_TRADITIONAL : SLOT_SIMPLIFIED)) != 0)
+            return slot & SLOT_CODE_MASK;
+
+        // Only a traditional lookup of a simplified codepoint may still have a match
+        if(!useTraditional || slot == 0)
+            return CodeTable.NOT_FOUND;
+
+        return variantHanToTelegraph(han);
+
+    }
+
+    /**
+     * Converts codepoints in bulk, as if by calling {@link #hanToTelegraph(int, boolean)} for
+     * each element of in[off] through in[off + len - 1] and storing the results in out[0]
+     * through out[len - 1]. The caller is responsible for checking array bounds.
+     * @return the number of codepoints for which a telegraph code was found
+     */
+    int hanToTelegraph(int[] in, int off, int len, int[] out, boolean useTraditional) {
+
+        final int[] pageOffsets = mPageOffsets;
+        final short[] slots = mHanToTelegraph;
+        final int flag = useTraditional ? SLOT_TRADITIONAL : SLOT_SIMPLIFIED;
+        int found = 0;
+
+        for(int i = 0; i < len; i++) {
+
+            int han = in[off + i];
+            int page = han >> PAGE_SHIFT;
+            int telegraph = CodeTable.NOT_FOUND;
+
+            if(han >= 0 && page < pageOffsets.length && pageOffsets[page] >= 0) {
+
+                int slot = slots[pageOffsets[page] + (han & PAGE_MASK)] & 0xFFFF;
+
+                if((slot & flag) != 0)
+                    telegraph = slot & SLOT_CODE_MASK;
+                else if(useTraditional && slot != 0)
+                    telegraph = variantHanToTelegraph(han);
+
+            }
+
+            out[i] = telegraph;
+            if(telegraph != CodeTable.NOT_FOUND)
+                found++;
+
+        }
+
+        return found;
+
+    }
+
+    /**
+     * Returns the Chinese character codepoint to which the specified telegraph code is mapped in
+     * the given character set, or {@link CodeTable#NOT_FOUND} if there is no such mapping.
+     * @param telegraph a Chinese telegraph code
+     * @param useTraditional true to use the traditional character set, false to use the
+     *                       simplified character set
+     * @return the corresponding Chinese character Unicode codepoint, or
+     *         {@link CodeTable#NOT_FOUND}
+     */
+    int telegraphToHan(int telegraph, boolean useTraditional) {
+
+        if(telegraph < 0 || telegraph >= mTelegraphToHan.length)
+            return CodeTable.NOT_FOUND;
+
+        int flags = (mTelegraphFlags[telegraph >> FLAGS_PER_INT_SHIFT] >>> flagShift(telegraph))
+                & FLAG_MASK;
+
+        if((flags & (useTraditional ? FLAG_TRADITIONAL : FLAG_SIMPLIFIED)) != 0)
+            return mTelegraphToHan[telegraph];
+
+        // Only a traditional lookup of a simplified telegraph code may still have a match
+        if(!useTraditional || flags == 0)
+            return CodeTable.NOT_FOUND;
+
+        return variantTelegraphToHan(telegraph);
+
+    }
+
+    /**
+     * Converts telegraph codes in bulk, as if by calling {@link #telegraphToHan(int, boolean)}
+     * for each element of in[off] through in[off + len - 1] and storing the results in out[0]
+     * through out[len - 1]. The caller is responsible for checking array bounds.
+     * @return the number of telegraph codes for which a codepoint was found
+     */
+    int telegraphToHan(int[] in, int off, int len, int[] out, boolean useTraditional) {
+
+        final char[] hans = mTelegraphToHan;
+        final int[] telegraphFlags = mTelegraphFlags;
+        final int flag = useTraditional ? FLAG_TRADITIONAL : FLAG_SIMPLIFIED;
+        int found = 0;
+
+        for(int i = 0; i < len; i++) {
+
+            int telegraph = in[off + i];
+            int han = CodeTable.NOT_FOUND;
+
+            if(telegraph >= 0 && telegraph < hans.length) {
+
+                int flags = (telegraphFlags[telegraph >> FLAGS_PER_INT_SHIFT]
+                        >>> flagShift(telegraph)) & FLAG_MASK;
+
+                if((flags & flag) != 0)
+                    han = hans[telegraph];
+                else if(useTraditional && flags != 0)
+                    han = variantTelegraphToHan(telegraph);
+
+            }
+
+            out[i] = han;
+            if(han != CodeTable.NOT_FOUND)
+                found++;
+
+        }
+
+        return found;
+
+    }
+
+    /**
+     * Copies a single character set out of this map.
+     * @param useTraditional true to copy the traditional character set, false to copy the
+     *                       simplified character set
+     * @return a new CodeMap containing exactly the entries of the character set
+     */
+    @NonNull
+    CodeMap extract(boolean useTraditional) {
+
+        CodeMap.Builder builder = new CodeMap.Builder();
+
+        // Each direction is copied separately, since a telegraph code may be shared by several
+        // codepoints but maps back to only one of them
+        for(int telegraph = 0; telegraph < mTelegraphToHan.length; telegraph++) {
+            int han = telegraphToHan(telegraph, useTraditional);
+            if(han != CodeTable.NOT_FOUND)
+                builder.putTelegraphToHan(telegraph, han);
+        }
+
+        for(int page = 0; page < mPageOffsets.length; page++) {
+
+            if(mPageOffsets[page] < 0)
+                continue;
+
+            for(int han = page << PAGE_SHIFT; han < (page + 1) << PAGE_SHIFT; han++) {
+                int telegraph = hanToTelegraph(han, useTraditional);
+                if(telegraph != CodeTable.NOT_FOUND)
+                    builder.putHanToTelegraph(han, telegraph);
+            }
+
+        }
+
+        return builder.build();
+
+    }
+
+    /**
+     * Looks up the traditional telegraph code of a codepoint whose simplified code differs.
+     */
+    private int variantHanToTelegraph(int han) {
+        int index = Arrays.binarySearch(mVariantHans, (char) han);
+        return (index < 0) ? CodeTable.NOT_FOUND : mVariantHanTelegraphs[index];
+    }
+
+    /**
+     * Looks up the traditional codepoint of a telegraph code whose simplified codepoint differs.
+     */
+    private int variantTelegraphToHan(int telegraph) {
+        int index = Arrays.binarySearch(mVariantTelegraphs, (short) telegraph);
+        return (index < 0) ? CodeTable.NOT_FOUND : mVariantTelegraphHans[index];
+    }
+
+    /**
+     * Returns the position of the given telegraph code's flags within its packed int.
+     */
+    private static int flagShift(int telegraph) {
+        return (telegraph & ((1 << FLAGS_PER_INT_SHIFT) - 1)) << 1;
+    }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OutputBufferPool keeps one {@link StringBuilder} for each thread which translates, so that
+ * building translated text does not allocate a new buffer, or regrow one, every time.
+ * <p>
+ * A builder is taken with {@link #acquire(int)}, sized to hold the expected output, and given back
+ * with {@link #release(StringBuilder)}. Each thread keeps a builder sized to the output it has
+ * needed recently: builders up to 16K chars are always kept, and larger ones only once the thread
+ * has needed at least half as much on an earlier release, so that one very long text does not pin
+ * a large array for the life of the thread. The recent need decays with every release, so a
+ * large builder is dropped once the thread goes back to translating short texts. No builder
+ * larger than the maximum retained capacity is kept. Statistics are kept across all threads.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public final class OutputBufferPool {
+
+    /** The default capacity, in chars, above which builders are not kept. */
+    public static final int DEFAULT_MAX_RETAINED_CAPACITY = 8 * 1024 * 1024;
+
+    // Builders up to this capacity are kept whatever a thread has needed recently
+    private static final int MIN_RETAINED_CAPACITY = 16 * 1024;
+
+    private static final OutputBufferPool sDefault =
+            new OutputBufferPool(DEFAULT_MAX_RETAINED_CAPACITY);
+
+    private final int mMaxRetainedCapacity;
+
+    private final ThreadLocal<Slot> mSlots = new ThreadLocal<Slot>() {
+
+        @Override
+        protected Slot initialValue() {
+            return new Slot();
+        }
+
+    };
+
+    private final AtomicLong mAcquireCount = new AtomicLong();
+    private final AtomicLong mReuseCount = new AtomicLong();
+    private final AtomicLong mGrowthCount = new AtomicLong();
+    private final AtomicLong mDiscardCount = new AtomicLong();
+
+    /**
+     * Constructs a new OutputBufferPool.
+     * @param maxRetainedCapacity the capacity above which builders are not kept
+     */
+    public OutputBufferPool(int maxRetainedCapacity) {
+        mMaxRetainedCapacity = maxRetainedCapacity;
+    }
+
+    /**
+     * Returns the pool shared by the translation engine.
+     * @return the default pool
+     */
+    @NonNull
+    public static OutputBufferPool getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * Takes an empty builder with at least the given capacity. The calling thread's kept builder
+     * is used if it has one.
+     * @param capacity the expected length of the output
+     * @return an empty builder
+     */
+    @NonNull
+    public StringBuilder acquire(int capacity) {
+
+        mAcquireCount.incrementAndGet();
+
+        Slot slot = mSlots.get();
+        StringBuilder builder = slot.mBuilder;
+        slot.mBuilder = null;
+
+        if(builder == null || builder.capacity() < capacity) {
+            builder = new StringBuilder(capacity);
+        } else {
+            mReuseCount.incrementAndGet();
+            builder.setLength(0);
+        }
+
+        // Remembered so that growth can be detected on release
+        slot.lend(builder, capacity);
+
+        return builder;
+
+    }
+
+    /**
+     * Gives back a builder taken from this pool, which must no longer be used by the caller.
+     * @param builder the builder
+     */
+    public void release(@NonNull StringBuilder builder) {
+
+        Slot slot = mSlots.get();
+
+        boolean lent = slot.giveBack(builder);
+        if(lent && builder.capacity() > slot.mReturnedCapacity)
+            mGrowthCount.incrementAndGet();
+
+        // A builder is kept if the thread's need before this release would have filled half of it
+        int need = Math.max(builder.length(), lent ? slot.mReturnedRequest : 0);
+        long previousNeed = slot.mRecentNeed;
+        slot.mRecentNeed = Math.max(need, previousNeed - previousNeed / 4);
+
+        long limit = Math.min(mMaxRetainedCapacity,
+                Math.max(MIN_RETAINED_CAPACITY, 2 * previousNeed));
+        if(builder.capacity() > limit) {
+            mDiscardCount.incrementAndGet();
+            return;
+        }
+
+        // Keep the larger builder if this thread already holds one
+        if(slot.mBuilder == null || slot.mBuilder.capacity() < builder.capacity())
+            slot.mBuilder = builder;
+
+    }
+
+    /**
+     * Returns the number of builders taken.
+     * @return the acquire count
+     */
+    public long getAcquireCount() {
+        return mAcquireCount.get();
+    }
+
+    /**
+     * Returns the number of builders taken which were reused rather than allocated.
+     * @return the reuse count
+     */
+    public long getReuseCount() {
+        return mReuseCount.get();
+    }
+
+    /**
+     * Returns the number of builders which had to grow while in use.
+     * @return the growth count
+     */
+    public long getGrowthCount() {
+        return mGrowthCount.get();
+    }
+
+    /**
+     * Returns the number of builders which were too large to keep.
+     * @return the discard count
+     */
+    public long getDiscardCount() {
+        return mDiscardCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "OutputBufferPool[acquires=" + mAcquireCount.get() + ",reuses=" +
+                mReuseCount.get() + ",growths=" + mGrowthCount.get() + ",discards=" +
+                mDiscardCount.get() + "]";
+    }
+
+    /**
+     * The builder kept for one thread, and the builders it has taken and not yet given back.
+     */
+    private static final class Slot {
+
+        StringBuilder mBuilder;
+
+        // The output length the thread has needed recently, decaying with every release
+        long mRecentNeed;
+
+        // The capacity and requested capacity of the builder last given back
+        int mReturnedCapacity;
+        int mReturnedRequest;
+
+        // Acquires may nest, so the capacity of each builder in use is remembered separately
+        private StringBuilder[] mLent = new StringBuilder[2];
+        private int[] mLentCapacities = new int[2];
+        private int[] mLentRequests = new int[2];
+        private int mLentCount;
+
+        /**
+         * Records that the given builder has been taken.
+         */
+        void lend(@NonNull StringBuilder builder, int request) {
+
+            if(mLentCount == mLent.length) {
+                mLent = Arrays.copyOf(mLent, mLentCount * 2);
+                mLentCapacities = Arrays.copyOf(mLentCapacities, mLentCount * 2);
+                mLentRequests = Arrays.copyOf(mLentRequests, mLentCount * 2);
+            }
+
+            mLent[mLentCount] = builder;
+            mLentCapacities[mLentCount] = builder.capacity();
+            mLentRequests[mLentCount] = request;
+            mLentCount++;
+
+        }
+
+        /**
+         * Records that the given builder has been given back, setting its capacity and requested
+         * capacity when it was taken.
+         * @return true if the builder was taken from this slot
+         */
+        boolean giveBack(@NonNull StringBuilder builder) {
+
+            // Builders are usually given back in the reverse of the order they were taken
+            for(int i = mLentCount - 1; i >= 0; i--) {
+
+                if(mLent[i] == builder) {
+
+                    mReturnedCapacity = mLentCapacities[i];
+                    mReturnedRequest = mLentRequests[i];
+
+                    mLentCount--;
+                    System.arraycopy(mLent, i + 1, mLent, i, mLentCount - i);
+                    System.arraycopy(mLentCapacities, i + 1, mLentCapacities, i, mLentCount - i);
+                    System.arraycopy(mLentRequests, i + 1, mLentRequests, i, mLentCount - i);
+                    mLent[mLentCount] = null;
+
+                    return true;
+
+                }
+
+            }
+
+            return false;
+
+        }
+
+    }
+
+}
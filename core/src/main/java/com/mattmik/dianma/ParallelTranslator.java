@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+
+import com.mattmik.dianma.tokenizer.SpanTokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * ParallelTranslator translates long texts by dividing them into chunks which are translated on a
+ * shared pool of worker threads, and joining the results in order.
+ * <p>
+ * Texts shorter than the threshold are translated on the calling thread, as the cost of handing
+ * work to other threads outweighs the gain. Chunks are only divided between tokens, never within
+ * a surrogate pair or a run of digits, so the result is the same as that of a {@link
+ * Translator}. The calling thread translates the first chunk itself while it waits for the rest.
+ * <p>
+ * Instances of this class are thread-safe, provided that the translated text is not modified.
+ */
+public final class ParallelTranslator {
+
+    /**
+     * The default length at which a text is divided into chunks. Below this, the cost of handing
+     * chunks to other threads is expected to outweigh the gain.
+     * <p>
+     * This is an estimate rather than a measurement. It was extrapolated from the serial speed
+     * and the cost of handing off a chunk, both measured on a single core. The crossover on a
+     * multi-core device can be measured with {@code ParallelTranslateBenchmark} in the
+     * benchmark module.
+     */
+    public static final int DEFAULT_THRESHOLD = 32 * 1024;
+
+    private final ExecutorService mExecutor;
+    private final int mThreshold;
+    private final int mParallelism;
+
+    /**
+     * Constructs a new ParallelTranslator.
+     * @param executor the pool which translates chunks
+     * @param threshold the length at which a text is divided into chunks
+     * @param parallelism the number of chunks a text is divided into, which is typically the
+     *                    number of threads in the pool plus one for the calling thread
+     * @throws IllegalArgumentException if the threshold or parallelism is less than one
+     */
+    public ParallelTranslator(@NonNull ExecutorService executor, int threshold, int parallelism) {
+
+        if(threshold < 1 || parallelism < 1)
+            throw new IllegalArgumentException("Threshold and parallelism must be positive.");
+
+        mExecutor = executor;
+        mThreshold = threshold;
+        mParallelism = parallelism;
+
+    }
+
+    /**
+     * Returns the length at which a text is divided into chunks.
+     * @return the threshold
+     */
+    public int getThreshold() {
+        return mThreshold;
+    }
+
+    /**
+     * Translates the given text in its entirety.
+     * @param table the CodeTable used for translation, which must hold the selected character set
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param useTraditional true if translation should use traditional characters, false if
+     *                       translation should use simplified characters
+     * @param input the text to be translated
+     * @return the translated text
+     * @throws InterruptedException if the calling thread is interrupted while translating
+     * @throws IllegalArgumentException if the translation mode is invalid
+     */
+    @NonNull
+    public String translate(@NonNull CodeTable table, int translateMode, boolean useTraditional,
+                            @NonNull CharSequence input) throws InterruptedException {
+
+        Chunk[] chunks = translateChunks(table, translateMode, useTraditional, input, 0,
+                input.length(), false);
+
+        int length = 0;
+        for(Chunk chunk : chunks)
+            length += chunk.mOutput.length();
+
+        StringBuilder output = new StringBuilder(length);
+        for(Chunk chunk : chunks)
+            output.append(chunk.mOutput);
+
+        return output.toString();
+
+    }
+
+    /**
+     * Translates the given range of the text in chunks.
+     * @param start the start of the range, which must lie between two tokens
+     * @param end the end of the range, which must lie between two tokens
+     * @param recordTokens true if the length of every token should be recorded
+     * @return the translated chunks, in order
+     * @throws InterruptedException if the calling thread is interrupted while translating
+     */
+    @NonNull
+    Chunk[] translateChunks(@NonNull final CodeTable table, final int translateMode,
+                            final boolean useTraditional, @NonNull final CharSequence input,
+                            final int start, final int end, final boolean recordTokens)
+            throws InterruptedException {
+
+        // Fails fast on an invalid mode, before any work is handed out
+        final Translator translator = new Translator(table, translateMode, useTraditional);
+
+        if(end - start < mThreshold || mParallelism == 1)
+            return new Chunk[] { new Chunk(translator, input, start, end, recordTokens) };
+
+        // Move each division forward until it lies between two tokens
+        List<Integer> divisions = new ArrayList<>();
+        int previous = start;
+        for(int i = 1; i < mParallelism; i++) {
+
+            int division = Math.max(previous, start + (int) ((long) (end - start) * i
+                    / mParallelism));
+            while(division > start && division < end
+                    && Translator.isJoined(translateMode, input, division))
+                division++;
+
+            if(division > previous && division < end) {
+                divisions.add(division);
+                previous = division;
+            }
+
+        }
+        divisions.add(end);
+
+        // Hand out every chunk but the first, which is translated on this thread
+        final List<Future<Chunk>> futures = new ArrayList<>(divisions.size() - 1);
+        for(int i = 0; i < divisions.size() - 1; i++) {
+
+            final int chunkStart = divisions.get(i);
+            final int chunkEnd = divisions.get(i + 1);
+
+            futures.add(mExecutor.submit(new Callable<Chunk>() {
+
+                @Override
+                public Chunk call() throws InterruptedException {
+
+                    Translator chunkTranslator = new Translator(table, translateMode,
+                            useTraditional);
+                    return new Chunk(chunkTranslator, input, chunkStart, chunkEnd, recordTokens);
+
+                }
+
+            }));
+
+        }
+
+        Chunk[] chunks = new Chunk[divisions.size()];
+
+        try {
+
+            chunks[0] = new Chunk(translator, input, start, divisions.get(0), recordTokens);
+
+            if(Thread.interrupted())
+                throw new InterruptedException();
+
+            for(int i = 0; i < futures.size(); i++)
+                chunks[i + 1] = futures.get(i).get();
+
+        } catch(ExecutionException e) {
+
+            // A worker stops early only when it is interrupted, as when the pool shuts down
+            if(e.getCause() instanceof InterruptedException)
+                throw new InterruptedException("Translation of a chunk was interrupted.");
+
+            throw new RuntimeException("Translation of a chunk failed.", e.getCause());
+
+        } finally {
+
+            // Does nothing if every chunk has completed
+            for(Future<Chunk> future : futures)
+                future.cancel(true);
+
+        }
+
+        return chunks;
+
+    }
+
+    /**
+     * Chunk is the translation of one range of a text. Translation stops early if the thread is
+     * interrupted, so that a superseded translation does not keep a worker busy.
+     */
+    static final class Chunk {
+
+        // The number of chars translated at a time when tokens are not recorded
+        private static final int SLICE_SIZE = 4096;
+
+        // How many tokens are translated between checks for interruption
+        private static final int INTERRUPT_CHECK_MASK = 0xFF;
+
+        // The number of tokens for which room is first made; the arrays grow as needed
+        private static final int INITIAL_TOKEN_CAPACITY = 256;
+
+        final StringBuilder mOutput;
+
+        // The number of input and output chars of every token, if they were recorded
+        int[] mInputLengths;
+        int[] mOutputLengths;
+        int mTokenCount;
+
+        /**
+         * Translates the given range of the text, which must lie between two tokens.
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        Chunk(@NonNull Translator translator, @NonNull CharSequence input, int start, int end,
+              boolean recordTokens) throws InterruptedException {
+
+            mOutput = new StringBuilder(Translator.estimateOutputLength(
+                    translator.getTranslateMode(), input, start, end));
+
+            if(!recordTokens) {
+
+                for(int sliceStart = start; sliceStart < end; sliceStart += SLICE_SIZE) {
+
+                    if(Thread.interrupted())
+                        throw new InterruptedException();
+
+                    translator.translate(input, sliceStart, Math.min(sliceStart + SLICE_SIZE,
+                            end), mOutput);
+
+                }
+
+                translator.finish(mOutput);
+                return;
+
+            }
+
+            // Every token holds at least one char, so the range's length bounds the count
+            int capacity = Math.min(end - start, INITIAL_TOKEN_CAPACITY);
+            mInputLengths = new int[capacity];
+            mOutputLengths = new int[capacity];
+
+            final SpanTokenizer tokenizer = translator.createTokenizer(input, start, end);
+
+            while(tokenizer.hasMoreTokens()) {
+
+                if((mTokenCount & INTERRUPT_CHECK_MASK) == 0 && Thread.interrupted())
+                    throw new InterruptedException();
+
+                if(mTokenCount == mInputLengths.length) {
+                    capacity = (int) Math.min(end - start, 2L * mTokenCount);
+                    mInputLengths = Arrays.copyOf(mInputLengths, capacity);
+                    mOutputLengths = Arrays.copyOf(mOutputLengths, capacity);
+                }
+
+                int kind = tokenizer.next();
+                int outputLength = mOutput.length();
+
+                translator.translateToken(kind, tokenizer, mOutput);
+
+                mInputLengths[mTokenCount] = tokenizer.getEnd() - tokenizer.getStart();
+                mOutputLengths[mTokenCount] = mOutput.length() - outputLength;
+                mTokenCount++;
+
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+/**
+ * PartialResultThrottle decides when a translation in progress should publish its output so far.
+ * <p>
+ * A partial result is due once the output has grown to the given size, or the given interval has
+ * passed, since the last one. Both double with every partial result, so that the first arrives
+ * quickly while the cost of copying the output to publish it stays proportional to the length of
+ * the output.
+ */
+final class PartialResultThrottle {
+
+    private final int mSize;
+    private long mIntervalNanos;
+
+    private int mLastLength;
+    private long mLastTime;
+
+    /**
+     * Constructs a new PartialResultThrottle. The interval is measured from now.
+     * @param size the length of the first partial result
+     * @param intervalMillis the longest time before the first partial result, in milliseconds
+     */
+    PartialResultThrottle(int size, long intervalMillis) {
+
+        mSize = size;
+        mIntervalNanos = intervalMillis * 1000000L;
+        mLastTime = System.nanoTime();
+
+    }
+
+    /**
+     * Returns whether a partial result of the given length should be published, and if so
+     * records that it has been.
+     * @param length the length of the output so far
+     * @return true if a partial result is due
+     */
+    boolean isDue(int length) {
+
+        if(length <= mLastLength)
+            return false;
+
+        long now = System.nanoTime();
+
+        if(length < Math.max(mSize, 2L * mLastLength) && now - mLastTime < mIntervalNanos)
+            return false;
+
+        mLastLength = length;
+        mLastTime = now;
+        mIntervalNanos *= 2;
+
+        return true;
+
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Formats telegraph codes as four decimal digits, such as "0948", and parses them back, without
+ * allocating.
+ * <p>
+ * The digits of every possible code are computed once, so appending a code is a single copy out
+ * of a shared table rather than a call to {@link String#format(String, Object...)}.
+ */
+final class TelegraphFormat {
+
+    /** The number of digits in a formatted telegraph code. */
+    static final int DIGITS = 4;
+
+    // The digits of every telegraph code, in ascending order of code
+    private static final char[] TABLE = new char[CodeMap.TELEGRAPH_CODE_COUNT * DIGITS];
+
+    static {
+
+        for(int code = 0; code < CodeMap.TELEGRAPH_CODE_COUNT; code++) {
+
+            int remaining = code;
+
+            for(int digit = DIGITS - 1; digit >= 0; digit--) {
+                TABLE[code * DIGITS + digit] = (char) ('0' + remaining % 10);
+                remaining /= 10;
+            }
+
+        }
+
+    }
+
+    private TelegraphFormat() {
+        // Empty!
+    }
+
+    /**
+     * Appends the four digits of the given telegraph code to the given builder.
+     * @param builder the builder receiving the digits
+     * @param code a Chinese telegraph code between 0 and 9999, inclusive
+     * @throws IndexOutOfBoundsException if the code lies outside the valid range
+     */
+    static void append(@NonNull final StringBuilder builder, final int code) {
+        builder.append(TABLE, code * DIGITS, DIGITS);
+    }
+
+    /**
+     * Parses the given range of text as a telegraph code. Digits are accumulated arithmetically,
+     * and parsing stops as soon as the value can no longer be a telegraph code, so neither long
+     * runs of digits nor non-digit text cause an exception. Leading zeros are permitted, and
+     * only the ASCII digits '0' through '9' are accepted.
+     * @param text the text containing the code
+     * @param start the index of the first character of the code
+     * @param end the index after the last character of the code
+     * @return the telegraph code, or {@link CodeTable#NOT_FOUND} if the range is empty, contains
+     *         anything other than digits, or exceeds 9999
+     */
+    static int parse(@NonNull final CharSequence text, final int start, final int end) {
+
+        if(start >= end)
+            return CodeTable.NOT_FOUND;
+
+        int value = 0;
+
+        for(int i = start; i < end; i++) {
+
+            int digit = text.charAt(i) - '0';
+            if(digit < 0 || digit > 9)
+                return CodeTable.NOT_FOUND;
+
+            value = value * 10 + digit;
+            if(value >= CodeMap.TELEGRAPH_CODE_COUNT)
+                return CodeTable.NOT_FOUND;
+
+        }
+
+        return value;
+
+    }
+
+}
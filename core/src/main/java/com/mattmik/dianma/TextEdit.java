@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+
+/**
+ * TextEdit describes a change to a text, in the same terms as
+ * {@link android.text.TextWatcher#onTextChanged(CharSequence, int, int, int)}: the chars from
+ * start to start + before were replaced by count new chars. Each text is identified by a version
+ * number, and an edit records the versions of the text before and after the change.
+ * <p>
+ * TextEdits are immutable.
+ */
+public final class TextEdit {
+
+    private final int mBaseVersion;
+    private final int mVersion;
+    private final int mStart;
+    private final int mBefore;
+    private final int mCount;
+
+    /**
+     * Constructs a new TextEdit.
+     * @param baseVersion the version of the text before the change
+     * @param version the version of the text after the change
+     * @param start the index of the first changed char
+     * @param before the number of chars which were replaced
+     * @param count the number of chars which replaced them
+     * @throws IllegalArgumentException if start, before or count is negative
+     */
+    public TextEdit(int baseVersion, int version, int start, int before, int count) {
+
+        if(start < 0 || before < 0 || count < 0)
+            throw new IllegalArgumentException("Edit bounds must not be negative.");
+
+        mBaseVersion = baseVersion;
+        mVersion = version;
+        mStart = start;
+        mBefore = before;
+        mCount = count;
+
+    }
+
+    /**
+     * Combines two consecutive edits into a single edit which spans both of them.
+     * @param first the earlier edit
+     * @param second the later edit, whose base version must be the first edit's version
+     * @param length the length of the text after the second edit
+     * @return an edit from the first edit's base version to the second edit's version
+     * @throws IllegalArgumentException if the edits are not consecutive
+     */
+    @NonNull
+    public static TextEdit merge(@NonNull TextEdit first, @NonNull TextEdit second, int length) {
+
+        if(first.mVersion != second.mBaseVersion)
+            throw new IllegalArgumentException("Edits are not consecutive.");
+
+        // Everything before both edits, and everything after both edits, is unchanged
+        int lengthBetween = length - second.mCount + second.mBefore;
+        int originalLength = lengthBetween - first.mCount + first.mBefore;
+        int prefix = Math.min(first.mStart, second.mStart);
+        int suffix = Math.min(lengthBetween - first.mStart - first.mCount,
+                lengthBetween - second.mStart - second.mBefore);
+
+        return new TextEdit(first.mBaseVersion, second.mVersion, prefix,
+                originalLength - prefix - suffix, length - prefix - suffix);
+
+    }
+
+    /**
+     * Returns the version of the text before the change.
+     * @return the base version
+     */
+    public int getBaseVersion() {
+        return mBaseVersion;
+    }
+
+    /**
+     * Returns the version of the text after the change.
+     * @return the version
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Returns the index of the first changed char.
+     * @return the start of the change
+     */
+    public int getStart() {
+        return mStart;
+    }
+
+    /**
+     * Returns the number of chars which were replaced.
+     * @return the length of the replaced text
+     */
+    public int getBefore() {
+        return mBefore;
+    }
+
+    /**
+     * Returns the number of chars which replaced them.
+     * @return the length of the new text
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    @Override
+    public String toString() {
+        return "TextEdit{" + mBaseVersion + "->" + mVersion + ", start=" + mStart + ", before=" +
+                mBefore + ", count=" + mCount + "}";
+    }
+
+}
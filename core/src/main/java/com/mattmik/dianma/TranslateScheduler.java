@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * TranslateScheduler runs translation requests one at a time on a background thread, where only
+ * the latest request matters.
+ * <p>
+ * Each request is given a sequence number by {@link #supersede()}, which also cancels every
+ * earlier request: those which have not started are never run, and the one which is running is
+ * interrupted. A result should only be shown if {@link #isCurrent(int)} is true of the sequence
+ * number it was tagged with, since a cancelled request may already have produced its result.
+ * <p>
+ * Instances of this class must only be used from a single thread, typically the main thread.
+ */
+public final class TranslateScheduler {
+
+    private final ExecutorService mExecutor;
+
+    private int mSequence;
+    private Future<?> mCurrentTask;
+
+    /**
+     * Constructs a new TranslateScheduler with its own background thread.
+     */
+    public TranslateScheduler() {
+        this(Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * Constructs a new TranslateScheduler.
+     * @param executor the executor which runs requests, which should run one task at a time
+     */
+    public TranslateScheduler(@NonNull ExecutorService executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Cancels every request scheduled so far, and returns the sequence number of the next one.
+     * @return the new sequence number
+     */
+    public int supersede() {
+
+        if(mCurrentTask != null) {
+            mCurrentTask.cancel(true);
+            mCurrentTask = null;
+        }
+
+        return ++mSequence;
+
+    }
+
+    /**
+     * Schedules a request, which should be tagged with the sequence number returned by the last
+     * call to {@link #supersede()}.
+     * @param task the request to be run
+     * @return false if the scheduler has been shut down and the request was ignored
+     */
+    public boolean submit(@NonNull Runnable task) {
+
+        if(mExecutor.isShutdown())
+            return false;
+
+        mCurrentTask = mExecutor.submit(task);
+        return true;
+
+    }
+
+    /**
+     * Returns whether the given sequence number belongs to the latest request.
+     * @param sequence a sequence number returned by {@link #supersede()}
+     * @return true if no request has superseded it
+     */
+    public boolean isCurrent(int sequence) {
+        return sequence == mSequence;
+    }
+
+    /**
+     * Returns whether the scheduler has been shut down.
+     * @return true if no more requests will be run
+     */
+    public boolean isShutdown() {
+        return mExecutor.isShutdown();
+    }
+
+    /**
+     * Cancels every request and stops the background thread.
+     */
+    public void shutdown() {
+
+        supersede();
+        mExecutor.shutdownNow();
+
+    }
+
+}
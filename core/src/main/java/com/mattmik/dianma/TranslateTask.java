@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.logging.Logger;
+
+/**
+ * Performs translation from Chinese characters to telephony codes, or vice-versa, and reports the
+ * result to a {@link Callback}. Nothing is reported if the thread is interrupted before
+ * translation completes.
+ * <p>
+ * If enabled by {@link #setPartialResults(int, long)}, the output of a long translation is also
+ * reported while it is in progress. If a {@link TranslationCache} is set, it is checked before
+ * translating the whole text and receives the result. With an {@link IncrementalTranslator}, this
+ * only happens when the translator would translate the whole text, such as after the mode or
+ * character set is switched. Edits are not looked up or stored, as handling the whole text would
+ * cost as much as an edit saves. A result taken from the cache leaves the translator as it was,
+ * holding the translation for its previous settings.
+ * <p>
+ * The callback is invoked on the thread running the task, so it is up to the callback to hand
+ * results over to any other thread.
+ */
+public class TranslateTask implements Runnable {
+
+    private static final Logger LOG = Logger.getLogger(TranslateTask.class.getName());
+
+    // The number of input chars translated between checks for interruption
+    private static final int SLICE_SIZE = 1024;
+
+    private final CodeTable mTable;
+    private final String mInputText;
+    private final int mTranslateMode;
+    private final boolean mUseTraditional;
+    private final Callback mCallback;
+
+    private IncrementalTranslator mIncrementalTranslator;
+    private int mVersion;
+    private TextEdit mEdit;
+
+    private int mPartialResultSize;
+    private long mPartialResultInterval;
+    private TranslationCache mCache;
+
+    /**
+     * Constructs a new TranslateTask.
+     *
+     * @param table          the CodeTable used for translation, which must hold the selected
+     *                       character set
+     * @param inputText      the input string to be translated
+     * @param translateMode  the translation mode. See {@link TranslateMode}.
+     * @param useTraditional true if translation should use traditional characters, false if
+     *                       translation should use simplified characters
+     * @param callback       the callback that will receive the result
+     */
+    public TranslateTask(@NonNull CodeTable table, @NonNull String inputText, int translateMode,
+                         boolean useTraditional, @NonNull Callback callback) {
+        mTable = table;
+        mInputText = inputText;
+        mTranslateMode = translateMode;
+        mUseTraditional = useTraditional;
+        mCallback = callback;
+    }
+
+    /**
+     * Brings the translation held by an {@link IncrementalTranslator} up to date, rather than
+     * translating the whole text.
+     *
+     * @param incrementalTranslator the translator holding the previous translation, which must
+     *                              only be used by one thread at a time, or null to translate
+     *                              the whole text
+     * @param version               the version of the input string
+     * @param edit                  the change since the previous version, or null if it is
+     *                              unknown
+     */
+    public void setIncrementalTranslator(@Nullable IncrementalTranslator incrementalTranslator,
+                                         int version, @Nullable TextEdit edit) {
+        mIncrementalTranslator = incrementalTranslator;
+        mVersion = version;
+        mEdit = edit;
+    }
+
+    /**
+     * Enables partial results, the first of which is reported once the output has grown to the
+     * given size or the given interval has passed. The size and interval double with every
+     * partial result.
+     *
+     * @param size           the length of the first partial result
+     * @param intervalMillis the longest time before the first partial result, in milliseconds
+     */
+    public void setPartialResults(int size, long intervalMillis) {
+        mPartialResultSize = size;
+        mPartialResultInterval = intervalMillis;
+    }
+
+    /**
+     * Sets the cache which is checked before translating the whole text, and which receives the
+     * result. With an {@link IncrementalTranslator}, it is not used for edits.
+     *
+     * @param cache the cache, or null to always translate
+     */
+    public void setCache(@Nullable TranslationCache cache) {
+        mCache = cache;
+    }
+
+    @Override
+    public void run() {
+
+        final PartialResultThrottle throttle = (mPartialResultSize > 0)
+                ? new PartialResultThrottle(mPartialResultSize, mPartialResultInterval) : null;
+
+        if(mIncrementalTranslator != null) {
+
+            final boolean fullTranslation = mIncrementalTranslator.requiresFullTranslation(mTable,
+                    mTranslateMode, mUseTraditional);
+            if(fullTranslation && reportCachedResult())
+                return;
+
+            if(throttle != null) {
+                mIncrementalTranslator.setOnPartialResultListener(
+                        new IncrementalTranslator.OnPartialResultListener() {
+
+                    @Override
+                    public void onPartialResult(@NonNull CharSequence partialResult) {
+                        if(throttle.isDue(partialResult.length()))
+                            mCallback.onPartialResult(partialResult.toString());
+                    }
+
+                });
+            }
+
+            try {
+
+                String result = mIncrementalTranslator.translate(mTable, mTranslateMode,
+                        mUseTraditional, mInputText, mVersion, mEdit);
+                if(result != null && fullTranslation)
+                    cacheAndReportResult(result);
+                else if(result != null)
+                    mCallback.onResult(result);
+
+            } finally {
+                mIncrementalTranslator.setOnPartialResultListener(null);
+            }
+
+            return;
+
+        }
+
+        if(reportCachedResult())
+            return;
+
+        final Translator translator = new Translator(mTable, mTranslateMode, mUseTraditional);
+        final int length = mInputText.length();
+
+        // Size the result for typical output; it grows for text which converts to longer codes
+        final OutputBufferPool pool = OutputBufferPool.getDefault();
+        final StringBuilder resultBuilder = pool.acquire(
+                Translator.estimateOutputLength(mTranslateMode, mInputText, 0, length));
+
+        try {
+
+            // Translate a slice at a time, so that an interrupt is noticed promptly and progress
+            // can be reported
+            for(int start = 0; start < length && !Thread.currentThread().isInterrupted();
+                    start += SLICE_SIZE) {
+
+                translator.translate(mInputText, start, Math.min(start + SLICE_SIZE, length),
+                        resultBuilder);
+
+                if(throttle != null && throttle.isDue(resultBuilder.length()))
+                    mCallback.onPartialResult(resultBuilder.toString());
+
+            }
+
+            // Nothing is reported if interrupted, as the result would be incomplete
+            if(Thread.currentThread().isInterrupted())
+                return;
+
+            translator.finish(resultBuilder);
+            cacheAndReportResult(resultBuilder.toString());
+
+        } finally {
+            pool.release(resultBuilder);
+        }
+
+    }
+
+    /**
+     * Reports the translation of the input text, if there is a cache and it holds one.
+     * @return true if a result was reported
+     */
+    private boolean reportCachedResult() {
+
+        if(mCache == null)
+            return false;
+
+        String cached = mCache.get(mInputText, mTranslateMode, mUseTraditional);
+        if(cached == null)
+            return false;
+
+        LOG.fine("Found translated text in cache.");
+        mCallback.onResult(cached);
+        return true;
+
+    }
+
+    /**
+     * Adds the translated result text to the cache, if there is one, and reports it.
+     */
+    private void cacheAndReportResult(@NonNull final String result) {
+
+        if(mCache != null)
+            mCache.put(mInputText, mTranslateMode, mUseTraditional, result);
+
+        mCallback.onResult(result);
+
+    }
+
+    /**
+     * Interface used to receive the results of a TranslateTask.
+     */
+    public interface Callback {
+
+        /**
+         * Invoked with the output of a translation which is still in progress.
+         * @param partialResult the text translated so far
+         */
+        void onPartialResult(@NonNull String partialResult);
+
+        /**
+         * Invoked once translation completes.
+         * @param result the translated text
+         */
+        void onResult(@NonNull String result);
+
+    }
+
+}
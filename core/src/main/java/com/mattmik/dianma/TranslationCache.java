@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * TranslationCache holds recently translated texts, so that translating the same text with the
+ * same settings again costs no more than a lookup.
+ * <p>
+ * Entries are keyed by a fingerprint of the input text together with the translation mode and
+ * character set, and are weighed by the number of chars they hold. Once the total exceeds the
+ * maximum size, the least recently used entries are evicted. The input text is kept with each
+ * entry and compared on a hit, so two texts with the same fingerprint are never confused.
+ * <p>
+ * Instances of this class are thread-safe.
+ */
+public final class TranslationCache {
+
+    /** The default maximum size, in chars, which is about 2 MB. */
+    public static final int DEFAULT_MAX_SIZE = 1024 * 1024;
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final int mMaxSize;
+    private final LinkedHashMap<Key, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int mSize;
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+
+    /**
+     * Constructs a new TranslationCache.
+     * @param maxSize the total number of input and output chars the cache may hold
+     * @throws IllegalArgumentException if the maximum size is not positive
+     */
+    public TranslationCache(int maxSize) {
+
+        if(maxSize <= 0)
+            throw new IllegalArgumentException("Maximum size must be positive.");
+
+        mMaxSize = maxSize;
+
+    }
+
+    /**
+     * Returns the translation of the given text, if it is cached.
+     * @param input the text to be translated
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param useTraditional true if translation uses traditional characters, false if
+     *                       translation uses simplified characters
+     * @return the translated text, or null if it is not cached
+     */
+    @Nullable
+    public String get(@NonNull String input, int translateMode, boolean useTraditional) {
+
+        Key key = new Key(input, translateMode, useTraditional);
+
+        synchronized(this) {
+
+            Entry entry = mEntries.get(key);
+
+            if(entry != null && entry.mInput.equals(input)) {
+                mHitCount++;
+                return entry.mOutput;
+            }
+
+            mMissCount++;
+            return null;
+
+        }
+
+    }
+
+    /**
+     * Adds the translation of the given text. A translation too large for the cache is ignored.
+     * @param input the translated text
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param useTraditional true if translation used traditional characters, false if
+     *                       translation used simplified characters
+     * @param output the result of the translation
+     */
+    public void put(@NonNull String input, int translateMode, boolean useTraditional,
+                    @NonNull String output) {
+
+        final long weight = (long) input.length() + output.length();
+
+        if(weight > mMaxSize)
+            return;
+
+        Key key = new Key(input, translateMode, useTraditional);
+
+        synchronized(this) {
+
+            Entry previous = mEntries.put(key, new Entry(input, output));
+            if(previous != null)
+                mSize -= previous.getWeight();
+
+            mSize += (int) weight;
+            evictTo(mMaxSize);
+
+        }
+
+    }
+
+    /**
+     * Removes every entry, for instance when memory is low.
+     */
+    public synchronized void evictAll() {
+        evictTo(0);
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache is no larger than the given size,
+     * for instance to free some memory while keeping the most recent translations.
+     * @param maxSize the total number of input and output chars to keep at most
+     */
+    public synchronized void trimToSize(int maxSize) {
+        evictTo(maxSize);
+    }
+
+    /**
+     * Returns the total number of input and output chars held.
+     * @return the size of the cache
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the total number of input and output chars the cache may hold.
+     * @return the maximum size of the cache
+     */
+    public int maxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Returns the number of lookups which found a translation.
+     * @return the hit count
+     */
+    public synchronized int hitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Returns the number of lookups which found no translation.
+     * @return the miss count
+     */
+    public synchronized int missCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Returns the number of entries evicted to make room for others, or to free memory.
+     * @return the eviction count
+     */
+    public synchronized int evictionCount() {
+        return mEvictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+
+        int lookups = mHitCount + mMissCount;
+        int hitPercent = (lookups == 0) ? 0 : (100 * mHitCount / lookups);
+
+        return "TranslationCache[size=" + mSize + ",maxSize=" + mMaxSize + ",hits=" + mHitCount +
+                ",misses=" + mMissCount + ",evictions=" + mEvictionCount + ",hitRate=" +
+                hitPercent + "%]";
+
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache is no larger than the given size.
+     */
+    private void evictTo(int maxSize) {
+
+        Iterator<Map.Entry<Key, Entry>> iterator = mEntries.entrySet().iterator();
+
+        while(mSize > maxSize && iterator.hasNext()) {
+            mSize -= iterator.next().getValue().getWeight();
+            iterator.remove();
+            mEvictionCount++;
+        }
+
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash of the given text.
+     */
+    private static long fingerprint(@NonNull String text) {
+
+        long hash = FNV_OFFSET_BASIS;
+
+        for(int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+
+    }
+
+    /**
+     * Identifies a translation by the fingerprint and length of its input and its settings.
+     */
+    private static final class Key {
+
+        private final long mFingerprint;
+        private final int mLength;
+        private final int mTranslateMode;
+        private final boolean mUseTraditional;
+
+        Key(@NonNull String input, int translateMode, boolean useTraditional) {
+
+            mFingerprint = fingerprint(input);
+            mLength = input.length();
+            mTranslateMode = translateMode;
+            mUseTraditional = useTraditional;
+
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if(!(o instanceof Key))
+                return false;
+
+            Key other = (Key) o;
+            return mFingerprint == other.mFingerprint && mLength == other.mLength
+                    && mTranslateMode == other.mTranslateMode
+                    && mUseTraditional == other.mUseTraditional;
+
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (mFingerprint ^ (mFingerprint >>> 32)) * 31 + mTranslateMode * 2
+                    + (mUseTraditional ? 1 : 0);
+        }
+
+    }
+
+    /**
+     * A cached translation.
+     */
+    private static final class Entry {
+
+        private final String mInput;
+        private final String mOutput;
+
+        Entry(@NonNull String input, @NonNull String output) {
+            mInput = input;
+            mOutput = output;
+        }
+
+        int getWeight() {
+            return mInput.length() + mOutput.length();
+        }
+
+    }
+
+}
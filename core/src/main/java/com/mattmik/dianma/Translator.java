@@ -0,0 +1,617 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import android.support.annotation.NonNull;
+
+import com.mattmik.dianma.tokenizer.CodepointSpanTokenizer;
+import com.mattmik.dianma.tokenizer.NumberSpanTokenizer;
+import com.mattmik.dianma.tokenizer.SpanTokenizer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Translator is the translation engine which converts Chinese characters to telegraph codes, or
+ * vice-versa, using a single {@link CodeTable}.
+ * <p>
+ * Input may be supplied in any number of pieces using {@link #translate(CharSequence, int, int,
+ * StringBuilder)}, followed by a call to {@link #finish(StringBuilder)}. The result is the same
+ * however the input is divided: a surrogate pair or a run of digits which is split between two
+ * pieces is carried over and translated once the rest of it arrives. Only a bounded amount of
+ * state is carried, so documents of any size may be translated from a {@link Reader} using
+ * {@link #translate(Reader, Appendable)} without being held in memory.
+ * <p>
+ * Instances of this class are not thread-safe, but any number of Translators may share a table.
+ */
+public final class Translator {
+
+    /** The number of chars read at a time by {@link #translate(Reader, Appendable)}. */
+    public static final int CHUNK_SIZE = 8192;
+
+    // Allows short texts of Chinese characters to be converted without growing the output
+    private static final int OUTPUT_SLACK = 16;
+
+    // Output estimates are capped, so that a misjudged text never requests a huge array at once
+    private static final int MAX_ESTIMATE = 8 * 1024 * 1024;
+
+    // The number of chars sampled when estimating the output of a text
+    private static final int ESTIMATE_SAMPLES = 64;
+
+    // The first block of CJK characters and punctuation, below which chars are assumed to be
+    // copied as they are
+    private static final char CJK_START = '\u2E80';
+
+    private final CodeTable mTable;
+    private final int mTranslateMode;
+    private final boolean mUseTraditional;
+
+    // A high surrogate which ended the previous piece of input, or zero
+    private char mPendingHighSurrogate;
+
+    // The run of digits which ended the previous piece of input. Its leading zeros are counted
+    // rather than stored, and at most four further digits can belong to a telegraph code, so the
+    // run takes bounded space however long it is. Once a run can no longer be a telegraph code,
+    // its digits are copied to the output as they arrive.
+    private boolean mRunActive;
+    private boolean mRunOverflowed;
+    private long mRunLeadingZeros;
+    private final char[] mRunDigits = new char[TelegraphFormat.DIGITS];
+    private int mRunDigitCount;
+    private int mRunValue;
+
+    /**
+     * Constructs a new Translator.
+     * @param table the CodeTable used for translation, which must hold the selected character set
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param useTraditional true if translation should use traditional characters, false if
+     *                       translation should use simplified characters
+     * @throws IllegalArgumentException if the translation mode is invalid
+     */
+    public Translator(@NonNull CodeTable table, int translateMode, boolean useTraditional) {
+
+        if(translateMode != TranslateMode.HAN_TO_TELE && translateMode != TranslateMode.TELE_TO_HAN)
+            throw new IllegalArgumentException("Invalid translation mode: " + translateMode);
+
+        mTable = table;
+        mTranslateMode = translateMode;
+        mUseTraditional = useTraditional;
+
+    }
+
+    /**
+     * Returns a starting capacity for the translation of a text of the given length, when the
+     * text itself is not yet known. This is not an upper bound: converting Chinese characters to
+     * telegraph codes turns each char into at most five, so the output builder is left to grow
+     * for text which is mostly Chinese. Converting telegraph codes to Chinese characters never
+     * lengthens the text.
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param inputLength the length of the text to be translated
+     * @return the expected length of the translated text
+     */
+    public static int estimateOutputLength(int translateMode, int inputLength) {
+
+        if(translateMode != TranslateMode.HAN_TO_TELE)
+            return inputLength;
+
+        long length = (long) inputLength + inputLength / 4 + OUTPUT_SLACK;
+        return (int) Math.min(length, MAX_ESTIMATE);
+
+    }
+
+    /**
+     * Returns a starting capacity for the translation of the given range of a text. When
+     * converting Chinese characters to telegraph codes, the share of Chinese characters is
+     * sampled at evenly spaced chars, so that the output of Chinese text fits without growing
+     * and that of mostly ASCII text is not over-allocated. Estimates stop at eight million chars,
+     * beyond which the output grows as needed rather than being requested up front.
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param input the text to be translated
+     * @param start the index of the first char to be translated
+     * @param end the index after the last char to be translated
+     * @return the expected length of the translated text
+     */
+    public static int estimateOutputLength(int translateMode, @NonNull CharSequence input,
+                                           int start, int end) {
+
+        final int length = end - start;
+
+        if(translateMode != TranslateMode.HAN_TO_TELE || length == 0)
+            return length;
+
+        final int step = Math.max(1, length / ESTIMATE_SAMPLES);
+        int sampled = 0;
+        int wide = 0;
+
+        for(int i = start; i < end; i += step) {
+
+            // Each Chinese character, or the first half of a surrogate pair, becomes five chars
+            char c = input.charAt(i);
+            if(c >= CJK_START && !Character.isLowSurrogate(c))
+                wide++;
+            sampled++;
+
+        }
+
+        long estimate = length + (long) length * wide * TelegraphFormat.DIGITS / sampled
+                + length / 16 + OUTPUT_SLACK;
+        return (int) Math.min(estimate, Math.max(length, MAX_ESTIMATE));
+
+    }
+
+    /**
+     * Translates the given text in its entirety.
+     * @param input the text to be translated
+     * @return the translated text
+     */
+    @NonNull
+    public String translate(@NonNull final CharSequence input) {
+
+        final OutputBufferPool pool = OutputBufferPool.getDefault();
+        final StringBuilder output = pool.acquire(
+                estimateOutputLength(mTranslateMode, input, 0, input.length()));
+
+        try {
+
+            translate(input, 0, input.length(), output);
+            finish(output);
+
+            return output.toString();
+
+        } finally {
+            pool.release(output);
+        }
+
+    }
+
+    /**
+     * Translates text read from the given reader until it is exhausted, writing the result to the
+     * given output. Input is read, and output is written, {@link #CHUNK_SIZE} chars at a time.
+     * Neither the reader nor the output is closed.
+     * @param reader the source of the text to be translated
+     * @param output the destination of the translated text
+     * @throws IOException if reading or writing fails
+     */
+    public void translate(@NonNull final Reader reader, @NonNull final Appendable output)
+            throws IOException {
+
+        final char[] buffer = new char[CHUNK_SIZE];
+        final CharSequence chunk = CharBuffer.wrap(buffer);
+        final OutputBufferPool pool = OutputBufferPool.getDefault();
+        final StringBuilder chunkOutput = pool.acquire(
+                estimateOutputLength(mTranslateMode, CHUNK_SIZE));
+
+        try {
+
+            // Once a chunk has been translated, its buffer is free to carry output to a Writer
+            int count;
+            while((count = reader.read(buffer)) != -1) {
+                translate(chunk, 0, count, chunkOutput);
+                flush(chunkOutput, output, buffer);
+            }
+
+            finish(chunkOutput);
+            flush(chunkOutput, output, buffer);
+
+        } finally {
+            pool.release(chunkOutput);
+        }
+
+    }
+
+    /**
+     * Translates a piece of input, appending as much of the result as is known to the given
+     * builder. Anything which may depend on the next piece of input is held back until that piece
+     * or {@link #finish(StringBuilder)} is supplied.
+     * @param input the text containing the piece of input
+     * @param start the index of the first char of the piece
+     * @param end the index after the last char of the piece
+     * @param output the builder receiving the translated text
+     * @throws IndexOutOfBoundsException if the range lies outside the input
+     */
+    public void translate(@NonNull final CharSequence input, final int start, final int end,
+                          @NonNull final StringBuilder output) {
+
+        if(start < 0 || start > end || end > input.length())
+            throw new IndexOutOfBoundsException("Invalid range [" + start + ", " + end + ").");
+
+        if(mTranslateMode == TranslateMode.HAN_TO_TELE)
+            translateHanToTele(input, start, end, output);
+        else
+            translateTeleToHan(input, start, end, output);
+
+    }
+
+    /**
+     * Completes translation, appending whatever was held back to the given builder. The
+     * Translator may then be used to translate new input.
+     * @param output the builder receiving the translated text
+     */
+    public void finish(@NonNull final StringBuilder output) {
+
+        if(mPendingHighSurrogate != 0) {
+            appendHan(mPendingHighSurrogate, output);
+            mPendingHighSurrogate = 0;
+        }
+
+        finishRun(output);
+
+    }
+
+    /**
+     * Discards whatever was held back from previous input without translating it, such as after
+     * translation of that input failed partway. The Translator may then be used to translate new
+     * input.
+     */
+    public void reset() {
+
+        mPendingHighSurrogate = 0;
+
+        mRunActive = false;
+        mRunOverflowed = false;
+        mRunLeadingZeros = 0;
+        mRunDigitCount = 0;
+        mRunValue = 0;
+
+    }
+
+    /**
+     * Returns the translation mode.
+     * @return the translation mode. See {@link TranslateMode}.
+     */
+    int getTranslateMode() {
+        return mTranslateMode;
+    }
+
+    /**
+     * Creates a tokenizer of the kind this Translator uses for its mode.
+     * @param input the text to be divided into tokens
+     * @param start the index of the first char to be divided
+     * @param end the index after the last char to be divided
+     * @return a tokenizer for the given range
+     */
+    @NonNull
+    SpanTokenizer createTokenizer(@NonNull final CharSequence input, final int start,
+                                  final int end) {
+
+        if(mTranslateMode == TranslateMode.HAN_TO_TELE)
+            return new CodepointSpanTokenizer(input, start, end);
+        else
+            return new NumberSpanTokenizer(input, start, end);
+
+    }
+
+    /**
+     * Translates a single token produced by a tokenizer of the kind this Translator uses for its
+     * mode. No state is carried, so the token must be complete.
+     * @param kind the kind of the token, as returned by {@link SpanTokenizer#next()}
+     * @param tokenizer the tokenizer positioned on the token
+     * @param output the builder receiving the translated text
+     */
+    void translateToken(final int kind, @NonNull final SpanTokenizer tokenizer,
+                        @NonNull final StringBuilder output) {
+
+        if(mTranslateMode == TranslateMode.HAN_TO_TELE)
+            appendHan(tokenizer.getCodepoint(), output);
+        else if(kind == SpanTokenizer.KIND_NUMBER)
+            appendNumber(tokenizer.getInput(), tokenizer.getStart(), tokenizer.getEnd(), output);
+        else if(kind != SpanTokenizer.KIND_WHITESPACE)
+            output.append(tokenizer.getInput(), tokenizer.getStart(), tokenizer.getEnd());
+
+    }
+
+    /**
+     * Returns whether the chars on either side of the given index belong to the same token, in
+     * which case the input must not be divided there.
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param input the text being translated
+     * @param index an index greater than zero and less than the length of the text
+     * @return true if the index lies within a token, false if it lies between two tokens
+     */
+    static boolean isJoined(final int translateMode, @NonNull final CharSequence input,
+                            final int index) {
+
+        char before = input.charAt(index - 1);
+        char after = input.charAt(index);
+
+        if(Character.isHighSurrogate(before) && Character.isLowSurrogate(after))
+            return true;
+
+        return translateMode == TranslateMode.TELE_TO_HAN
+                && NumberSpanTokenizer.isDigit(before) && NumberSpanTokenizer.isDigit(after);
+
+    }
+
+    /**
+     * Converts a piece of Chinese text into telegraph codes.
+     */
+    private void translateHanToTele(@NonNull final CharSequence input, int start, final int end,
+                                    @NonNull final StringBuilder output) {
+
+        // Complete a surrogate pair begun by the previous piece
+        if(mPendingHighSurrogate != 0 && start < end) {
+
+            char high = mPendingHighSurrogate;
+            mPendingHighSurrogate = 0;
+
+            if(Character.isLowSurrogate(input.charAt(start))) {
+                appendHan(Character.toCodePoint(high, input.charAt(start)), output);
+                start++;
+            } else {
+                appendHan(high, output);
+            }
+
+        }
+
+        // Chars are copied in runs: a run ends only at a char which has a telegraph code. Chars
+        // outside the table's range of codepoints need not be looked up at all.
+        final int rangeStart = mTable.getHanRangeStart();
+        final int rangeEnd = mTable.getHanRangeEnd();
+        int runStart = start;
+        int i = start;
+
+        while(i < end) {
+
+            char c = input.charAt(i);
+
+            if(c < rangeStart || c >= rangeEnd) {
+                i++;
+                continue;
+            }
+
+            int codepoint = c;
+
+            if(Character.isHighSurrogate(c)) {
+
+                if(i + 1 == end) {
+                    output.append(input, runStart, i);
+                    mPendingHighSurrogate = c;
+                    return;
+                }
+
+                if(Character.isLowSurrogate(input.charAt(i + 1)))
+                    codepoint = Character.toCodePoint(c, input.charAt(i + 1));
+
+            }
+
+            int tele = mTable.hanToTelegraph(codepoint, mUseTraditional);
+
+            if(tele != CodeTable.NOT_FOUND) {
+
+                if(runStart < i)
+                    output.append(input, runStart, i);
+
+                TelegraphFormat.append(output, tele);
+                output.append(' ');
+                runStart = i + Character.charCount(codepoint);
+
+            }
+
+            i += Character.charCount(codepoint);
+
+        }
+
+        output.append(input, runStart, end);
+
+    }
+
+    /**
+     * Appends the telegraph code of the given codepoint, or the codepoint itself if it has none.
+     */
+    private void appendHan(final int codepoint, @NonNull final StringBuilder output) {
+
+        int tele = mTable.hanToTelegraph(codepoint, mUseTraditional);
+
+        if(tele == CodeTable.NOT_FOUND) {
+
+            // If the table has no match, just append the original character code
+            output.appendCodePoint(codepoint);
+
+        } else {
+
+            // Append telephony code as a four digit string of numbers
+            TelegraphFormat.append(output, tele);
+            output.append(' ');
+
+        }
+
+    }
+
+    /**
+     * Converts a piece of text containing telegraph codes into Chinese characters.
+     */
+    private void translateTeleToHan(@NonNull final CharSequence input, final int start,
+                                    final int end, @NonNull final StringBuilder output) {
+
+        int i = start;
+
+        while(i < end) {
+
+            char c = input.charAt(i);
+
+            if(NumberSpanTokenizer.isDigit(c)) {
+
+                int runEnd = i + 1;
+                while(runEnd < end && NumberSpanTokenizer.isDigit(input.charAt(runEnd)))
+                    runEnd++;
+
+                // A number continuing the previous piece, or which may continue into the next
+                // piece, is accumulated. Any other number is translated directly.
+                if(mRunActive || runEnd == end) {
+                    appendToRun(input, i, runEnd, output);
+                    if(runEnd != end)
+                        finishRun(output);
+                } else {
+                    appendNumber(input, i, runEnd, output);
+                }
+
+                i = runEnd;
+                continue;
+
+            }
+
+            finishRun(output);
+
+            // Whitespace between codes is dropped from the result
+            if(Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            // Other text is copied in runs, which end at the next digit or whitespace
+            int runEnd = i + 1;
+            while(runEnd < end && !NumberSpanTokenizer.isDigit(input.charAt(runEnd))
+                    && !Character.isWhitespace(input.charAt(runEnd)))
+                runEnd++;
+
+            output.append(input, i, runEnd);
+            i = runEnd;
+
+        }
+
+    }
+
+    /**
+     * Appends the Chinese character for a number lying entirely within the current piece, or the
+     * number itself if it is not a telegraph code.
+     */
+    private void appendNumber(@NonNull final CharSequence input, final int start, final int end,
+                              @NonNull final StringBuilder output) {
+
+        // Numbers which are not telegraph codes parse to NOT_FOUND, which the table never maps
+        int value = TelegraphFormat.parse(input, start, end);
+        int codepoint = mTable.telegraphToHan(value, mUseTraditional);
+
+        if(codepoint == CodeTable.NOT_FOUND)
+            output.append(input, start, end);
+        else
+            output.appendCodePoint(codepoint);
+
+    }
+
+    /**
+     * Adds the given digits to the run carried between pieces of input.
+     */
+    private void appendToRun(@NonNull final CharSequence input, final int start, final int end,
+                             @NonNull final StringBuilder output) {
+
+        mRunActive = true;
+
+        for(int i = start; i < end; i++) {
+
+            if(mRunOverflowed) {
+                output.append(input, i, end);
+                return;
+            }
+
+            char digit = input.charAt(i);
+
+            if(mRunDigitCount == 0 && digit == '0') {
+                mRunLeadingZeros++;
+                continue;
+            }
+
+            int value = mRunValue * 10 + (digit - '0');
+
+            if(value >= CodeMap.TELEGRAPH_CODE_COUNT) {
+
+                // This run can no longer be a telegraph code, so copy what has been held back
+                appendRunDigits(output);
+                output.append(digit);
+                mRunOverflowed = true;
+                continue;
+
+            }
+
+            mRunDigits[mRunDigitCount++] = digit;
+            mRunValue = value;
+
+        }
+
+    }
+
+    /**
+     * Translates and clears the run carried between pieces of input, if there is one.
+     */
+    private void finishRun(@NonNull final StringBuilder output) {
+
+        if(!mRunActive)
+            return;
+
+        if(!mRunOverflowed) {
+
+            int codepoint = mTable.telegraphToHan(mRunValue, mUseTraditional);
+
+            if(codepoint == CodeTable.NOT_FOUND)
+                appendRunDigits(output);
+            else
+                output.appendCodePoint(codepoint);
+
+        }
+
+        mRunActive = false;
+        mRunOverflowed = false;
+        mRunLeadingZeros = 0;
+        mRunDigitCount = 0;
+        mRunValue = 0;
+
+    }
+
+    /**
+     * Appends the digits of the carried run which have not yet been written.
+     */
+    private void appendRunDigits(@NonNull final StringBuilder output) {
+
+        for(long i = 0; i < mRunLeadingZeros; i++)
+            output.append('0');
+
+        output.append(mRunDigits, 0, mRunDigitCount);
+
+    }
+
+    /**
+     * Moves the contents of the given builder to the given output.
+     * @param buffer scratch space used when writing to a {@link Writer}
+     */
+    private static void flush(@NonNull final StringBuilder builder,
+                              @NonNull final Appendable output, @NonNull final char[] buffer)
+            throws IOException {
+
+        if(output instanceof Writer) {
+
+            // Writer.append() would copy the builder into a new String first
+            Writer writer = (Writer) output;
+
+            for(int offset = 0; offset < builder.length(); offset += buffer.length) {
+                int count = Math.min(buffer.length, builder.length() - offset);
+                builder.getChars(offset, offset + count, buffer, 0);
+                writer.write(buffer, 0, count);
+            }
+
+        } else {
+            output.append(builder);
+        }
+
+        builder.setLength(0);
+
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.tokenizer;
+
+import android.support.annotation.NonNull;
+
+import java.util.NoSuchElementException;
+
+/**
+ * CodepointSpanTokenizer tokenizes a given string of text into individual Unicode codepoints.
+ * Every token is of kind {@link #KIND_CODEPOINT}, and spans one char, or two chars for a
+ * supplementary codepoint.
+ */
+public class CodepointSpanTokenizer implements SpanTokenizer {
+
+    private final CharSequence mInputText;
+    private final int mLimit;
+    private int mStart;
+    private int mEnd;
+    private int mCodepoint;
+
+    /**
+     * Constructs a new CodepointSpanTokenizer instance.
+     * @param inputText the text to be tokenized
+     */
+    public CodepointSpanTokenizer(@NonNull CharSequence inputText) {
+        this(inputText, 0, inputText.length());
+    }
+
+    /**
+     * Constructs a new CodepointSpanTokenizer instance which tokenizes only part of the given text.
+     * Tokens never extend beyond the end of the range, even to complete a surrogate pair.
+     * @param inputText the text containing the range to be tokenized
+     * @param start the index of the first char to be tokenized
+     * @param end the index after the last char to be tokenized
+     * @throws IndexOutOfBoundsException if the range lies outside the text
+     */
+    public CodepointSpanTokenizer(@NonNull CharSequence inputText, int start, int end) {
+
+        if(start < 0 || start > end || end > inputText.length())
+            throw new IndexOutOfBoundsException("Invalid range [" + start + ", " + end + ").");
+
+        mInputText = inputText;
+        mLimit = end;
+        mStart = start;
+        mEnd = start;
+
+    }
+
+    @NonNull
+    @Override
+    public CharSequence getInput() {
+        return mInputText;
+    }
+
+    @Override
+    public boolean hasMoreTokens() {
+        return (mEnd < mLimit);
+    }
+
+    @Override
+    public int next() {
+
+        if(mEnd >= mLimit)
+            throw new NoSuchElementException("No tokens are available.");
+
+        mStart = mEnd;
+        mCodepoint = codePointAt(mInputText, mStart, mLimit);
+        mEnd = mStart + Character.charCount(mCodepoint);
+
+        return KIND_CODEPOINT;
+
+    }
+
+    @Override
+    public int getStart() {
+        return mStart;
+    }
+
+    @Override
+    public int getEnd() {
+        return mEnd;
+    }
+
+    @Override
+    public int getCodepoint() {
+        return mCodepoint;
+    }
+
+    /**
+     * Returns the codepoint at the given index of the given text, like
+     * {@link Character#codePointAt(CharSequence, int)}, but without reading beyond the given limit.
+     * A high surrogate at the end of the range is returned on its own.
+     */
+    static int codePointAt(@NonNull final CharSequence text, final int index, final int limit) {
+
+        char high = text.charAt(index);
+
+        if(Character.isHighSurrogate(high) && index + 1 < limit) {
+            char low = text.charAt(index + 1);
+            if(Character.isLowSurrogate(low))
+                return Character.toCodePoint(high, low);
+        }
+
+        return high;
+
+    }
+
+}
@@ -20,18 +20,17 @@ package com.mattmik.dianma.tokenizer;
 
 import android.support.annotation.NonNull;
 
-import java.util.NoSuchElementException;
-
 /**
  * CodepointTokenizer tokenizes a given string of text into individual Unicode codepoints. A token
  * in this class is defined as any single Unicode codepoint.
  * <p>
- * Objects returned by {@link #nextToken()} are of type {@link Integer}.
+ * Objects returned by {@link #nextToken()} are of type {@link Integer}. Code which must not
+ * allocate should use {@link CodepointSpanTokenizer}, on which this class is built, directly.
  */
 public class CodepointTokenizer implements Tokenizer {
 
-    private String mInputText;
-    private int mCurrIndex;
+    private final String mInputText;
+    private final CodepointSpanTokenizer mSpanTokenizer;
 
     /**
      * Constructs a new CodepointTokenizer instance.
@@ -39,7 +38,7 @@ public class CodepointTokenizer implements Tokenizer {
      */
     public CodepointTokenizer(@NonNull String inputText) {
         mInputText = inputText;
-        mCurrIndex = 0;
+        mSpanTokenizer = new CodepointSpanTokenizer(inputText);
     }
 
     @NonNull
@@ -50,20 +49,15 @@ public class CodepointTokenizer implements Tokenizer {
 
     @Override
     public boolean hasMoreTokens() {
-        return (mCurrIndex < mInputText.length());
+        return mSpanTokenizer.hasMoreTokens();
     }
 
     @NonNull
     @Override
     public Object nextToken() {
 
-        if(mCurrIndex >= mInputText.length())
-            throw new NoSuchElementException("No tokens are available.");
-
-        int codepoint = mInputText.codePointAt(mCurrIndex);
-        mCurrIndex += Character.charCount(codepoint);
-
-        return codepoint;
+        mSpanTokenizer.next();
+        return mSpanTokenizer.getCodepoint();
 
     }
 
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.tokenizer;
+
+import android.support.annotation.NonNull;
+
+import java.util.NoSuchElementException;
+
+/**
+ * NumberSpanTokenizer tokenizes a given string of text into sequences of numbers. Contiguous
+ * ASCII digits are grouped into a single token of kind {@link #KIND_NUMBER}. Any other codepoint
+ * is its own token, of kind {@link #KIND_WHITESPACE} if it is whitespace and {@link #KIND_TEXT}
+ * otherwise.
+ */
+public class NumberSpanTokenizer implements SpanTokenizer {
+
+    private final CharSequence mInputText;
+    private final int mLimit;
+    private int mStart;
+    private int mEnd;
+    private int mCodepoint;
+
+    /**
+     * Constructs a new NumberSpanTokenizer instance.
+     * @param inputText the text to be tokenized
+     */
+    public NumberSpanTokenizer(@NonNull CharSequence inputText) {
+        this(inputText, 0, inputText.length());
+    }
+
+    /**
+     * Constructs a new NumberSpanTokenizer instance which tokenizes only part of the given text.
+     * Tokens never extend beyond the end of the range, even to complete a surrogate pair.
+     * @param inputText the text containing the range to be tokenized
+     * @param start the index of the first char to be tokenized
+     * @param end the index after the last char to be tokenized
+     * @throws IndexOutOfBoundsException if the range lies outside the text
+     */
+    public NumberSpanTokenizer(@NonNull CharSequence inputText, int start, int end) {
+
+        if(start < 0 || start > end || end > inputText.length())
+            throw new IndexOutOfBoundsException("Invalid range [" + start + ", " + end + ").");
+
+        mInputText = inputText;
+        mLimit = end;
+        mStart = start;
+        mEnd = start;
+
+    }
+
+    @NonNull
+    @Override
+    public CharSequence getInput() {
+        return mInputText;
+    }
+
+    @Override
+    public boolean hasMoreTokens() {
+        return (mEnd < mLimit);
+    }
+
+    @Override
+    public int next() {
+
+        final CharSequence input = mInputText;
+        final int limit = mLimit;
+
+        if(mEnd >= limit)
+            throw new NoSuchElementException("No tokens are available.");
+
+        mStart = mEnd;
+        mCodepoint = CodepointSpanTokenizer.codePointAt(input, mStart, limit);
+
+        if(isDigit(mCodepoint)) {
+
+            int end = mStart + 1;
+            while(end < limit && isDigit(input.charAt(end)))
+                end++;
+
+            mEnd = end;
+            return KIND_NUMBER;
+
+        }
+
+        mEnd = mStart + Character.charCount(mCodepoint);
+        return Character.isWhitespace(mCodepoint) ? KIND_WHITESPACE : KIND_TEXT;
+
+    }
+
+    @Override
+    public int getStart() {
+        return mStart;
+    }
+
+    @Override
+    public int getEnd() {
+        return mEnd;
+    }
+
+    @Override
+    public int getCodepoint() {
+        return mCodepoint;
+    }
+
+    /**
+     * Returns whether or not the given codepoint is one of the ASCII digits '0' through '9'.
+     * Consecutive digits always belong to the same number token.
+     * @param codepoint the codepoint to be checked
+     * @return true if the codepoint is a digit, false otherwise
+     */
+    public static boolean isDigit(final int codepoint) {
+        return (codepoint >= '0' && codepoint <= '9');
+    }
+
+}
@@ -20,8 +20,6 @@ package com.mattmik.dianma.tokenizer;
 
 import android.support.annotation.NonNull;
 
-import java.util.NoSuchElementException;
-
 /**
  * NumberTokenizer tokenizes a given string of text into individual sequences of numbers. Contiguous
  * digits will be grouped into a single token. Any non-digit character in the given string will be
@@ -30,12 +28,19 @@ import java.util.NoSuchElementException;
  * Objects returned by {@link #nextToken()} are of type {@link String}. {@link #nextToken()} will
  * return an empty string while more tokens remain but the next available token is still being
  * generated by the tokenizer.
+ * <p>
+ * This class is built on {@link NumberSpanTokenizer}, which code that must not allocate should use
+ * directly.
  */
 public class NumberTokenizer implements Tokenizer {
 
-    private String mInputText;
-    private int mStartIndex;
-    private int mStopIndex;
+    private final String mInputText;
+    private final NumberSpanTokenizer mSpanTokenizer;
+
+    // Empty tokens still to be returned for the digits of the current number, followed by the
+    // number itself
+    private int mPendingEmptyTokens;
+    private String mPendingToken;
 
     /**
      * Constructs a new NumberTokenizer instance.
@@ -43,8 +48,9 @@ public class NumberTokenizer implements Tokenizer {
      */
     public NumberTokenizer(@NonNull String inputText) {
         mInputText = inputText;
-        mStartIndex = 0;
-        mStopIndex = 0;
+        mSpanTokenizer = new NumberSpanTokenizer(inputText);
+        mPendingEmptyTokens = 0;
+        mPendingToken = null;
     }
 
     @NonNull
@@ -55,40 +61,41 @@ public class NumberTokenizer implements Tokenizer {
 
     @Override
     public boolean hasMoreTokens() {
-        return (mStartIndex != mStopIndex || mStopIndex < mInputText.length());
+        return (mPendingToken != null || mSpanTokenizer.hasMoreTokens());
     }
 
     @NonNull
     @Override
     public Object nextToken() {
 
-        if(mStartIndex == mStopIndex && mStopIndex >= mInputText.length())
-            throw new NoSuchElementException("No tokens are available.");
+        if(mPendingEmptyTokens > 0) {
+            mPendingEmptyTokens--;
+            return "";
+        }
+
+        if(mPendingToken != null) {
+            String result = mPendingToken;
+            mPendingToken = null;
+            return result;
+        }
+
+        int kind = mSpanTokenizer.next();
 
-        // Process next character, if one is available
-        if(mStopIndex < mInputText.length()) {
+        // Whitespace is returned as an empty token
+        if(kind == SpanTokenizer.KIND_WHITESPACE)
+            return "";
 
-            int codepoint = mInputText.codePointAt(mStopIndex);
+        String result = mInputText.substring(mSpanTokenizer.getStart(), mSpanTokenizer.getEnd());
 
-            // If this is a number character, skip it for now. We will return it as a token later.
-            if(codepoint >= '0' && codepoint <= '9') {
-                mStopIndex++;
-                return "";
-            }
+        if(kind == SpanTokenizer.KIND_NUMBER) {
 
-            // Otherwise, return this single codepoint as a string.
-            // (But if this codepoint is whitespace, return the empty string.)
-            if(mStartIndex == mStopIndex) {
-                mStopIndex += Character.charCount(codepoint);
-                String result = mInputText.substring(mStartIndex, mStopIndex);
-                mStartIndex = mStopIndex;
-                return (Character.isWhitespace(codepoint) ? "" : result);
-            }
+            // Return an empty token for each digit, then the number itself
+            mPendingEmptyTokens = result.length() - 1;
+            mPendingToken = result;
+            return "";
 
         }
 
-        String result = mInputText.substring(mStartIndex, mStopIndex);
-        mStartIndex = mStopIndex;
         return result;
 
     }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.tokenizer;
+
+import android.support.annotation.NonNull;
+
+/**
+ * The SpanTokenizer interface defines signatures for methods guiding the tokenization of text
+ * without allocation. Rather than returning each token as an object, a SpanTokenizer is advanced
+ * to the next token using {@link #next()}, after which the token's kind, its position in the
+ * input and its first codepoint may be queried.
+ */
+public interface SpanTokenizer {
+
+    /** A token consisting of a single Unicode codepoint. */
+    int KIND_CODEPOINT = 0;
+
+    /** A token consisting of a run of one or more of the ASCII digits '0' through '9'. */
+    int KIND_NUMBER = 1;
+
+    /** A token consisting of a single codepoint which is neither a digit nor whitespace. */
+    int KIND_TEXT = 2;
+
+    /** A token consisting of a single whitespace codepoint. */
+    int KIND_WHITESPACE = 3;
+
+    /**
+     * Returns the text currently being tokenized.
+     * @return the text currently being tokenized
+     */
+    @NonNull
+    CharSequence getInput();
+
+    /**
+     * Returns whether or not more tokens are available from this tokenizer.
+     * @return true if more tokens are available, false otherwise
+     */
+    boolean hasMoreTokens();
+
+    /**
+     * Advances to the next token.
+     * @return the kind of the new current token, such as {@link #KIND_CODEPOINT}
+     * @throws java.util.NoSuchElementException if no tokens are available
+     */
+    int next();
+
+    /**
+     * Returns the index in the input of the first char of the current token.
+     * @return the start index of the current token
+     */
+    int getStart();
+
+    /**
+     * Returns the index in the input after the last char of the current token.
+     * @return the end index of the current token
+     */
+    int getEnd();
+
+    /**
+     * Returns the first Unicode codepoint of the current token.
+     * @return the current token's first codepoint
+     */
+    int getCodepoint();
+
+}
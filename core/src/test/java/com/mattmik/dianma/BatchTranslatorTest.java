@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BatchTranslatorTest {
+
+    private static final String[] PIECES = { "你", "好", "。", "😀", "\uD83D", "\uDE00", "0", "2",
+            "9", "7", "8", "6", "3", "5", " ", "a" };
+
+    private CodeTable mTable;
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+
+        mTable = new CodeTable.Builder()
+                .put(false, 0x4F60, 2978)
+                .put(false, 0x597D, 6350)
+                .put(false, 0x3002, 6364)
+                .put(true, 0x4F60, 2643)
+                .build();
+        mExecutor = Executors.newFixedThreadPool(3);
+
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidParallelismTest() {
+        new BatchTranslator(mExecutor, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidModeTest() throws InterruptedException {
+        new BatchTranslator(mExecutor, 4).translate(mTable, 2, false,
+                Collections.singletonList("2978"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullTextTest() throws InterruptedException {
+        new BatchTranslator(mExecutor, 1).translate(mTable, TranslateMode.HAN_TO_TELE, false,
+                Arrays.asList("你", null));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullTextParallelTest() throws InterruptedException {
+
+        // The null text lies in the last batch, which a worker thread may claim
+        List<String> texts = new ArrayList<>();
+        for(int i = 0; i < BatchTranslator.BATCH_SIZE * 4; i++)
+            texts.add("你");
+        texts.add(null);
+
+        new BatchTranslator(mExecutor, 4).translate(mTable, TranslateMode.HAN_TO_TELE, false,
+                texts);
+
+    }
+
+    @Test
+    public void translateTest() throws InterruptedException {
+
+        BatchTranslator translator = new BatchTranslator(mExecutor, 4);
+
+        assertEquals(Collections.<String>emptyList(), translator.translate(mTable,
+                TranslateMode.HAN_TO_TELE, false, Collections.<String>emptyList()));
+
+        // Each text is translated on its own, so a run of digits never spans two texts
+        assertEquals(Arrays.asList("你", "29", "78", "好你"), translator.translate(mTable,
+                TranslateMode.TELE_TO_HAN, false, Arrays.asList("2978", "29", "78",
+                        new StringBuilder("6350 2978"))));
+        assertEquals(Arrays.asList("2643 好", "\uD83D"), translator.translate(mTable,
+                TranslateMode.HAN_TO_TELE, true, new LinkedList<>(Arrays.asList("你好",
+                        "\uD83D"))));
+
+    }
+
+    @Test
+    public void randomTest() throws InterruptedException {
+
+        Random random = new Random(7);
+
+        for(int parallelism = 1; parallelism <= 5; parallelism++) {
+
+            BatchTranslator translator = new BatchTranslator(mExecutor, parallelism);
+
+            for(int i = 0; i < 10; i++) {
+
+                int mode = random.nextInt(2);
+                boolean useTraditional = random.nextBoolean();
+                Translator reference = new Translator(mTable, mode, useTraditional);
+
+                int count = random.nextInt(4 * BatchTranslator.BATCH_SIZE);
+                List<String> texts = new ArrayList<>(count);
+                List<String> expected = new ArrayList<>(count);
+                for(int j = 0; j < count; j++) {
+                    texts.add(randomText(random, random.nextInt(12)));
+                    expected.add(reference.translate(texts.get(j)));
+                }
+
+                assertEquals(expected, translator.translate(mTable, mode, useTraditional,
+                        texts));
+
+            }
+
+        }
+
+    }
+
+    @Test
+    public void interruptTest() {
+
+        List<String> texts = Collections.nCopies(4 * BatchTranslator.BATCH_SIZE, "你好");
+
+        Thread.currentThread().interrupt();
+        try {
+            new BatchTranslator(mExecutor, 2).translate(mTable, TranslateMode.HAN_TO_TELE, false,
+                    texts);
+        } catch(InterruptedException e) {
+            assertFalse(Thread.currentThread().isInterrupted());
+            return;
+        } finally {
+            Thread.interrupted();
+        }
+
+        throw new AssertionError("Expected an InterruptedException.");
+
+    }
+
+    private static String randomText(Random random, int pieces) {
+
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < pieces; i++)
+            builder.append(PIECES[random.nextInt(PIECES.length)]);
+
+        return builder.toString();
+
+    }
+
+}
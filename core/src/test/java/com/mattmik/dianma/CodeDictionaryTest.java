@@ -20,11 +20,17 @@ package com.mattmik.dianma;
 
 import org.junit.Before;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.robolectric.RobolectricTestRunner;
-import org.robolectric.RuntimeEnvironment;
-import org.robolectric.annotation.Config;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -34,15 +40,13 @@ import static org.junit.Assert.assertTrue;
  * Test class for {@link CodeDictionary}. Note that this class does not test the validity of data
  * produced by CodeDictionary; it only tests that conversions run as expected.
  */
-@RunWith(RobolectricTestRunner.class)
-@Config(manifest = "src/test/AndroidManifest.xml", sdk = 23)
 public class CodeDictionaryTest {
 
     private CodeDictionary mDictionary;
 
     @Before
     public void setUp() {
-        mDictionary = new CodeDictionary(RuntimeEnvironment.application.getResources());
+        mDictionary = new CodeDictionary(new TestDictionarySource());
     }
 
     @Test
@@ -52,6 +56,82 @@ public class CodeDictionaryTest {
         assertTrue(mDictionary.isLoaded());
     }
 
+    @Test
+    public void testLoadData() {
+        assertTrue(mDictionary.loadData(true));
+        assertTrue(mDictionary.isLoaded(true));
+        assertFalse(mDictionary.isLoaded(false));
+        assertFalse(mDictionary.isLoaded());
+    }
+
+    @Test
+    public void testLoadDataFailure() {
+
+        CodeDictionary dictionary = new CodeDictionary(new DictionarySource() {
+
+            @Override
+            public InputStream open(boolean useTraditional) throws IOException {
+                throw new FileNotFoundException();
+            }
+
+        });
+
+        assertFalse(dictionary.loadAllData());
+        assertFalse(dictionary.isLoaded(false));
+        assertFalse(dictionary.isLoaded(true));
+
+    }
+
+    @Test
+    public void testUnloadData() {
+
+        assertTrue(mDictionary.loadAllData());
+
+        mDictionary.unloadData(false);
+        assertFalse(mDictionary.isLoaded(false));
+        assertTrue(mDictionary.isLoaded(true));
+        assertEquals(0x4F60, mDictionary.telegraphToHan(2643, true));
+
+        assertTrue(mDictionary.loadData(false));
+        assertTrue(mDictionary.isLoaded());
+        assertEquals(0x4F60, mDictionary.telegraphToHan(2978, false));
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnloadedLookup() {
+
+        assertTrue(mDictionary.loadAllData());
+        mDictionary.unloadData(true);
+        mDictionary.hanToTelegraph(0x4F60, true);
+
+    }
+
+    @Test
+    public void testLoadDataAsync() throws Exception {
+
+        final List<Boolean> loaded = Collections.synchronizedList(new ArrayList<Boolean>());
+        CodeDictionary.OnDataLoadedListener listener = new CodeDictionary.OnDataLoadedListener() {
+            @Override
+            public void onDataLoaded(boolean useTraditional, boolean success) {
+                assertTrue(success);
+                loaded.add(useTraditional);
+            }
+        };
+
+        Future<Boolean> simplified = mDictionary.loadDataAsync(false, listener);
+        Future<Boolean> traditional = mDictionary.loadDataAsync(true, listener);
+
+        assertTrue(simplified.get(10, TimeUnit.SECONDS));
+        assertTrue(traditional.get(10, TimeUnit.SECONDS));
+        assertTrue(mDictionary.isLoaded());
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.contains(false));
+        assertTrue(loaded.contains(true));
+        assertEquals(0x4F60, mDictionary.telegraphToHan(2643, true));
+
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testTelegraphToSimplifiedNotLoaded() {
         mDictionary.telegraphToSimplified(1993);
@@ -180,4 +260,88 @@ public class CodeDictionaryTest {
 
     }
 
+    @Test
+    public void testBulkLookupLoaded() {
+
+        mDictionary.loadAllData();
+
+        int[] hans = { 0x4F60, 0x597D, 'a', 0x3002 };
+        int[] telegraphs = new int[hans.length];
+
+        assertEquals(3, mDictionary.simplifiedToTelegraph(hans, 0, hans.length, telegraphs));
+        assertArrayEquals(new int[] { 2978, 6350, CodeDictionary.NOT_FOUND, 6364 }, telegraphs);
+
+        assertEquals(3, mDictionary.traditionalToTelegraph(hans, 0, hans.length, telegraphs));
+        assertArrayEquals(new int[] { 2643, 7311, CodeDictionary.NOT_FOUND, 9043 }, telegraphs);
+
+        int[] codes = { 2978, 2643, 9999 };
+        int[] result = new int[codes.length];
+
+        assertEquals(1, mDictionary.telegraphToSimplified(codes, 0, codes.length, result));
+        assertArrayEquals(new int[] { 0x4F60, CodeDictionary.NOT_FOUND, CodeDictionary.NOT_FOUND },
+                result);
+
+        assertEquals(1, mDictionary.telegraphToTraditional(codes, 1, 2, result));
+        assertEquals(0x4F60, result[0]);
+        assertEquals(CodeDictionary.NOT_FOUND, result[1]);
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBulkLookupNotLoaded() {
+        mDictionary.loadData(false);
+        mDictionary.traditionalToTelegraph(new int[1], 0, 1, new int[1]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testHanToTelegraphNotLoaded() {
+        mDictionary.hanToTelegraph(0x4F60, false);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTelegraphToHanNotLoaded() {
+        mDictionary.telegraphToHan(2643, true);
+    }
+
+    @Test
+    public void testHanToTelegraphLoaded() {
+
+        mDictionary.loadAllData();
+
+        assertEquals(2978, mDictionary.hanToTelegraph(0x4F60, false));
+        assertEquals(6350, mDictionary.hanToTelegraph(0x597D, false));
+        assertEquals(3315, mDictionary.hanToTelegraph(0xFF1F, false));
+        assertEquals(2643, mDictionary.hanToTelegraph(0x4F60, true));
+        assertEquals(7311, mDictionary.hanToTelegraph(0x597D, true));
+        assertEquals(2899, mDictionary.hanToTelegraph(0xFF01, true));
+
+        assertEquals(CodeDictionary.NOT_FOUND, mDictionary.hanToTelegraph(0x8835, false));
+        assertEquals(CodeDictionary.NOT_FOUND, mDictionary.hanToTelegraph(0xFF01, false));
+        assertEquals(CodeDictionary.NOT_FOUND, mDictionary.hanToTelegraph(0x1F600, false));
+        assertEquals(CodeDictionary.NOT_FOUND, mDictionary.hanToTelegraph(-1, false));
+        assertEquals(CodeDictionary.NOT_FOUND, mDictionary.hanToTelegraph(0x9408, true));
+        assertEquals(CodeDictionary.NOT_FOUND, mDictionary.hanToTelegraph(0xFF1F, true));
+
+    }
+
+    @Test
+    public void testTelegraphToHanLoaded() {
+
+        mDictionary.loadAllData();
+
+        assertEquals(0x4F60, mDictionary.telegraphToHan(2978, false));
+        assertEquals(0xFF1F, mDictionary.telegraphToHan(3315, false));
+        assertEquals(0x3002, mDictionary.telegraphToHan(6364, false));
+        assertEquals(0x6211, mDictionary.telegraphToHan(6583, true));
+        assertEquals(0xFF01, mDictionary.telegraphToHan(2899, true));
+        assertEquals(0x3002, mDictionary.telegraphToHan(9043, true));
+
+        assertEquals(CodeDictionary.NOT_FOUND, mDictionary.telegraphToHan(4903, false));
+        assertEquals(CodeDictionary.NOT_FOUND, mDictionary.telegraphToHan(10000, false));
+        assertEquals(CodeDictionary.NOT_FOUND, mDictionary.telegraphToHan(-1, false));
+        assertEquals(CodeDictionary.NOT_FOUND, mDictionary.telegraphToHan(3306, true));
+        assertEquals(CodeDictionary.NOT_FOUND, mDictionary.telegraphToHan(2978, true));
+
+    }
+
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CodeTableParserTest {
+
+    @Test
+    public void parseTest() throws IOException {
+
+        CodeMap map = parse("U+4F60 2978\nU+597D 6350\nU+3002 6364\n");
+
+        assertEquals(2978, map.hanToTelegraph(0x4F60));
+        assertEquals(6350, map.hanToTelegraph(0x597D));
+        assertEquals(0x3002, map.telegraphToHan(6364));
+
+    }
+
+    @Test
+    public void parseWhitespaceTest() throws IOException {
+
+        CodeMap map = parse("\n  U+4f60\t2978 \r\n\r\nU+597D   6350\r\nU+3002 0001");
+
+        assertEquals(2978, map.hanToTelegraph(0x4F60));
+        assertEquals(6350, map.hanToTelegraph(0x597D));
+        assertEquals(0x3002, map.telegraphToHan(1));
+
+    }
+
+    @Test
+    public void parseEmptyTest() throws IOException {
+
+        CodeMap map = parse("");
+        assertEquals(CodeTable.NOT_FOUND, map.telegraphToHan(1));
+
+    }
+
+    @Test
+    public void parseLongTableTest() throws IOException {
+
+        // Long enough that lines straddle the parser's internal buffer
+        StringBuilder table = new StringBuilder();
+        for(int i = 0; i < 5000; i++)
+            table.append(String.format("U+%04X %04d\n", 0x4E00 + i, i));
+
+        CodeMap map = parse(table.toString());
+
+        for(int i = 0; i < 5000; i++) {
+            assertEquals(i, map.hanToTelegraph(0x4E00 + i));
+            assertEquals(0x4E00 + i, map.telegraphToHan(i));
+        }
+
+    }
+
+    @Test
+    public void parseMalformedTest() throws IOException {
+
+        assertMalformed("U+4F60 2978\nU+597D\n", 2);
+        assertMalformed("U+4F60 2978\nX+597D 6350\n", 2);
+        assertMalformed("U+4F60 2978\n\nU597D 6350\n", 3);
+        assertMalformed("U+ 2978\n", 1);
+        assertMalformed("U+4F60 29a8\n", 1);
+        assertMalformed("U+4F60 29780\n", 1);
+        assertMalformed("U+4F60 2978 1\n", 1);
+        assertMalformed("U+4F6G 2978\n", 1);
+        assertMalformed("U+1F600 2978\n", 1);
+        assertMalformed("U+4F60 2978\nU+59", 2);
+
+    }
+
+    private static CodeMap parse(String table) throws IOException {
+
+        CodeMap.Builder builder = new CodeMap.Builder();
+        CodeTableParser.parse(new ByteArrayInputStream(table.getBytes("US-ASCII")), builder);
+        return builder.build();
+
+    }
+
+    private static void assertMalformed(String table, int lineNumber) throws IOException {
+
+        try {
+            parse(table);
+            fail("Malformed table was parsed: " + table);
+        } catch(MalformedCodeTableException e) {
+            assertEquals(lineNumber, e.getLineNumber());
+        }
+
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CodeTableTest {
+
+    @Test
+    public void emptyTest() {
+
+        assertFalse(CodeTable.EMPTY.hasCharacterSet(false));
+        assertFalse(CodeTable.EMPTY.hasCharacterSet(true));
+        assertEquals(CodeTable.NOT_FOUND, CodeTable.EMPTY.hanToTelegraph(0x4F60, false));
+        assertEquals(CodeTable.NOT_FOUND, CodeTable.EMPTY.telegraphToHan(2978, true));
+
+    }
+
+    @Test
+    public void putTest() {
+
+        CodeTable table = new CodeTable.Builder()
+                .put(false, 0x4F60, 2978)
+                .put(true, 0x4F60, 1234)
+                .put(false, 0x53D1, 4099)
+                .put(false, 0x9AEE, 4099)
+                .build();
+
+        assertTrue(table.hasCharacterSet(false));
+        assertTrue(table.hasCharacterSet(true));
+
+        assertEquals(2978, table.hanToTelegraph(0x4F60, false));
+        assertEquals(1234, table.hanToTelegraph(0x4F60, true));
+        assertEquals(0x4F60, table.telegraphToHan(2978, false));
+        assertEquals(0x4F60, table.telegraphToHan(1234, true));
+        assertEquals(CodeTable.NOT_FOUND, table.telegraphToHan(2978, true));
+
+        // Both codepoints keep their telegraph code, but the code maps to the last one put
+        assertEquals(4099, table.hanToTelegraph(0x53D1, false));
+        assertEquals(4099, table.hanToTelegraph(0x9AEE, false));
+        assertEquals(0x9AEE, table.telegraphToHan(4099, false));
+
+    }
+
+    @Test
+    public void lookupOutOfRangeTest() {
+
+        CodeTable table = new CodeTable.Builder().put(false, 0x4F60, 2978).build();
+
+        assertEquals(CodeTable.NOT_FOUND, table.hanToTelegraph(-1, false));
+        assertEquals(CodeTable.NOT_FOUND, table.hanToTelegraph(0x1F600, false));
+        assertEquals(CodeTable.NOT_FOUND, table.telegraphToHan(-1, false));
+        assertEquals(CodeTable.NOT_FOUND, table.telegraphToHan(10000, false));
+
+    }
+
+    @Test
+    public void hanRangeTest() {
+
+        assertEquals(0, CodeTable.EMPTY.getHanRangeEnd());
+
+        CodeTable table = new CodeTable.Builder()
+                .put(false, 0x597D, 6350)
+                .put(true, 0x4F60, 2643)
+                .put(false, 0x7000, 1)
+                .build();
+        assertEquals(0x4F60, table.getHanRangeStart());
+        assertEquals(0x7001, table.getHanRangeEnd());
+
+        // A table holding any surrogate covers every surrogate
+        table = new CodeTable.Builder()
+                .put(false, 0x4F60, 2978)
+                .put(false, 0xDC00, 1)
+                .build();
+        assertEquals(0x4F60, table.getHanRangeStart());
+        assertEquals(Character.MAX_SURROGATE + 1, table.getHanRangeEnd());
+
+        table = new CodeTable.Builder().put(false, 0xDBFF, 1).put(false, 0xFF1F, 2).build();
+        assertEquals(Character.MIN_SURROGATE, table.getHanRangeStart());
+        assertEquals(0xFF20, table.getHanRangeEnd());
+
+    }
+
+    @Test
+    public void derivedTableTest() {
+
+        CodeTable original = new CodeTable.Builder()
+                .put(false, 0x4F60, 2978)
+                .put(true, 0x4F60, 1234)
+                .build();
+
+        CodeTable derived = new CodeTable.Builder(original)
+                .put(false, 0x597D, 6350)
+                .remove(true)
+                .build();
+
+        assertEquals(2978, derived.hanToTelegraph(0x4F60, false));
+        assertEquals(6350, derived.hanToTelegraph(0x597D, false));
+        assertFalse(derived.hasCharacterSet(true));
+        assertEquals(CodeTable.NOT_FOUND, derived.hanToTelegraph(0x4F60, true));
+
+        // The original table must not be affected
+        assertEquals(CodeTable.NOT_FOUND, original.hanToTelegraph(0x597D, false));
+        assertTrue(original.hasCharacterSet(true));
+        assertEquals(1234, original.hanToTelegraph(0x4F60, true));
+
+    }
+
+    @Test
+    public void bulkLookupTest() {
+
+        CodeTable table = new CodeTable.Builder()
+                .put(false, 0x4F60, 2978)
+                .put(false, 0x597D, 6350)
+                .put(true, 0x4F60, 2643)
+                .build();
+
+        int[] hans = { 'a', 0x4F60, 0x597D, 0x1F600, 0x4F60 };
+        int[] telegraphs = new int[3];
+
+        assertEquals(2, table.hanToTelegraph(hans, 1, 3, telegraphs, false));
+        assertArrayEquals(new int[] { 2978, 6350, CodeTable.NOT_FOUND }, telegraphs);
+
+        assertEquals(1, table.hanToTelegraph(hans, 2, 3, telegraphs, true));
+        assertArrayEquals(new int[] { CodeTable.NOT_FOUND, CodeTable.NOT_FOUND, 2643 },
+                telegraphs);
+
+        int[] codes = { 2978, 10000, -1, 6350, 2643 };
+        int[] result = new int[5];
+
+        assertEquals(2, table.telegraphToHan(codes, 0, 5, result, false));
+        assertArrayEquals(new int[] { 0x4F60, CodeTable.NOT_FOUND, CodeTable.NOT_FOUND, 0x597D,
+                CodeTable.NOT_FOUND }, result);
+
+        assertEquals(1, table.telegraphToHan(codes, 0, 5, result, true));
+        assertArrayEquals(new int[] { CodeTable.NOT_FOUND, CodeTable.NOT_FOUND,
+                CodeTable.NOT_FOUND, CodeTable.NOT_FOUND, 0x4F60 }, result);
+
+    }
+
+    @Test
+    public void bulkLookupEmptyRangeTest() {
+        assertEquals(0, CodeTable.EMPTY.hanToTelegraph(new int[2], 2, 0, new int[0], false));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void bulkLookupInputBoundsTest() {
+        CodeTable.EMPTY.hanToTelegraph(new int[4], 2, 3, new int[3], false);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void bulkLookupOutputBoundsTest() {
+        CodeTable.EMPTY.telegraphToHan(new int[4], 0, 4, new int[3], true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putInvalidCodepointTest() {
+        new CodeTable.Builder().put(false, 0x1F600, 2978);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putInvalidTelegraphTest() {
+        new CodeTable.Builder().put(false, 0x4F60, 10000);
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DictionaryFormatTest {
+
+    private static final int[] CODEPOINTS = { 0x3002, 0x4F60, 0x5417, 0x597D };
+    private static final int[] TELEGRAPHS = { 6364, 2978, 2044, 6350 };
+
+    @Test
+    public void isCompiledTest() throws IOException {
+
+        assertTrue(DictionaryFormat.isCompiled(compile(DictionaryFormat.VERSION, CODEPOINTS,
+                TELEGRAPHS, 0)));
+        assertFalse(DictionaryFormat.isCompiled("U+4F60 2978".getBytes("UTF-8")));
+        assertFalse(DictionaryFormat.isCompiled(new byte[0]));
+
+    }
+
+    @Test
+    public void readTest() throws IOException {
+
+        CodeMap.Builder builder = new CodeMap.Builder();
+        DictionaryFormat.read(stream(compile(DictionaryFormat.VERSION, CODEPOINTS, TELEGRAPHS,
+                0)), builder);
+        CodeMap map = builder.build();
+
+        for(int i = 0; i < CODEPOINTS.length; i++) {
+            assertEquals(TELEGRAPHS[i], map.hanToTelegraph(CODEPOINTS[i]));
+            assertEquals(CODEPOINTS[i], map.telegraphToHan(TELEGRAPHS[i]));
+        }
+
+        assertEquals(CodeTable.NOT_FOUND, map.hanToTelegraph(0x4F61));
+        assertEquals(CodeTable.NOT_FOUND, map.telegraphToHan(2979));
+
+    }
+
+    @Test
+    public void readEmptyTest() throws IOException {
+
+        CodeMap.Builder builder = new CodeMap.Builder();
+        DictionaryFormat.read(stream(compile(DictionaryFormat.VERSION, new int[0], new int[0], 0)),
+                builder);
+        CodeMap map = builder.build();
+
+        assertEquals(CodeTable.NOT_FOUND, map.telegraphToHan(1));
+
+    }
+
+    @Test(expected = IOException.class)
+    public void readTextTest() throws IOException {
+        DictionaryFormat.read(stream("U+4F60 2978\nU+597D 6350".getBytes("UTF-8")),
+                new CodeMap.Builder());
+    }
+
+    @Test(expected = IOException.class)
+    public void readUnsupportedVersionTest() throws IOException {
+        DictionaryFormat.read(stream(compile(DictionaryFormat.VERSION + 1, CODEPOINTS,
+                TELEGRAPHS, 0)), new CodeMap.Builder());
+    }
+
+    @Test(expected = IOException.class)
+    public void readChecksumMismatchTest() throws IOException {
+        DictionaryFormat.read(stream(compile(DictionaryFormat.VERSION, CODEPOINTS, TELEGRAPHS,
+                1)), new CodeMap.Builder());
+    }
+
+    @Test(expected = IOException.class)
+    public void readTruncatedTest() throws IOException {
+
+        byte[] data = compile(DictionaryFormat.VERSION, CODEPOINTS, TELEGRAPHS, 0);
+        byte[] truncated = new byte[data.length - 4];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+
+        DictionaryFormat.read(stream(truncated), new CodeMap.Builder());
+
+    }
+
+    @Test(expected = IOException.class)
+    public void readInvalidEntryTest() throws IOException {
+        DictionaryFormat.read(stream(compile(DictionaryFormat.VERSION, new int[] { 0x4F60 },
+                new int[] { 10000 }, 0)), new CodeMap.Builder());
+    }
+
+    /**
+     * Builds a compiled code table in the same way as the compileDictionary Gradle task.
+     * @param checksumError a value mixed into the stored checksum to corrupt it, or 0
+     */
+    private static byte[] compile(int version, int[] codepoints, int[] telegraphs,
+                                  int checksumError) throws IOException {
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream payloadData = new DataOutputStream(payload);
+        for(int codepoint : codepoints)
+            payloadData.writeInt(codepoint);
+        for(int telegraph : telegraphs)
+            payloadData.writeInt(telegraph);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.toByteArray());
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        DataOutputStream resultData = new DataOutputStream(result);
+        resultData.writeInt(DictionaryFormat.MAGIC);
+        resultData.writeInt(version);
+        resultData.writeInt(codepoints.length);
+        resultData.writeInt((int) crc.getValue() ^ checksumError);
+        payload.writeTo(resultData);
+
+        return result.toByteArray();
+
+    }
+
+    private static ByteArrayInputStream stream(byte[] data) {
+        return new ByteArrayInputStream(data);
+    }
+
+}
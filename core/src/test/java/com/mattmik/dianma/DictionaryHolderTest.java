@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class DictionaryHolderTest {
+
+    private DictionaryHolder mHolder;
+
+    @Before
+    public void setUp() {
+        mHolder = new DictionaryHolder(new TestDictionarySource());
+    }
+
+    @Test
+    public void testAcquireShared() {
+
+        CodeDictionary first = mHolder.acquire();
+        CodeDictionary second = mHolder.acquire();
+
+        assertSame(first, second);
+        assertEquals(2, mHolder.getReferenceCount());
+
+    }
+
+    @Test
+    public void testReuseAfterRelease() {
+
+        CodeDictionary first = mHolder.acquire();
+        mHolder.release();
+        assertEquals(0, mHolder.getReferenceCount());
+
+        assertSame(first, mHolder.acquire());
+
+    }
+
+    @Test
+    public void testTrimMemoryReferenced() {
+
+        CodeDictionary first = mHolder.acquire();
+        mHolder.trimMemory();
+
+        assertSame(first, mHolder.acquire());
+
+    }
+
+    @Test
+    public void testTrimMemoryUnreferenced() {
+
+        CodeDictionary first = mHolder.acquire();
+        mHolder.release();
+        mHolder.trimMemory();
+
+        assertNotSame(first, mHolder.acquire());
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnbalancedRelease() {
+        mHolder.release();
+    }
+
+}
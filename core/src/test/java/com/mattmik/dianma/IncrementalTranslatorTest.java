@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalTranslatorTest {
+
+    private static final String[] PIECES = { "你", "好", "。", "😀", "\uD83D", "\uDE00", "0", "2",
+            "9", "7", "8", "6", "3", "5", " ", "\n", "a", "," };
+
+    private CodeTable mTable;
+
+    @Before
+    public void setUp() {
+
+        mTable = new CodeTable.Builder()
+                .put(false, 0x4F60, 2978)
+                .put(false, 0x597D, 6350)
+                .put(false, 0x3002, 6364)
+                .put(true, 0x4F60, 2643)
+                .build();
+
+    }
+
+    @Test
+    public void editTest() {
+
+        IncrementalTranslator translator = new IncrementalTranslator();
+
+        assertEquals("2978 6350 ", translator.translate(mTable, TranslateMode.HAN_TO_TELE, false,
+                "你好", 0, null));
+
+        assertEquals("2978 6364 6350 ", translator.translate(mTable, TranslateMode.HAN_TO_TELE,
+                false, "你。好", 1, new TextEdit(0, 1, 1, 0, 1)));
+
+        // An unchanged version is not translated again
+        assertEquals("2978 6364 6350 ", translator.translate(mTable, TranslateMode.HAN_TO_TELE,
+                false, "你。好", 1, null));
+        assertEquals(0, translator.getLastTranslatedLength());
+
+    }
+
+    @Test
+    public void digitRunTest() {
+
+        IncrementalTranslator translator = new IncrementalTranslator();
+
+        assertEquals("29你", translator.translate(mTable, TranslateMode.TELE_TO_HAN, false,
+                "29 2978", 0, null));
+
+        // Removing the space joins the two runs into one number
+        assertEquals("292978", translator.translate(mTable, TranslateMode.TELE_TO_HAN, false,
+                "292978", 1, new TextEdit(0, 1, 2, 1, 0)));
+
+        // Splitting the run again
+        assertEquals("2你", translator.translate(mTable, TranslateMode.TELE_TO_HAN, false,
+                "2 2978", 2, new TextEdit(1, 2, 1, 1, 1)));
+
+    }
+
+    @Test
+    public void fallbackTest() {
+
+        IncrementalTranslator translator = new IncrementalTranslator();
+        translator.translate(mTable, TranslateMode.HAN_TO_TELE, false, "你好", 0, null);
+
+        // An edit from a version which was never translated is ignored, and the texts compared
+        assertEquals("6350 2978 ", translator.translate(mTable, TranslateMode.HAN_TO_TELE, false,
+                "好你", 2, new TextEdit(1, 2, 0, 0, 0)));
+        assertEquals(2, translator.getLastTranslatedLength());
+
+        // So is an edit whose length does not match the text
+        assertEquals("6350 ", translator.translate(mTable, TranslateMode.HAN_TO_TELE, false,
+                "好", 3, new TextEdit(2, 3, 0, 0, 1)));
+
+        // Changing the settings translates everything again
+        assertEquals("好", translator.translate(mTable, TranslateMode.HAN_TO_TELE, true, "好", 3,
+                null));
+        assertEquals("好", translator.translate(mTable, TranslateMode.TELE_TO_HAN, true, "好", 3,
+                null));
+
+    }
+
+    @Test
+    public void missedEditTest() {
+
+        IncrementalTranslator translator = new IncrementalTranslator();
+        String text = repeat("你好 2978 ", 10000);
+
+        translator.translate(mTable, TranslateMode.TELE_TO_HAN, false, text, 0, null);
+
+        // The edit from version 1 to 2 never arrives, so the texts are compared instead
+        String edited = text.substring(0, 40000) + "55" + text.substring(40000);
+        assertEquals(new Translator(mTable, TranslateMode.TELE_TO_HAN, false).translate(edited),
+                translator.translate(mTable, TranslateMode.TELE_TO_HAN, false, edited, 2,
+                        new TextEdit(1, 2, 40001, 0, 1)));
+        assertTrue(translator.getLastTranslatedLength() < 16);
+
+    }
+
+    @Test
+    public void partialResultTest() {
+
+        IncrementalTranslator translator = new IncrementalTranslator();
+        final StringBuilder partialResults = new StringBuilder();
+        final String expected = new Translator(mTable, TranslateMode.HAN_TO_TELE, false)
+                .translate(repeat("你好。", 2000));
+
+        translator.setOnPartialResultListener(new IncrementalTranslator.OnPartialResultListener() {
+
+            @Override
+            public void onPartialResult(CharSequence partialResult) {
+
+                // Every partial result is the start of the complete result
+                assertTrue(expected.startsWith(partialResult.toString()));
+                partialResults.append('.');
+
+            }
+
+        });
+
+        translator.translate(mTable, TranslateMode.HAN_TO_TELE, false, repeat("你好。", 1000), 0,
+                null);
+        assertEquals(2, partialResults.length());
+
+        // Text appended to the end is also reported
+        partialResults.setLength(0);
+        assertEquals(expected, translator.translate(mTable, TranslateMode.HAN_TO_TELE, false,
+                repeat("你好。", 2000), 1, new TextEdit(0, 1, 3000, 0, 3000)));
+        assertEquals(2, partialResults.length());
+
+        // But an edit in the middle of the text is not
+        partialResults.setLength(0);
+        translator.translate(mTable, TranslateMode.HAN_TO_TELE, false,
+                "。" + repeat("你好。", 2000), 2, new TextEdit(1, 2, 0, 0, 1));
+        assertEquals(0, partialResults.length());
+
+    }
+
+    @Test
+    public void interruptTest() {
+
+        IncrementalTranslator translator = new IncrementalTranslator();
+        String text = repeat("你", 10000);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertNull(translator.translate(mTable, TranslateMode.HAN_TO_TELE, false, text, 0,
+                    null));
+        } finally {
+            Thread.interrupted();
+        }
+
+        // The next request must translate everything, even though it carries an edit
+        assertEquals(new Translator(mTable, TranslateMode.HAN_TO_TELE, false).translate(text),
+                translator.translate(mTable, TranslateMode.HAN_TO_TELE, false, text, 1,
+                        new TextEdit(0, 1, 0, 0, 0)));
+        assertEquals(text.length(), translator.getLastTranslatedLength());
+
+    }
+
+    @Test
+    public void localEditTest() {
+
+        IncrementalTranslator translator = new IncrementalTranslator();
+        String text = repeat("你好 2978 ", 10000);
+
+        translator.translate(mTable, TranslateMode.TELE_TO_HAN, false, text, 0, null);
+
+        String edited = text.substring(0, 40000) + "5" + text.substring(40000);
+        assertEquals(new Translator(mTable, TranslateMode.TELE_TO_HAN, false).translate(edited),
+                translator.translate(mTable, TranslateMode.TELE_TO_HAN, false, edited, 1,
+                        new TextEdit(0, 1, 40000, 0, 1)));
+        assertTrue(translator.getLastTranslatedLength() < 16);
+
+    }
+
+    @Test
+    public void randomEditTest() {
+
+        Random random = new Random(42);
+
+        for(int mode = 0; mode < 2; mode++) {
+
+            IncrementalTranslator translator = new IncrementalTranslator();
+            Translator reference = new Translator(mTable, mode, false);
+            String text = randomText(random, 50);
+
+            assertEquals(reference.translate(text),
+                    translator.translate(mTable, mode, false, text, 0, null));
+
+            for(int version = 1; version <= 2000; version++) {
+
+                int start = random.nextInt(text.length() + 1);
+                int before = random.nextInt(Math.min(6, text.length() - start) + 1);
+                String inserted = randomText(random, random.nextInt(6));
+                text = text.substring(0, start) + inserted + text.substring(start + before);
+
+                TextEdit edit = new TextEdit(version - 1, version, start, before,
+                        inserted.length());
+                assertEquals(reference.translate(text),
+                        translator.translate(mTable, mode, false, text, version, edit));
+
+            }
+
+        }
+
+    }
+
+    private static String randomText(Random random, int pieces) {
+
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < pieces; i++)
+            builder.append(PIECES[random.nextInt(PIECES.length)]);
+
+        return builder.toString();
+
+    }
+
+    private static String repeat(String text, int count) {
+
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < count; i++)
+            builder.append(text);
+
+        return builder.toString();
+
+    }
+
+}
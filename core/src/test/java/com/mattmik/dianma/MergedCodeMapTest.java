@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MergedCodeMapTest {
+
+    private CodeMap mSimplified;
+    private CodeMap mTraditional;
+    private MergedCodeMap mMerged;
+
+    @Before
+    public void setUp() {
+
+        mSimplified = new CodeMap.Builder()
+                .put(0x4E00, 1)          // Shared by both character sets
+                .put(0x53D1, 4099)       // Traditional uses a different codepoint for this code
+                .put(0x4E2A, 22)         // Traditional uses a different code for this codepoint
+                .put(0x3002, 6364)       // Only in simplified
+                .put(0x4F60, 2978)
+                .put(0x5C14, 2978)       // Code shared by two codepoints, last one wins
+                .build();
+
+        mTraditional = new CodeMap.Builder()
+                .put(0x4E00, 1)
+                .put(0x9AEE, 4099)
+                .put(0x4E2A, 23)
+                .put(0xFF1F, 9999)       // Only in traditional
+                .put(0x4F60, 2978)
+                .put(0x5C14, 2978)
+                .build();
+
+        mMerged = MergedCodeMap.merge(mSimplified, mTraditional);
+
+    }
+
+    @Test
+    public void mergeTest() {
+        assertSameEntries(mSimplified, mMerged, false);
+        assertSameEntries(mTraditional, mMerged, true);
+    }
+
+    @Test
+    public void mergeSingleCharacterSetTest() {
+
+        MergedCodeMap simplifiedOnly = MergedCodeMap.merge(mSimplified, CodeMap.EMPTY);
+        assertSameEntries(mSimplified, simplifiedOnly, false);
+        assertSameEntries(CodeMap.EMPTY, simplifiedOnly, true);
+
+        MergedCodeMap traditionalOnly = MergedCodeMap.merge(CodeMap.EMPTY, mTraditional);
+        assertSameEntries(CodeMap.EMPTY, traditionalOnly, false);
+        assertSameEntries(mTraditional, traditionalOnly, true);
+
+    }
+
+    @Test
+    public void mergeEmptyTest() {
+
+        MergedCodeMap empty = MergedCodeMap.merge(CodeMap.EMPTY, CodeMap.EMPTY);
+        assertSameEntries(CodeMap.EMPTY, empty, false);
+        assertSameEntries(CodeMap.EMPTY, empty, true);
+
+    }
+
+    @Test
+    public void extractTest() {
+
+        MergedCodeMap simplifiedOnly = MergedCodeMap.merge(mMerged.extract(false), CodeMap.EMPTY);
+        assertSameEntries(mSimplified, simplifiedOnly, false);
+
+        MergedCodeMap traditionalOnly = MergedCodeMap.merge(CodeMap.EMPTY, mMerged.extract(true));
+        assertSameEntries(mTraditional, traditionalOnly, true);
+
+    }
+
+    /**
+     * Checks every possible lookup in one character set of a merged map against a CodeMap.
+     */
+    private static void assertSameEntries(CodeMap expected, MergedCodeMap merged,
+                                          boolean useTraditional) {
+
+        for(int han = 0; han <= Character.MAX_VALUE; han++)
+            assertEquals(expected.hanToTelegraph(han), merged.hanToTelegraph(han, useTraditional));
+
+        for(int telegraph = 0; telegraph < 10000; telegraph++) {
+            assertEquals(expected.telegraphToHan(telegraph),
+                    merged.telegraphToHan(telegraph, useTraditional));
+        }
+
+        // Bulk lookups, including values outside the valid ranges
+        int[] hans = new int[Character.MAX_VALUE + 3];
+        for(int i = 0; i < hans.length; i++)
+            hans[i] = i - 1;
+
+        int[] telegraphs = new int[hans.length];
+        merged.hanToTelegraph(hans, 0, hans.length, telegraphs, useTraditional);
+        for(int i = 0; i < hans.length; i++)
+            assertEquals(expected.hanToTelegraph(hans[i]), telegraphs[i]);
+
+        int[] codes = new int[10002];
+        for(int i = 0; i < codes.length; i++)
+            codes[i] = i - 1;
+
+        int[] result = new int[codes.length];
+        merged.telegraphToHan(codes, 0, codes.length, result, useTraditional);
+        for(int i = 0; i < codes.length; i++)
+            assertEquals(expected.telegraphToHan(codes[i]), result[i]);
+
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OutputBufferPoolTest {
+
+    @Test
+    public void reuseTest() {
+
+        OutputBufferPool pool = new OutputBufferPool(1000);
+
+        StringBuilder builder = pool.acquire(100);
+        assertTrue(builder.capacity() >= 100);
+        builder.append("abc");
+        pool.release(builder);
+
+        // The same builder is reused, empty, while it is large enough
+        StringBuilder reused = pool.acquire(50);
+        assertSame(builder, reused);
+        assertEquals(0, reused.length());
+        pool.release(reused);
+
+        assertNotSame(builder, pool.acquire(builder.capacity() + 1));
+
+        assertEquals(3, pool.getAcquireCount());
+        assertEquals(1, pool.getReuseCount());
+        assertEquals(0, pool.getGrowthCount());
+
+    }
+
+    @Test
+    public void growthTest() {
+
+        OutputBufferPool pool = new OutputBufferPool(1000);
+
+        StringBuilder builder = pool.acquire(10);
+        for(int i = 0; i < 100; i++)
+            builder.append('a');
+        pool.release(builder);
+
+        assertEquals(1, pool.getGrowthCount());
+        assertSame(builder, pool.acquire(100));
+
+    }
+
+    @Test
+    public void nestedTest() {
+
+        OutputBufferPool pool = new OutputBufferPool(1000);
+
+        // Each builder's growth is judged against its own capacity when taken
+        StringBuilder outer = pool.acquire(10);
+        StringBuilder inner = pool.acquire(200);
+        for(int i = 0; i < 100; i++)
+            outer.append('a');
+        pool.release(inner);
+        pool.release(outer);
+
+        assertEquals(1, pool.getGrowthCount());
+
+        outer = pool.acquire(10);
+        inner = pool.acquire(10);
+        for(int i = 0; i < 300; i++)
+            inner.append('a');
+        pool.release(outer);
+        pool.release(inner);
+
+        assertEquals(2, pool.getGrowthCount());
+
+    }
+
+    @Test
+    public void steadyStateTest() {
+
+        OutputBufferPool pool = new OutputBufferPool(1024 * 1024);
+
+        // A single long output is not kept
+        StringBuilder builder = pool.acquire(100 * 1024);
+        pool.release(builder);
+        assertEquals(1, pool.getDiscardCount());
+
+        // Once long outputs are needed repeatedly, the builder is kept and reused
+        builder = pool.acquire(100 * 1024);
+        pool.release(builder);
+        assertEquals(1, pool.getDiscardCount());
+        assertSame(builder, pool.acquire(100 * 1024));
+        pool.release(builder);
+
+        // Short outputs from then on let the large builder go
+        for(int i = 0; i < 10; i++)
+            pool.release(pool.acquire(10));
+        assertNotSame(builder, pool.acquire(100 * 1024));
+
+    }
+
+    @Test
+    public void discardTest() {
+
+        OutputBufferPool pool = new OutputBufferPool(1000);
+
+        StringBuilder builder = pool.acquire(2000);
+        pool.release(builder);
+
+        assertEquals(1, pool.getDiscardCount());
+        assertNotSame(builder, pool.acquire(2000));
+
+    }
+
+    @Test
+    public void threadTest() throws InterruptedException {
+
+        final OutputBufferPool pool = new OutputBufferPool(1000);
+        final StringBuilder[] other = new StringBuilder[1];
+
+        pool.release(pool.acquire(100));
+
+        // Each thread has its own builder
+        Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                other[0] = pool.acquire(100);
+            }
+
+        });
+        thread.start();
+        thread.join();
+
+        assertNotSame(other[0], pool.acquire(100));
+        assertEquals(1, pool.getReuseCount());
+
+    }
+
+}
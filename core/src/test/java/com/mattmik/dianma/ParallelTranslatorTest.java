@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class ParallelTranslatorTest {
+
+    private static final String[] PIECES = { "你", "好", "。", "😀", "\uD83D", "\uDE00", "0", "2",
+            "9", "7", "8", "6", "3", "5", " ", "a" };
+
+    private CodeTable mTable;
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+
+        mTable = new CodeTable.Builder()
+                .put(false, 0x4F60, 2978)
+                .put(false, 0x597D, 6350)
+                .put(false, 0x3002, 6364)
+                .put(true, 0x4F60, 2643)
+                .build();
+        mExecutor = Executors.newFixedThreadPool(3);
+
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidThresholdTest() {
+        new ParallelTranslator(mExecutor, 0, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidModeTest() throws InterruptedException {
+        new ParallelTranslator(mExecutor, 16, 4).translate(mTable, 2, false, "2978");
+    }
+
+    @Test
+    public void translateTest() throws InterruptedException {
+
+        ParallelTranslator translator = new ParallelTranslator(mExecutor, 8, 4);
+
+        assertEquals("2978 6350 2978 6350 2978 6350 ", translator.translate(mTable,
+                TranslateMode.HAN_TO_TELE, false, "你好你好你好"));
+
+        // Runs of digits are never divided
+        assertEquals("00000000000000000000029780你", translator.translate(mTable,
+                TranslateMode.TELE_TO_HAN, false, "00000000000000000000029780 2978"));
+        assertEquals("你", translator.translate(mTable, TranslateMode.TELE_TO_HAN, false,
+                "00000000000000000000002978"));
+
+    }
+
+    @Test
+    public void randomTest() throws InterruptedException {
+
+        Random random = new Random(3);
+
+        for(int parallelism = 1; parallelism <= 5; parallelism++) {
+
+            ParallelTranslator translator = new ParallelTranslator(mExecutor, 4, parallelism);
+
+            for(int i = 0; i < 500; i++) {
+
+                String text = randomText(random, random.nextInt(40));
+                int mode = random.nextInt(2);
+                boolean useTraditional = random.nextBoolean();
+
+                assertEquals(new Translator(mTable, mode, useTraditional).translate(text),
+                        translator.translate(mTable, mode, useTraditional, text));
+
+            }
+
+        }
+
+    }
+
+    @Test
+    public void longTextTest() throws InterruptedException {
+
+        Random random = new Random(7);
+        String text = randomText(random, 20000);
+
+        for(int parallelism = 1; parallelism <= 3; parallelism++) {
+
+            ParallelTranslator translator = new ParallelTranslator(mExecutor, 1024, parallelism);
+
+            for(int mode = 0; mode < 2; mode++) {
+
+                String expected = new Translator(mTable, mode, false).translate(text);
+                assertEquals(expected, translator.translate(mTable, mode, false, text));
+
+                // The recorded tokens cover the whole text and the whole translation
+                int inputLength = 0;
+                int outputLength = 0;
+                for(ParallelTranslator.Chunk chunk : translator.translateChunks(mTable, mode,
+                        false, text, 0, text.length(), true)) {
+
+                    for(int i = 0; i < chunk.mTokenCount; i++) {
+                        inputLength += chunk.mInputLengths[i];
+                        outputLength += chunk.mOutputLengths[i];
+                    }
+
+                }
+
+                assertEquals(text.length(), inputLength);
+                assertEquals(expected.length(), outputLength);
+
+            }
+
+        }
+
+    }
+
+    @Test
+    public void interruptTest() {
+
+        String text = randomText(new Random(11), 20000);
+
+        for(int parallelism = 1; parallelism <= 3; parallelism++) {
+
+            ParallelTranslator translator = new ParallelTranslator(mExecutor, 1024, parallelism);
+
+            for(boolean recordTokens : new boolean[] { false, true }) {
+
+                Thread.currentThread().interrupt();
+
+                try {
+                    translator.translateChunks(mTable, TranslateMode.HAN_TO_TELE, false, text, 0,
+                            text.length(), recordTokens);
+                    fail("Translation should stop once the thread is interrupted.");
+                } catch(InterruptedException e) {
+                    // Empty!
+                }
+
+                assertFalse(Thread.currentThread().isInterrupted());
+
+            }
+
+        }
+
+    }
+
+    @Test
+    public void incrementalTest() {
+
+        Random random = new Random(5);
+        ParallelTranslator parallelTranslator = new ParallelTranslator(mExecutor, 8, 3);
+
+        for(int mode = 0; mode < 2; mode++) {
+
+            IncrementalTranslator translator = new IncrementalTranslator(parallelTranslator);
+            Translator reference = new Translator(mTable, mode, false);
+            String text = randomText(random, 50);
+
+            assertEquals(reference.translate(text),
+                    translator.translate(mTable, mode, false, text, 0, null));
+
+            for(int version = 1; version <= 500; version++) {
+
+                int start = random.nextInt(text.length() + 1);
+                int before = random.nextInt(text.length() - start + 1);
+                String inserted = randomText(random, random.nextInt(20));
+                text = text.substring(0, start) + inserted + text.substring(start + before);
+
+                TextEdit edit = new TextEdit(version - 1, version, start, before,
+                        inserted.length());
+                assertEquals(reference.translate(text),
+                        translator.translate(mTable, mode, false, text, version, edit));
+
+            }
+
+        }
+
+    }
+
+    private static String randomText(Random random, int pieces) {
+
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < pieces; i++)
+            builder.append(PIECES[random.nextInt(PIECES.length)]);
+
+        return builder.toString();
+
+    }
+
+}
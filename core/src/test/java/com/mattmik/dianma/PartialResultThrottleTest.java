@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PartialResultThrottleTest {
+
+    @Test
+    public void sizeTest() {
+
+        PartialResultThrottle throttle = new PartialResultThrottle(100, Long.MAX_VALUE / 4000000);
+
+        assertFalse(throttle.isDue(99));
+        assertTrue(throttle.isDue(100));
+
+        // The size required doubles
+        assertFalse(throttle.isDue(150));
+        assertFalse(throttle.isDue(199));
+        assertTrue(throttle.isDue(200));
+        assertFalse(throttle.isDue(399));
+        assertTrue(throttle.isDue(400));
+
+    }
+
+    @Test
+    public void intervalTest() {
+
+        PartialResultThrottle throttle = new PartialResultThrottle(Integer.MAX_VALUE, 0);
+
+        assertTrue(throttle.isDue(1));
+        assertTrue(throttle.isDue(2));
+
+        // Nothing is due unless the output has grown
+        assertFalse(throttle.isDue(2));
+        assertFalse(throttle.isDue(1));
+
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class TelegraphFormatTest {
+
+    @Test
+    public void appendTest() {
+
+        StringBuilder builder = new StringBuilder("x");
+        TelegraphFormat.append(builder, 948);
+        TelegraphFormat.append(builder, 0);
+        TelegraphFormat.append(builder, 9999);
+
+        assertEquals("x094800009999", builder.toString());
+
+    }
+
+    @Test
+    public void appendAllCodesTest() {
+
+        StringBuilder builder = new StringBuilder();
+
+        for(int code = 0; code < 10000; code++) {
+            builder.setLength(0);
+            TelegraphFormat.append(builder, code);
+            assertEquals(String.format(Locale.US, "%04d", code), builder.toString());
+        }
+
+    }
+
+    @Test
+    public void parseTest() {
+
+        assertEquals(948, TelegraphFormat.parse("0948", 0, 4));
+        assertEquals(0, TelegraphFormat.parse("0000", 0, 4));
+        assertEquals(9999, TelegraphFormat.parse("9999", 0, 4));
+        assertEquals(7, TelegraphFormat.parse("7", 0, 1));
+        assertEquals(1, TelegraphFormat.parse("000001", 0, 6));
+        assertEquals(2978, TelegraphFormat.parse("ab2978cd", 2, 6));
+
+    }
+
+    @Test
+    public void parseInvalidTest() {
+
+        assertEquals(CodeTable.NOT_FOUND, TelegraphFormat.parse("", 0, 0));
+        assertEquals(CodeTable.NOT_FOUND, TelegraphFormat.parse("10000", 0, 5));
+        assertEquals(CodeTable.NOT_FOUND, TelegraphFormat.parse("99999999999999999999", 0, 20));
+        assertEquals(CodeTable.NOT_FOUND, TelegraphFormat.parse("-1", 0, 2));
+        assertEquals(CodeTable.NOT_FOUND, TelegraphFormat.parse("12a4", 0, 4));
+        assertEquals(CodeTable.NOT_FOUND, TelegraphFormat.parse("\uFF11", 0, 1));
+
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void appendInvalidCodeTest() {
+        TelegraphFormat.append(new StringBuilder(), 10000);
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+
+/**
+ * Reads the plain text code tables held as test resources.
+ */
+public class TestDictionarySource implements DictionarySource {
+
+    @Override
+    public InputStream open(boolean useTraditional) throws FileNotFoundException {
+
+        String name = useTraditional ? "/traditional_codes" : "/simplified_codes";
+
+        InputStream stream = TestDictionarySource.class.getResourceAsStream(name);
+        if(stream == null)
+            throw new FileNotFoundException(name);
+
+        return stream;
+
+    }
+
+}
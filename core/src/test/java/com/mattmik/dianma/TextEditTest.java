@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TextEditTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeBoundsTest() {
+        new TextEdit(0, 1, -1, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeNotConsecutiveTest() {
+        TextEdit.merge(new TextEdit(0, 1, 0, 0, 1), new TextEdit(2, 3, 0, 0, 1), 2);
+    }
+
+    @Test
+    public void mergeTest() {
+
+        // "abc" -> "abXc" -> "abXYc"
+        assertEdit(TextEdit.merge(new TextEdit(0, 1, 2, 0, 1), new TextEdit(1, 2, 3, 0, 1), 5),
+                0, 2, 2, 0, 2);
+
+        // "abcdef" -> "aXdef" -> "aXdeYf"
+        assertEdit(TextEdit.merge(new TextEdit(3, 4, 1, 2, 1), new TextEdit(4, 5, 4, 0, 1), 6),
+                3, 5, 1, 4, 4);
+
+        // "abcdef" -> "abcdeZf" -> "aZf"
+        assertEdit(TextEdit.merge(new TextEdit(0, 1, 5, 0, 1), new TextEdit(1, 2, 1, 4, 0), 3),
+                0, 2, 1, 4, 1);
+
+        // Replacing the entire text
+        assertEdit(TextEdit.merge(new TextEdit(0, 1, 1, 1, 2), new TextEdit(1, 2, 0, 4, 3), 3),
+                0, 2, 0, 3, 3);
+
+    }
+
+    @Test
+    public void mergeRandomTest() {
+
+        Random random = new Random(7);
+
+        for(int i = 0; i < 1000; i++) {
+
+            String original = randomText(random, random.nextInt(8));
+            StringBuilder text = new StringBuilder(original);
+            TextEdit merged = null;
+
+            for(int version = 0; version < 4; version++) {
+
+                int start = random.nextInt(text.length() + 1);
+                int before = random.nextInt(text.length() - start + 1);
+                String inserted = randomText(random, random.nextInt(4));
+                text.replace(start, start + before, inserted);
+
+                TextEdit edit = new TextEdit(version, version + 1, start, before,
+                        inserted.length());
+                merged = merged == null ? edit : TextEdit.merge(merged, edit, text.length());
+
+            }
+
+            // The merged edit must describe a replacement leading to the final text
+            String expected = original.substring(0, merged.getStart())
+                    + text.substring(merged.getStart(), merged.getStart() + merged.getCount())
+                    + original.substring(merged.getStart() + merged.getBefore());
+            assertEquals(text.toString(), expected);
+
+        }
+
+    }
+
+    private static String randomText(Random random, int length) {
+
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < length; i++)
+            builder.append((char) ('a' + random.nextInt(3)));
+
+        return builder.toString();
+
+    }
+
+    private static void assertEdit(TextEdit edit, int baseVersion, int version, int start,
+                                   int before, int count) {
+
+        assertEquals(baseVersion, edit.getBaseVersion());
+        assertEquals(version, edit.getVersion());
+        assertEquals(start, edit.getStart());
+        assertEquals(before, edit.getBefore());
+        assertEquals(count, edit.getCount());
+
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TranslateSchedulerTest {
+
+    private TranslateScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScheduler = new TranslateScheduler();
+    }
+
+    @After
+    public void tearDown() {
+        mScheduler.shutdown();
+    }
+
+    @Test
+    public void sequenceTest() {
+
+        int first = mScheduler.supersede();
+        assertTrue(mScheduler.isCurrent(first));
+
+        int second = mScheduler.supersede();
+        assertFalse(mScheduler.isCurrent(first));
+        assertTrue(mScheduler.isCurrent(second));
+
+    }
+
+    @Test
+    public void latestWinsTest() throws InterruptedException {
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final AtomicInteger lastRun = new AtomicInteger();
+        final CountDownLatch finished = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+
+        // A long request, which is interrupted once superseded, but holds on to the thread until
+        // every request below has been submitted
+        mScheduler.supersede();
+        mScheduler.submit(new Runnable() {
+
+            @Override
+            public void run() {
+
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch(InterruptedException e) {
+                    interrupted.set(true);
+                }
+
+                try {
+                    released.await();
+                } catch(InterruptedException e) {
+                    // Empty!
+                }
+
+            }
+
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Only the latest of these is run
+        for(int i = 1; i <= 10; i++) {
+
+            final int sequence = mScheduler.supersede();
+            mScheduler.submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    lastRun.compareAndSet(0, sequence);
+                    finished.countDown();
+                }
+
+            });
+
+        }
+
+        released.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(interrupted.get());
+        assertEquals(11, lastRun.get());
+
+    }
+
+    @Test
+    public void shutdownTest() {
+
+        mScheduler.shutdown();
+
+        assertTrue(mScheduler.isShutdown());
+        assertFalse(mScheduler.submit(new Runnable() {
+
+            @Override
+            public void run() {
+                // Empty!
+            }
+
+        }));
+
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TranslateTaskTest {
+
+    private static final String LETTERS = "Helowrd";
+    private static final int[] SIMPLIFIED_CODES = { 3443, 2015, 6073, 826, 7001, 8638, 4407 };
+    private static final int[] TRADITIONAL_CODES = { 6600, 3567, 1154, 6480, 5671, 9346, 22 };
+
+    private CodeTable mTable;
+    private RecordingCallback mCallback;
+
+    @Before
+    public void setUp() {
+
+        CodeTable.Builder builder = new CodeTable.Builder();
+        for(int i = 0; i < LETTERS.length(); i++) {
+            builder.put(false, LETTERS.charAt(i), SIMPLIFIED_CODES[i]);
+            builder.put(true, LETTERS.charAt(i), TRADITIONAL_CODES[i]);
+        }
+        mTable = builder.build();
+
+        mCallback = new RecordingCallback();
+
+    }
+
+    @Test
+    public void testTranslate() {
+
+        new TranslateTask(mTable, "Hello, world!", TranslateMode.HAN_TO_TELE, true, mCallback)
+                .run();
+        new TranslateTask(mTable, "3443 2015 6073 6073 0826, 7001!", TranslateMode.TELE_TO_HAN,
+                false, mCallback).run();
+
+        assertEquals(2, mCallback.mResults.size());
+        assertEquals("6600 3567 1154 1154 6480 , 5671 6480 9346 1154 0022 !",
+                mCallback.mResults.get(0));
+        assertEquals("Hello,w!", mCallback.mResults.get(1));
+        assertTrue(mCallback.mPartialResults.isEmpty());
+
+    }
+
+    @Test
+    public void testIncremental() {
+
+        IncrementalTranslator incrementalTranslator = new IncrementalTranslator();
+
+        TranslateTask task = new TranslateTask(mTable, "Hello", TranslateMode.HAN_TO_TELE, false,
+                mCallback);
+        task.setIncrementalTranslator(incrementalTranslator, 0, null);
+        task.run();
+
+        task = new TranslateTask(mTable, "Hello, world", TranslateMode.HAN_TO_TELE, false,
+                mCallback);
+        task.setIncrementalTranslator(incrementalTranslator, 1, new TextEdit(0, 1, 5, 0, 7));
+        task.run();
+
+        assertEquals(2, mCallback.mResults.size());
+        assertEquals("3443 2015 6073 6073 0826 , 7001 0826 8638 6073 4407 ",
+                mCallback.mResults.get(1));
+        assertEquals(8, incrementalTranslator.getLastTranslatedLength());
+
+    }
+
+    @Test
+    public void testPartialResults() {
+
+        StringBuilder input = new StringBuilder();
+        for(int i = 0; i < 1000; i++)
+            input.append("Hello");
+
+        TranslateTask task = new TranslateTask(mTable, input.toString(),
+                TranslateMode.HAN_TO_TELE, false, mCallback);
+        task.setPartialResults(1, Long.MAX_VALUE / 4000000);
+        task.run();
+
+        assertFalse(mCallback.mPartialResults.isEmpty());
+        assertTrue(mCallback.mPartialResults.get(0).startsWith("3443 2015 6073 6073 0826 "));
+        assertEquals(1, mCallback.mResults.size());
+        assertEquals(5000 * 5, mCallback.mResults.get(0).length());
+
+    }
+
+    @Test
+    public void testCache() {
+
+        TranslationCache cache = new TranslationCache(TranslationCache.DEFAULT_MAX_SIZE);
+        cache.put("Hello", TranslateMode.HAN_TO_TELE, false, "cached");
+
+        TranslateTask task = new TranslateTask(mTable, "Hello", TranslateMode.HAN_TO_TELE, false,
+                mCallback);
+        task.setCache(cache);
+        task.run();
+
+        task = new TranslateTask(mTable, "Hello", TranslateMode.HAN_TO_TELE, true, mCallback);
+        task.setCache(cache);
+        task.run();
+
+        assertEquals("cached", mCallback.mResults.get(0));
+        assertEquals("6600 3567 1154 1154 6480 ", mCallback.mResults.get(1));
+        assertEquals("6600 3567 1154 1154 6480 ", cache.get("Hello", TranslateMode.HAN_TO_TELE,
+                true));
+
+    }
+
+    @Test
+    public void testIncrementalCache() {
+
+        final String simplified = "3443 2015 6073 6073 0826 , 7001 0826 8638 6073 4407 ";
+        final String traditional = "6600 3567 1154 1154 6480 , 5671 6480 9346 1154 0022 ";
+
+        IncrementalTranslator incrementalTranslator = new IncrementalTranslator();
+        TranslationCache cache = new TranslationCache(TranslationCache.DEFAULT_MAX_SIZE);
+
+        // The first translation is of the whole text, so it is looked up and stored
+        runIncremental(incrementalTranslator, cache, "Hello", false, 0, null);
+        assertEquals(1, cache.missCount());
+        assertEquals("3443 2015 6073 6073 0826 ", cache.get("Hello", TranslateMode.HAN_TO_TELE,
+                false));
+
+        // An edit is neither looked up nor stored
+        runIncremental(incrementalTranslator, cache, "Hello, world", false, 1,
+                new TextEdit(0, 1, 5, 0, 7));
+        assertEquals(simplified, mCallback.mResults.get(1));
+        assertEquals(8, incrementalTranslator.getLastTranslatedLength());
+        assertEquals(1, cache.missCount());
+        assertNull(cache.get("Hello, world", TranslateMode.HAN_TO_TELE, false));
+
+        // Switching the character set stores each translation, so switching again is a hit
+        runIncremental(incrementalTranslator, cache, "Hello, world", true, 1, null);
+        runIncremental(incrementalTranslator, cache, "Hello, world", false, 1, null);
+        assertEquals(traditional, mCallback.mResults.get(2));
+        assertEquals(simplified, mCallback.mResults.get(3));
+        final int hits = cache.hitCount();
+
+        runIncremental(incrementalTranslator, cache, "Hello, world", true, 1, null);
+        assertEquals(traditional, mCallback.mResults.get(4));
+        assertEquals(hits + 1, cache.hitCount());
+
+        // A hit leaves the translator holding the simplified translation, so edits remain in step
+        runIncremental(incrementalTranslator, cache, "Hello, world!", false, 2,
+                new TextEdit(1, 2, 12, 0, 1));
+        assertEquals(simplified + "!", mCallback.mResults.get(5));
+        assertEquals(2, incrementalTranslator.getLastTranslatedLength());
+
+    }
+
+    /**
+     * Runs a task converting Chinese characters to telegraph codes with the given translator
+     * and cache.
+     */
+    private void runIncremental(IncrementalTranslator incrementalTranslator,
+                                TranslationCache cache, String text, boolean useTraditional,
+                                int version, TextEdit edit) {
+
+        TranslateTask task = new TranslateTask(mTable, text, TranslateMode.HAN_TO_TELE,
+                useTraditional, mCallback);
+        task.setIncrementalTranslator(incrementalTranslator, version, edit);
+        task.setCache(cache);
+        task.run();
+
+    }
+
+    @Test
+    public void testInterrupted() {
+
+        Thread.currentThread().interrupt();
+        try {
+            new TranslateTask(mTable, "Hello", TranslateMode.HAN_TO_TELE, false, mCallback).run();
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertTrue(mCallback.mResults.isEmpty());
+
+    }
+
+    /**
+     * Records every result reported to it.
+     */
+    private static class RecordingCallback implements TranslateTask.Callback {
+
+        private final List<String> mPartialResults = new ArrayList<>();
+        private final List<String> mResults = new ArrayList<>();
+
+        @Override
+        public void onPartialResult(String partialResult) {
+            mPartialResults.add(partialResult);
+        }
+
+        @Override
+        public void onResult(String result) {
+            mResults.add(result);
+        }
+
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TranslationCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSizeTest() {
+        new TranslationCache(0);
+    }
+
+    @Test
+    public void getTest() {
+
+        TranslationCache cache = new TranslationCache(100);
+
+        assertNull(cache.get("你好", TranslateMode.HAN_TO_TELE, false));
+        cache.put("你好", TranslateMode.HAN_TO_TELE, false, "2978 6350 ");
+
+        assertEquals("2978 6350 ", cache.get("你好", TranslateMode.HAN_TO_TELE, false));
+        assertEquals("2978 6350 ", cache.get(new String("你好"), TranslateMode.HAN_TO_TELE, false));
+
+        // The mode and character set are part of the key
+        assertNull(cache.get("你好", TranslateMode.HAN_TO_TELE, true));
+        assertNull(cache.get("你好", TranslateMode.TELE_TO_HAN, false));
+        assertNull(cache.get("你", TranslateMode.HAN_TO_TELE, false));
+
+        assertEquals(2, cache.hitCount());
+        assertEquals(4, cache.missCount());
+        assertEquals(12, cache.size());
+
+    }
+
+    @Test
+    public void replaceTest() {
+
+        TranslationCache cache = new TranslationCache(100);
+
+        cache.put("a", TranslateMode.HAN_TO_TELE, false, "a");
+        cache.put("a", TranslateMode.HAN_TO_TELE, false, "b");
+
+        assertEquals("b", cache.get("a", TranslateMode.HAN_TO_TELE, false));
+        assertEquals(2, cache.size());
+
+    }
+
+    @Test
+    public void evictionTest() {
+
+        TranslationCache cache = new TranslationCache(10);
+
+        cache.put("aa", TranslateMode.HAN_TO_TELE, false, "aa");
+        cache.put("bb", TranslateMode.HAN_TO_TELE, false, "bb");
+
+        // Using an entry makes it the most recently used
+        cache.get("aa", TranslateMode.HAN_TO_TELE, false);
+        cache.put("cc", TranslateMode.HAN_TO_TELE, false, "cc");
+
+        assertNull(cache.get("bb", TranslateMode.HAN_TO_TELE, false));
+        assertEquals("aa", cache.get("aa", TranslateMode.HAN_TO_TELE, false));
+        assertEquals("cc", cache.get("cc", TranslateMode.HAN_TO_TELE, false));
+        assertEquals(8, cache.size());
+        assertEquals(1, cache.evictionCount());
+
+        // Entries larger than the cache are never added
+        cache.put("abcdef", TranslateMode.HAN_TO_TELE, false, "abcdef");
+        assertNull(cache.get("abcdef", TranslateMode.HAN_TO_TELE, false));
+        assertEquals(8, cache.size());
+
+        cache.evictAll();
+        assertEquals(0, cache.size());
+        assertNull(cache.get("aa", TranslateMode.HAN_TO_TELE, false));
+
+    }
+
+    @Test
+    public void trimToSizeTest() {
+
+        TranslationCache cache = new TranslationCache(100);
+        cache.put("aa", TranslateMode.HAN_TO_TELE, false, "bb");
+        cache.put("cc", TranslateMode.HAN_TO_TELE, false, "dd");
+        cache.put("ee", TranslateMode.HAN_TO_TELE, false, "ff");
+        cache.get("aa", TranslateMode.HAN_TO_TELE, false);
+
+        // The least recently used entries go first
+        cache.trimToSize(8);
+        assertEquals(8, cache.size());
+        assertNull(cache.get("cc", TranslateMode.HAN_TO_TELE, false));
+        assertEquals("bb", cache.get("aa", TranslateMode.HAN_TO_TELE, false));
+        assertEquals("ff", cache.get("ee", TranslateMode.HAN_TO_TELE, false));
+
+    }
+
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TranslatorTest {
+
+    private CodeTable mTable;
+
+    @Before
+    public void setUp() {
+
+        mTable = new CodeTable.Builder()
+                .put(false, 0x4F60, 2978)
+                .put(false, 0x597D, 6350)
+                .put(false, 0x3002, 6364)
+                .put(false, 0x4E00, 0)
+                .put(true, 0x4F60, 2643)
+                .build();
+
+    }
+
+    @Test
+    public void hanToTeleTest() {
+
+        assertEquals("2978 6350 , world6364 ", translate("你好, world。", TranslateMode.HAN_TO_TELE,
+                false));
+        assertEquals("2643 好", translate("你好", TranslateMode.HAN_TO_TELE, true));
+        assertEquals("a😀\uD83Db\uDE00", translate("a😀\uD83Db\uDE00", TranslateMode.HAN_TO_TELE,
+                false));
+        assertEquals("", translate("", TranslateMode.HAN_TO_TELE, false));
+
+    }
+
+    @Test
+    public void passThroughTest() {
+
+        // Runs of text without telegraph codes are copied as they are
+        assertEquals("Hello, 2978 world! 6350 ~!", translate("Hello, 你world! 好~!",
+                TranslateMode.HAN_TO_TELE, false));
+        assertEquals("abcdef,ghi你", translate("abc def,ghi 2978", TranslateMode.TELE_TO_HAN,
+                false));
+        assertEquals("a\u00E9\uD83D\uDE00b", translate("a\u00E9\uD83D\uDE00b",
+                TranslateMode.HAN_TO_TELE, false));
+
+        // Surrogates are only looked up alone, never as part of a pair
+        CodeTable table = new CodeTable.Builder()
+                .put(false, 0xD83D, 1234)
+                .put(false, 0x4F60, 2978)
+                .build();
+        assertEquals("1234 a\uD83D\uDE002978 1234 ", new Translator(table,
+                TranslateMode.HAN_TO_TELE, false).translate("\uD83Da\uD83D\uDE00你\uD83D"));
+        assertEquals("\uD83D\uDE00", new Translator(table, TranslateMode.HAN_TO_TELE, false)
+                .translate("\uD83D\uDE00"));
+
+    }
+
+    @Test
+    public void estimateOutputLengthTest() {
+
+        assertEquals(141, Translator.estimateOutputLength(TranslateMode.HAN_TO_TELE, 100));
+        assertEquals(2, Translator.estimateOutputLength(TranslateMode.TELE_TO_HAN, 2));
+        assertEquals(8 * 1024 * 1024, Translator.estimateOutputLength(
+                TranslateMode.HAN_TO_TELE, Integer.MAX_VALUE));
+
+        // Mostly ASCII text fits without growing, and is not given five times its length
+        String input = "Hello, 你好!";
+        int estimate = Translator.estimateOutputLength(TranslateMode.HAN_TO_TELE,
+                input.length());
+        assertTrue(translate(input, TranslateMode.HAN_TO_TELE, false).length() <= estimate);
+        assertTrue(estimate < input.length() * 5);
+
+    }
+
+    @Test
+    public void estimateOutputLengthSampledTest() {
+
+        // Chinese text is given room for its codes, and ASCII text little more than its length
+        String han = repeat('你', 5000);
+        assertTrue(translate(han, TranslateMode.HAN_TO_TELE, false).length()
+                <= Translator.estimateOutputLength(TranslateMode.HAN_TO_TELE, han, 0, 5000));
+
+        String ascii = repeat('a', 5000);
+        assertTrue(Translator.estimateOutputLength(TranslateMode.HAN_TO_TELE, ascii, 0, 5000)
+                < 5000 * 2);
+
+        String mixed = "Hello, 你好! " + han.substring(0, 10);
+        assertTrue(translate(mixed, TranslateMode.HAN_TO_TELE, false).length()
+                <= Translator.estimateOutputLength(TranslateMode.HAN_TO_TELE, mixed, 0,
+                mixed.length()));
+
+        // Only the range is considered
+        assertEquals(0, Translator.estimateOutputLength(TranslateMode.HAN_TO_TELE, han, 7, 7));
+        assertEquals(10, Translator.estimateOutputLength(TranslateMode.TELE_TO_HAN, han, 0, 10));
+        assertTrue(Translator.estimateOutputLength(TranslateMode.HAN_TO_TELE, han + ascii, 5000,
+                10000) < 5000 * 2);
+
+    }
+
+    @Test
+    public void teleToHanTest() {
+
+        assertEquals("你好,999912345!", translate("2978 6350, 9999 12345!",
+                TranslateMode.TELE_TO_HAN, false));
+        assertEquals("你", translate("2643", TranslateMode.TELE_TO_HAN, true));
+        assertEquals("一一", translate("0 0000", TranslateMode.TELE_TO_HAN, false));
+        assertEquals("", translate(" \t\n", TranslateMode.TELE_TO_HAN, false));
+
+    }
+
+    @Test
+    public void teleToHanLongRunTest() {
+
+        // Leading zeros are permitted, however many there are
+        assertEquals("你", translate(repeat('0', 20000) + "2978", TranslateMode.TELE_TO_HAN,
+                false));
+
+        // Runs which cannot be telegraph codes are copied exactly
+        String unmapped = repeat('0', 20000) + "12978" + repeat('5', 20000);
+        assertEquals(unmapped, translate(unmapped, TranslateMode.TELE_TO_HAN, false));
+        assertEquals(repeat('0', 20000) + "1234", translate(repeat('0', 20000) + "1234",
+                TranslateMode.TELE_TO_HAN, false));
+
+    }
+
+    @Test
+    public void pieceBoundaryTest() {
+
+        assertPiecesMatch("你好😀, wor\uD83Dld。\uDE00 😀", TranslateMode.HAN_TO_TELE, false);
+        assertPiecesMatch("2978 6350, 9999 12345! 002978 😀 0000 00000 129780 2978",
+                TranslateMode.TELE_TO_HAN, false);
+        assertPiecesMatch("0000000000000000000000000002978x0000000000000000000000000000012978",
+                TranslateMode.TELE_TO_HAN, false);
+
+    }
+
+    @Test
+    public void readerTest() throws IOException {
+
+        // Long enough to span several chunks, with a code split across each chunk boundary
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        while(input.length() < Translator.CHUNK_SIZE * 3) {
+            input.append("2978 6350, ");
+            expected.append("你好,");
+        }
+
+        StringWriter writer = new StringWriter();
+        new Translator(mTable, TranslateMode.TELE_TO_HAN, false).translate(
+                new StringReader(input.toString()), writer);
+        assertEquals(expected.toString(), writer.toString());
+
+        StringBuilder builder = new StringBuilder();
+        new Translator(mTable, TranslateMode.TELE_TO_HAN, false).translate(
+                new StringReader(input.toString()), builder);
+        assertEquals(expected.toString(), builder.toString());
+
+    }
+
+    @Test
+    public void resetTest() {
+
+        Translator translator = new Translator(mTable, TranslateMode.TELE_TO_HAN, false);
+        StringBuilder output = new StringBuilder();
+        translator.translate("x297", 0, 4, output);
+        translator.reset();
+        translator.translate("8", 0, 1, output);
+        translator.finish(output);
+        assertEquals("x8", output.toString());
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidModeTest() {
+        new Translator(mTable, 2, false);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void invalidRangeTest() {
+        new Translator(mTable, TranslateMode.HAN_TO_TELE, false).translate("abc", 2, 4,
+                new StringBuilder());
+    }
+
+    private String translate(String input, int translateMode, boolean useTraditional) {
+        return new Translator(mTable, translateMode, useTraditional).translate(input);
+    }
+
+    /**
+     * Checks that translating the given input in pieces of every size, and split at every
+     * position, gives the same result as translating it whole.
+     */
+    private void assertPiecesMatch(String input, int translateMode, boolean useTraditional) {
+
+        String expected = translate(input, translateMode, useTraditional);
+        Translator translator = new Translator(mTable, translateMode, useTraditional);
+
+        for(int size = 1; size <= input.length(); size++) {
+
+            StringBuilder output = new StringBuilder();
+            for(int start = 0; start < input.length(); start += size)
+                translator.translate(input, start, Math.min(start + size, input.length()), output);
+            translator.finish(output);
+
+            assertEquals("Piece size " + size, expected, output.toString());
+
+        }
+
+        for(int split = 0; split <= input.length(); split++) {
+
+            StringBuilder output = new StringBuilder();
+            translator.translate(input, 0, split, output);
+            translator.translate(input.substring(split), 0, input.length() - split, output);
+            translator.finish(output);
+
+            assertEquals("Split at " + split, expected, output.toString());
+
+        }
+
+    }
+
+    private static String repeat(char c, int count) {
+
+        StringBuilder builder = new StringBuilder(count);
+        for(int i = 0; i < count; i++)
+            builder.append(c);
+
+        return builder.toString();
+
+    }
+
+}
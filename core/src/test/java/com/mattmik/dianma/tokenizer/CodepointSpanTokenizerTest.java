@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.tokenizer;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CodepointSpanTokenizerTest {
+
+    @Test
+    public void getInputTest() {
+
+        SpanTokenizer tokenizer = new CodepointSpanTokenizer("大家好！");
+        assertEquals("大家好！", tokenizer.getInput());
+
+    }
+
+    @Test
+    public void emptyStringHasMoreTokensTest() {
+
+        SpanTokenizer tokenizer = new CodepointSpanTokenizer("");
+        assertFalse(tokenizer.hasMoreTokens());
+
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void emptyStringNextTest() {
+
+        new CodepointSpanTokenizer("").next();
+
+    }
+
+    @Test
+    public void tokenizationTest() {
+
+        SpanTokenizer tokenizer = new CodepointSpanTokenizer("你好, 😀!");
+
+        assertToken(tokenizer, 0x4F60, 0, 1);
+        assertToken(tokenizer, 0x597D, 1, 2);
+        assertToken(tokenizer, ',', 2, 3);
+        assertToken(tokenizer, ' ', 3, 4);
+        assertToken(tokenizer, 0x1F600, 4, 6);
+        assertToken(tokenizer, '!', 6, 7);
+
+        assertFalse(tokenizer.hasMoreTokens());
+
+    }
+
+    @Test
+    public void loneSurrogateTest() {
+
+        SpanTokenizer tokenizer = new CodepointSpanTokenizer("\uD83Da");
+
+        assertToken(tokenizer, 0xD83D, 0, 1);
+        assertToken(tokenizer, 'a', 1, 2);
+
+        assertFalse(tokenizer.hasMoreTokens());
+
+    }
+
+    private static void assertToken(SpanTokenizer tokenizer, int codepoint, int start, int end) {
+
+        assertTrue(tokenizer.hasMoreTokens());
+        assertEquals(SpanTokenizer.KIND_CODEPOINT, tokenizer.next());
+        assertEquals(codepoint, tokenizer.getCodepoint());
+        assertEquals(start, tokenizer.getStart());
+        assertEquals(end, tokenizer.getEnd());
+
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.tokenizer;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NumberSpanTokenizerTest {
+
+    @Test
+    public void getInputTest() {
+
+        SpanTokenizer tokenizer = new NumberSpanTokenizer("1234567890");
+        assertEquals("1234567890", tokenizer.getInput());
+
+    }
+
+    @Test
+    public void emptyStringHasMoreTokensTest() {
+
+        SpanTokenizer tokenizer = new NumberSpanTokenizer("");
+        assertFalse(tokenizer.hasMoreTokens());
+
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void emptyStringNextTest() {
+
+        new NumberSpanTokenizer("").next();
+
+    }
+
+    @Test
+    public void numberTokenizationTest() {
+
+        SpanTokenizer tokenizer = new NumberSpanTokenizer("7220 0350,653330\n1");
+
+        assertToken(tokenizer, SpanTokenizer.KIND_NUMBER, '7', 0, 4);
+        assertToken(tokenizer, SpanTokenizer.KIND_WHITESPACE, ' ', 4, 5);
+        assertToken(tokenizer, SpanTokenizer.KIND_NUMBER, '0', 5, 9);
+        assertToken(tokenizer, SpanTokenizer.KIND_TEXT, ',', 9, 10);
+        assertToken(tokenizer, SpanTokenizer.KIND_NUMBER, '6', 10, 16);
+        assertToken(tokenizer, SpanTokenizer.KIND_WHITESPACE, '\n', 16, 17);
+        assertToken(tokenizer, SpanTokenizer.KIND_NUMBER, '1', 17, 18);
+
+        assertFalse(tokenizer.hasMoreTokens());
+
+    }
+
+    @Test
+    public void textTokenizationTest() {
+
+        SpanTokenizer tokenizer = new NumberSpanTokenizer("地球！😀１");
+
+        assertToken(tokenizer, SpanTokenizer.KIND_TEXT, 0x5730, 0, 1);
+        assertToken(tokenizer, SpanTokenizer.KIND_TEXT, 0x7403, 1, 2);
+        assertToken(tokenizer, SpanTokenizer.KIND_TEXT, 0xFF01, 2, 3);
+        assertToken(tokenizer, SpanTokenizer.KIND_TEXT, 0x1F600, 3, 5);
+
+        // Full width digits are not grouped into numbers
+        assertToken(tokenizer, SpanTokenizer.KIND_TEXT, 0xFF11, 5, 6);
+
+        assertFalse(tokenizer.hasMoreTokens());
+
+    }
+
+    private static void assertToken(SpanTokenizer tokenizer, int kind, int codepoint, int start,
+                                    int end) {
+
+        assertTrue(tokenizer.hasMoreTokens());
+        assertEquals(kind, tokenizer.next());
+        assertEquals(codepoint, tokenizer.getCodepoint());
+        assertEquals(start, tokenizer.getStart());
+        assertEquals(end, tokenizer.getEnd());
+
+    }
+
+}
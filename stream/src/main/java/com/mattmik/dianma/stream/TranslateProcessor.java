@@ -0,0 +1,459 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.stream;
+
+import android.support.annotation.NonNull;
+
+import com.mattmik.dianma.BatchTranslator;
+import com.mattmik.dianma.CodeTable;
+import com.mattmik.dianma.TranslateMode;
+import com.mattmik.dianma.Translator;
+
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * TranslateProcessor is a stage of a Reactive Streams pipeline, which translates each message it
+ * receives from upstream and publishes the results downstream, in the same order.
+ * <p>
+ * The processor follows the backpressure of its single subscriber: it never requests more
+ * messages from upstream than the subscriber has requested results, and never holds more than
+ * twice its batch size of messages which have been requested but not delivered. Messages which
+ * arrive together are translated together, up to a batch at a time, with a single
+ * {@link Translator} and output buffer. Each message is translated on its own, and its result is
+ * the same as that of {@link Translator#translate(CharSequence)}.
+ * <p>
+ * Translation and every signal to the subscriber run on the given executor, one task at a time.
+ * An error from upstream, or a failure to translate, is passed on to the subscriber at once, and
+ * any results not yet delivered are dropped.
+ */
+public final class TranslateProcessor implements Processor<CharSequence, String> {
+
+    private final Executor mExecutor;
+    private final Translator mTranslator;
+    private final int mBatchSize;
+    private final long mCapacity;
+
+    private final AtomicReference<Subscription> mUpstream = new AtomicReference<>();
+    private final AtomicReference<Subscriber<? super String>> mDownstream =
+            new AtomicReference<>();
+    private final AtomicLong mDemand = new AtomicLong();
+    private final AtomicInteger mWip = new AtomicInteger();
+    private final Queue<CharSequence> mInputs = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean mSubscribed;
+    private volatile boolean mDone;
+    private volatile boolean mCancelled;
+    private volatile Throwable mError;
+
+    // Only touched by the drain task, which never runs concurrently with itself
+    private final Queue<String> mOutputs = new ArrayDeque<>();
+    private final StringBuilder mBuilder = new StringBuilder();
+    private long mOutstanding;
+    private boolean mTerminated;
+
+    private final Runnable mDrainTask = new Runnable() {
+
+        @Override
+        public void run() {
+            drain();
+        }
+
+    };
+
+    /**
+     * Constructs a new TranslateProcessor, which translates up to
+     * {@link BatchTranslator#BATCH_SIZE} messages at a time.
+     * @param table the CodeTable used for translation, which must hold the selected character set
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param useTraditional true if translation should use traditional characters, false if
+     *                       translation should use simplified characters
+     * @param executor the executor which translates messages and signals the subscriber
+     * @throws IllegalArgumentException if the translation mode is invalid
+     */
+    public TranslateProcessor(@NonNull CodeTable table, int translateMode, boolean useTraditional,
+                              @NonNull Executor executor) {
+        this(table, translateMode, useTraditional, executor, BatchTranslator.BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a new TranslateProcessor.
+     * @param table the CodeTable used for translation, which must hold the selected character set
+     * @param translateMode the translation mode. See {@link TranslateMode}.
+     * @param useTraditional true if translation should use traditional characters, false if
+     *                       translation should use simplified characters
+     * @param executor the executor which translates messages and signals the subscriber
+     * @param batchSize the largest number of messages translated at a time
+     * @throws IllegalArgumentException if the translation mode is invalid, or the batch size is
+     *                                  less than one
+     */
+    public TranslateProcessor(@NonNull CodeTable table, int translateMode, boolean useTraditional,
+                              @NonNull Executor executor, int batchSize) {
+
+        if(batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be positive.");
+
+        mTranslator = new Translator(table, translateMode, useTraditional);
+        mExecutor = executor;
+        mBatchSize = batchSize;
+
+        // Lets the next batch arrive while the current one is translated and delivered
+        mCapacity = 2L * batchSize;
+
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super String> subscriber) {
+
+        if(subscriber == null)
+            throw new NullPointerException("Subscriber must not be null.");
+
+        if(!mDownstream.compareAndSet(null, subscriber)) {
+
+            subscriber.onSubscribe(new Subscription() {
+
+                @Override
+                public void request(long n) {
+                    // Empty!
+                }
+
+                @Override
+                public void cancel() {
+                    // Empty!
+                }
+
+            });
+            subscriber.onError(new IllegalStateException(
+                    "TranslateProcessor supports only one subscriber."));
+            return;
+
+        }
+
+        subscriber.onSubscribe(new DownstreamSubscription());
+
+        // Signals from the drain task must not overlap onSubscribe
+        mSubscribed = true;
+        schedule();
+
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+
+        if(subscription == null)
+            throw new NullPointerException("Subscription must not be null.");
+
+        if(!mUpstream.compareAndSet(null, subscription)) {
+            subscription.cancel();
+            return;
+        }
+
+        if(mCancelled) {
+            subscription.cancel();
+            return;
+        }
+
+        schedule();
+
+    }
+
+    @Override
+    public void onNext(CharSequence message) {
+
+        if(message == null)
+            throw new NullPointerException("Message must not be null.");
+
+        mInputs.offer(message);
+        schedule();
+
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+
+        if(throwable == null)
+            throw new NullPointerException("Throwable must not be null.");
+
+        mError = throwable;
+        mDone = true;
+        schedule();
+
+    }
+
+    @Override
+    public void onComplete() {
+        mDone = true;
+        schedule();
+    }
+
+    /**
+     * Runs the drain task on the executor, unless it is already running, in which case it is told
+     * to loop once more.
+     */
+    private void schedule() {
+
+        if(mWip.getAndIncrement() == 0) {
+
+            try {
+                mExecutor.execute(mDrainTask);
+            } catch(RuntimeException e) {
+                mCancelled = true;
+                cancelUpstream();
+                throw e;
+            }
+
+        }
+
+    }
+
+    /**
+     * Delivers translated messages while the subscriber has demand, translates the next batch
+     * once every result has been delivered, and requests more messages from upstream.
+     */
+    private void drain() {
+
+        int missed = 1;
+        do {
+
+            if(mTerminated || mCancelled) {
+                clear();
+            } else if(mSubscribed) {
+                drainOnce();
+            }
+
+            missed = mWip.addAndGet(-missed);
+
+        } while(missed != 0);
+
+    }
+
+    /**
+     * Makes as much progress as possible with the current demand and messages.
+     */
+    private void drainOnce() {
+
+        final Subscriber<? super String> subscriber = mDownstream.get();
+
+        while(true) {
+
+            if(mCancelled) {
+                clear();
+                return;
+            }
+
+            Throwable error = mError;
+            if(error != null) {
+                terminate(subscriber, error);
+                return;
+            }
+
+            // Delivers results in order, for as long as the subscriber has demand
+            long demand = mDemand.get();
+            long delivered = 0;
+            while(delivered < demand && !mOutputs.isEmpty() && !mCancelled) {
+                subscriber.onNext(mOutputs.poll());
+                delivered++;
+            }
+            demand = consumeDemand(delivered);
+
+            if(mCancelled) {
+                clear();
+                return;
+            }
+
+            // Every result of the previous batch has been delivered, so translates the next one
+            if(mOutputs.isEmpty() && !mInputs.isEmpty()) {
+
+                try {
+                    translateBatch();
+                } catch(RuntimeException e) {
+                    mCancelled = true;
+                    cancelUpstream();
+                    terminate(subscriber, e);
+                    return;
+                }
+                continue;
+
+            }
+
+            if(mDone && mInputs.isEmpty() && mOutputs.isEmpty()) {
+
+                // An error may have arrived after the last check
+                error = mError;
+                if(error != null) {
+                    terminate(subscriber, error);
+                } else {
+                    mTerminated = true;
+                    subscriber.onComplete();
+                }
+                return;
+
+            }
+
+            // Requests no more than the subscriber wants and the buffer holds
+            Subscription upstream = mUpstream.get();
+            long wanted = Math.min(demand, mCapacity) - mOutstanding - mOutputs.size();
+            if(upstream != null && !mDone && wanted > 0) {
+                mOutstanding += wanted;
+                upstream.request(wanted);
+            }
+
+            return;
+
+        }
+
+    }
+
+    /**
+     * Translates up to a batch of the messages received from upstream.
+     */
+    private void translateBatch() {
+
+        CharSequence message;
+        for(int i = 0; i < mBatchSize && (message = mInputs.poll()) != null; i++) {
+
+            // Stays at zero if upstream sends more than was requested
+            if(mOutstanding > 0)
+                mOutstanding--;
+
+            mTranslator.translate(message, 0, message.length(), mBuilder);
+            mTranslator.finish(mBuilder);
+
+            mOutputs.offer(mBuilder.toString());
+            mBuilder.setLength(0);
+
+        }
+
+    }
+
+    /**
+     * Subtracts the number of delivered results from the subscriber's demand, unless the demand
+     * is unbounded.
+     * @param delivered the number of results delivered
+     * @return the remaining demand
+     */
+    private long consumeDemand(long delivered) {
+
+        while(true) {
+
+            long current = mDemand.get();
+            if(current == Long.MAX_VALUE || delivered == 0)
+                return current;
+
+            long next = current - delivered;
+            if(mDemand.compareAndSet(current, next))
+                return next;
+
+        }
+
+    }
+
+    /**
+     * Adds to the subscriber's demand, which stops growing once it is unbounded.
+     * @param n the number of results requested
+     */
+    private void addDemand(long n) {
+
+        while(true) {
+
+            long current = mDemand.get();
+            if(current == Long.MAX_VALUE)
+                return;
+
+            long next = current + n;
+            if(next < 0)
+                next = Long.MAX_VALUE;
+
+            if(mDemand.compareAndSet(current, next))
+                return;
+
+        }
+
+    }
+
+    /**
+     * Signals an error to the subscriber, and drops every message and result.
+     * @param subscriber the subscriber
+     * @param error the error
+     */
+    private void terminate(@NonNull Subscriber<? super String> subscriber,
+                           @NonNull Throwable error) {
+        mTerminated = true;
+        clear();
+        subscriber.onError(error);
+    }
+
+    private void clear() {
+        mInputs.clear();
+        mOutputs.clear();
+    }
+
+    private void cancelUpstream() {
+
+        Subscription upstream = mUpstream.get();
+        if(upstream != null)
+            upstream.cancel();
+
+    }
+
+    /**
+     * The subscription given to the processor's subscriber.
+     */
+    private final class DownstreamSubscription implements Subscription {
+
+        @Override
+        public void request(long n) {
+
+            if(n <= 0) {
+
+                mError = new IllegalArgumentException("Requested count must be positive.");
+                cancelUpstream();
+                schedule();
+                return;
+
+            }
+
+            addDemand(n);
+            schedule();
+
+        }
+
+        @Override
+        public void cancel() {
+
+            if(!mCancelled) {
+                mCancelled = true;
+                cancelUpstream();
+                schedule();
+            }
+
+        }
+
+    }
+
+}
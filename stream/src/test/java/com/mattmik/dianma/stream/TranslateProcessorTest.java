@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2016-2017 Matthew Mikolay
+ *
+ * This file is part of Pocket CTC.
+ *
+ * Pocket CTC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Pocket CTC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pocket CTC.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.mattmik.dianma.stream;
+
+import com.mattmik.dianma.CodeTable;
+import com.mattmik.dianma.TranslateMode;
+import com.mattmik.dianma.Translator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TranslateProcessorTest {
+
+    private static final Executor DIRECT = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+    };
+
+    private CodeTable mTable;
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+
+        mTable = new CodeTable.Builder()
+                .put(false, 0x4F60, 2978)
+                .put(false, 0x597D, 6350)
+                .put(false, 0x3002, 6364)
+                .put(true, 0x4F60, 2643)
+                .build();
+        mExecutor = Executors.newSingleThreadExecutor();
+
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBatchSizeTest() {
+        new TranslateProcessor(mTable, TranslateMode.HAN_TO_TELE, false, DIRECT, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidModeTest() {
+        new TranslateProcessor(mTable, 2, false, DIRECT);
+    }
+
+    @Test
+    public void translateTest() {
+
+        TranslateProcessor processor = new TranslateProcessor(mTable,
+                TranslateMode.HAN_TO_TELE, false, DIRECT, 4);
+        ListPublisher publisher = new ListPublisher(messages(100));
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+
+        assertEquals(expected(messages(100), TranslateMode.HAN_TO_TELE, false),
+                subscriber.mResults);
+        assertTrue(subscriber.mCompleted);
+        assertNull(subscriber.mError);
+
+        // Never more than two batches are requested ahead of delivery
+        assertTrue(publisher.mLargestRequest <= 8);
+
+    }
+
+    @Test
+    public void translateTraditionalTest() {
+
+        TranslateProcessor processor = new TranslateProcessor(mTable,
+                TranslateMode.TELE_TO_HAN, true, DIRECT);
+        ListPublisher publisher = new ListPublisher(Arrays.asList("2643", "abc 2643", ""));
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        assertEquals(Arrays.asList("你", "abc你", ""), subscriber.mResults);
+        assertTrue(subscriber.mCompleted);
+
+    }
+
+    @Test
+    public void backpressureTest() {
+
+        TranslateProcessor processor = new TranslateProcessor(mTable,
+                TranslateMode.HAN_TO_TELE, false, DIRECT, 4);
+        ListPublisher publisher = new ListPublisher(messages(20));
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+        assertEquals(0, publisher.mRequested);
+        assertTrue(subscriber.mResults.isEmpty());
+
+        subscriber.mSubscription.request(3);
+        assertEquals(3, subscriber.mResults.size());
+        assertEquals(3, publisher.mRequested);
+
+        subscriber.mSubscription.request(5);
+        assertEquals(8, subscriber.mResults.size());
+        assertEquals(8, publisher.mRequested);
+        assertFalse(subscriber.mCompleted);
+
+        subscriber.mSubscription.request(100);
+        assertEquals(expected(messages(20), TranslateMode.HAN_TO_TELE, false),
+                subscriber.mResults);
+        assertTrue(subscriber.mCompleted);
+
+    }
+
+    @Test
+    public void cancelTest() {
+
+        TranslateProcessor processor = new TranslateProcessor(mTable,
+                TranslateMode.HAN_TO_TELE, false, DIRECT);
+        ListPublisher publisher = new ListPublisher(messages(20));
+        RecordingSubscriber subscriber = new RecordingSubscriber(2);
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+        subscriber.mSubscription.cancel();
+        subscriber.mSubscription.request(10);
+
+        assertTrue(publisher.mCancelled);
+        assertEquals(2, subscriber.mResults.size());
+        assertFalse(subscriber.mCompleted);
+        assertNull(subscriber.mError);
+
+    }
+
+    @Test
+    public void cancelBeforeUpstreamTest() {
+
+        TranslateProcessor processor = new TranslateProcessor(mTable,
+                TranslateMode.HAN_TO_TELE, false, DIRECT);
+        ListPublisher publisher = new ListPublisher(messages(20));
+        RecordingSubscriber subscriber = new RecordingSubscriber(2);
+
+        processor.subscribe(subscriber);
+        subscriber.mSubscription.cancel();
+        publisher.subscribe(processor);
+
+        assertTrue(publisher.mCancelled);
+        assertEquals(0, publisher.mRequested);
+
+    }
+
+    @Test
+    public void upstreamErrorTest() {
+
+        TranslateProcessor processor = new TranslateProcessor(mTable,
+                TranslateMode.HAN_TO_TELE, false, DIRECT);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        Exception error = new Exception();
+
+        processor.subscribe(subscriber);
+        processor.onSubscribe(new Subscription() {
+
+            @Override
+            public void request(long n) {
+                // Empty!
+            }
+
+            @Override
+            public void cancel() {
+                // Empty!
+            }
+
+        });
+        processor.onNext("你");
+        processor.onError(error);
+
+        assertSame(error, subscriber.mError);
+        assertFalse(subscriber.mCompleted);
+
+    }
+
+    @Test
+    public void invalidRequestTest() {
+
+        TranslateProcessor processor = new TranslateProcessor(mTable,
+                TranslateMode.HAN_TO_TELE, false, DIRECT);
+        ListPublisher publisher = new ListPublisher(messages(20));
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+        subscriber.mSubscription.request(0);
+
+        assertTrue(subscriber.mError instanceof IllegalArgumentException);
+        assertTrue(publisher.mCancelled);
+
+    }
+
+    @Test
+    public void secondSubscriberTest() {
+
+        TranslateProcessor processor = new TranslateProcessor(mTable,
+                TranslateMode.HAN_TO_TELE, false, DIRECT);
+        RecordingSubscriber first = new RecordingSubscriber(0);
+        RecordingSubscriber second = new RecordingSubscriber(0);
+
+        processor.subscribe(first);
+        processor.subscribe(second);
+
+        assertNull(first.mError);
+        assertTrue(second.mError instanceof IllegalStateException);
+
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullMessageTest() {
+
+        TranslateProcessor processor = new TranslateProcessor(mTable,
+                TranslateMode.HAN_TO_TELE, false, DIRECT);
+        processor.onNext(null);
+
+    }
+
+    @Test
+    public void asynchronousTest() throws InterruptedException {
+
+        TranslateProcessor processor = new TranslateProcessor(mTable,
+                TranslateMode.HAN_TO_TELE, false, mExecutor, 16);
+        final List<String> inputs = messages(5000);
+        ListPublisher publisher = new ListPublisher(inputs);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        // Requests one result at a time, from the processor's own thread
+        RecordingSubscriber subscriber = new RecordingSubscriber(1) {
+
+            @Override
+            public void onNext(String result) {
+                super.onNext(result);
+                mSubscription.request(1);
+            }
+
+            @Override
+            public void onComplete() {
+                super.onComplete();
+                done.countDown();
+            }
+
+        };
+
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(expected(inputs, TranslateMode.HAN_TO_TELE, false), subscriber.mResults);
+
+    }
+
+    private static List<String> messages(int count) {
+
+        final String[] pieces = { "你", "好", "。", "😀", "0", "2", " ", "a", "\uD83D" };
+        final List<String> messages = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+
+            StringBuilder message = new StringBuilder();
+            for(int j = 0; j <= i % 7; j++)
+                message.append(pieces[(i * 31 + j * 7) % pieces.length]);
+            messages.add(message.toString());
+
+        }
+        return messages;
+
+    }
+
+    private List<String> expected(List<String> inputs, int translateMode,
+                                  boolean useTraditional) {
+
+        Translator translator = new Translator(mTable, translateMode, useTraditional);
+        List<String> results = new ArrayList<>();
+        for(String input : inputs)
+            results.add(translator.translate(input));
+        return results;
+
+    }
+
+    /**
+     * Publishes a list of messages, honoring demand, from whichever thread requests them.
+     */
+    private static class ListPublisher implements Publisher<CharSequence> {
+
+        private final List<String> mMessages;
+        private long mRequested;
+        private long mLargestRequest;
+        private boolean mCancelled;
+
+        ListPublisher(List<String> messages) {
+            mMessages = Collections.synchronizedList(new ArrayList<>(messages));
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super CharSequence> subscriber) {
+            subscriber.onSubscribe(new ListSubscription(subscriber));
+        }
+
+        class ListSubscription implements Subscription {
+
+            private final Subscriber<? super CharSequence> mSubscriber;
+            private int mNext;
+            private long mDemand;
+            private boolean mEmitting;
+
+            ListSubscription(Subscriber<? super CharSequence> subscriber) {
+                mSubscriber = subscriber;
+            }
+
+            @Override
+            public synchronized void request(long n) {
+
+                mRequested += n;
+                mLargestRequest = Math.max(mLargestRequest, n);
+                mDemand += n;
+
+                // Requests made from within onNext are served by the outer loop
+                if(mEmitting)
+                    return;
+
+                mEmitting = true;
+                while(mDemand > 0 && mNext < mMessages.size() && !mCancelled) {
+                    mDemand--;
+                    mSubscriber.onNext(mMessages.get(mNext++));
+                }
+                mEmitting = false;
+
+                if(mNext == mMessages.size() && !mCancelled) {
+                    mCancelled = true;
+                    mSubscriber.onComplete();
+                }
+
+            }
+
+            @Override
+            public synchronized void cancel() {
+                mCancelled = true;
+            }
+
+        }
+
+    }
+
+    private static class RecordingSubscriber implements Subscriber<String> {
+
+        private final long mInitialRequest;
+        final List<String> mResults = Collections.synchronizedList(new ArrayList<String>());
+        volatile Subscription mSubscription;
+        volatile boolean mCompleted;
+        volatile Throwable mError;
+
+        RecordingSubscriber(long initialRequest) {
+            mInitialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+
+            mSubscription = subscription;
+            if(mInitialRequest > 0)
+                subscription.request(mInitialRequest);
+
+        }
+
+        @Override
+        public void onNext(String result) {
+            mResults.add(result);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            mError = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            mCompleted = true;
+        }
+
+    }
+
+}